@@ -0,0 +1,65 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.order.services.BatchPackingStrategy;
+import com.storehouse.app.order.services.impl.BatchPackingStrategyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The packing of the delivery batches OrderEventReceiver plans from the queue, for each strategy.
+ * Each invocation packs the next window of the generated queue, so the heads and the quantities
+ * vary as they do in production.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPackingBenchmark {
+    private static final int NUMBER_OF_WINDOWS = 64;
+
+    @Param({ "greedy", "lookahead", "knapsack" })
+    private String strategyName;
+
+    private BatchPackingStrategy strategy;
+    private List<List<OrderEvent>> windows;
+    private int nextWindow;
+
+    @Setup
+    public void setUp() {
+        strategy = BatchPackingStrategyFactory.create(strategyName, BatchPackingStrategyFactory.DEFAULT_LOOK_AHEAD);
+        final int windowSize = Math.max(Order.MAX_LOAD, strategy.getLookAhead());
+        final List<OrderEvent> queue = BenchmarkFixtures.orderEvents(NUMBER_OF_WINDOWS + windowSize);
+        windows = new ArrayList<>(NUMBER_OF_WINDOWS);
+        for (int i = 0; i < NUMBER_OF_WINDOWS; i++) {
+            windows.add(new ArrayList<>(queue.subList(i, i + windowSize)));
+        }
+    }
+
+    @Benchmark
+    public List<OrderEvent> pack() {
+        final List<OrderEvent> window = windows.get(nextWindow);
+        nextWindow = (nextWindow + 1) % NUMBER_OF_WINDOWS;
+        return strategy.pack(window, Order.MAX_LOAD);
+    }
+}
@@ -0,0 +1,174 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.common.utils.PasswordUtils;
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.user.model.Customer;
+import com.storehouse.app.user.model.Employee;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generated data for the benchmarks, shaped as the production data: most orders have one item of
+ * a few units, some customers have several orders, about one customer in ten is premium and the
+ * orders are a few minutes apart. The same seed always gives the same data.
+ *
+ * @author ejiafzh
+ *
+ */
+public final class BenchmarkFixtures {
+    public static final long SEED = 20170101L;
+
+    private static final String[] FIRST_NAMES = { "Mary", "John", "Enda", "Donald", "Aoife", "Sean", "Niamh",
+            "Patrick", "Siobhan", "Ciaran" };
+    private static final String[] LAST_NAMES = { "Simpson", "Doe", "Kenny", "Trump", "Murphy", "Kelly", "Byrne",
+            "Ryan", "O'Brien", "Walsh" };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Generate the customers, the ones whose ID is below Customer.PREMIUM_ID_MAX are premium.
+     *
+     * @param numberOfCustomers
+     *            the number of customers.
+     * @return the customers.
+     */
+    public static List<User> customers(final int numberOfCustomers) {
+        final Random random = new Random(SEED);
+        final List<User> customers = new ArrayList<>(numberOfCustomers);
+        for (int i = 0; i < numberOfCustomers; i++) {
+            // one customer in ten is premium
+            final long id = random.nextInt(10) == 0 ? 1 + i % (Customer.PREMIUM_ID_MAX - 1)
+                    : Customer.PREMIUM_ID_MAX + i;
+            customers.add(user(new Customer(), id, random));
+        }
+        return customers;
+    }
+
+    /**
+     * Generate the employees, with the ADMIN role for one of them in ten.
+     *
+     * @param numberOfEmployees
+     *            the number of employees.
+     * @return the employees.
+     */
+    public static List<User> employees(final int numberOfEmployees) {
+        final Random random = new Random(SEED);
+        final List<User> employees = new ArrayList<>(numberOfEmployees);
+        for (int i = 0; i < numberOfEmployees; i++) {
+            final User employee = user(new Employee(), i + 1L, random);
+            if (i % 10 == 0) {
+                employee.setRoles(Arrays.asList(Roles.EMPLOYEE, Roles.ADMIN));
+            }
+            employees.add(employee);
+        }
+        return employees;
+    }
+
+    private static User user(final User user, final long id, final Random random) {
+        final String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        final String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        user.setId(id);
+        user.setName(firstName + " " + lastName);
+        user.setEmail(firstName.toLowerCase() + "." + lastName.toLowerCase().replace("'", "") + id + "@domain.com");
+        user.setPassword(PasswordUtils.encryptPassword("password" + id));
+        user.setCreatedAt(new Date(System.currentTimeMillis() - random.nextInt(365) * 86400000L));
+        return user;
+    }
+
+    /**
+     * Generate the orders of the customers, with their history.
+     *
+     * @param numberOfOrders
+     *            the number of orders.
+     * @return the orders, the oldest first.
+     */
+    public static List<Order> orders(final int numberOfOrders) {
+        final Random random = new Random(SEED);
+        final List<User> customers = customers(Math.max(1, numberOfOrders / 3));
+        final long start = System.currentTimeMillis() - numberOfOrders * 180000L;
+        final List<Order> orders = new ArrayList<>(numberOfOrders);
+        for (int i = 0; i < numberOfOrders; i++) {
+            final Order order = new Order();
+            order.setId(i + 1L);
+            order.setCustomer((Customer) customers.get(random.nextInt(customers.size())));
+            // the items of an order have different quantities
+            final int numberOfItems = random.nextInt(10) == 0 ? 2 + random.nextInt(3) : 1;
+            for (int item = 1; item <= numberOfItems; item++) {
+                order.addItem(item * quantity(random));
+            }
+            order.setInitialStatus();
+            if (random.nextInt(4) == 0) {
+                order.addHistoryEntry(random.nextBoolean() ? OrderStatus.DELIVERED : OrderStatus.CANCELLED);
+            }
+            order.calculateTotalPrice();
+            order.setCreatedAt(new Date(start + i * 180000L));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Generate the events of the reserved orders in the queue.
+     *
+     * @param numberOfEvents
+     *            the number of events.
+     * @return the events in the queue order.
+     */
+    public static List<OrderEvent> orderEvents(final int numberOfEvents) {
+        final Random random = new Random(SEED);
+        final long start = System.currentTimeMillis() - numberOfEvents * 180000L;
+        final List<OrderEvent> events = new ArrayList<>(numberOfEvents);
+        for (int i = 0; i < numberOfEvents; i++) {
+            events.add(new OrderEvent(i + 1L, 1 + random.nextInt(5000), quantity(random), random.nextInt(10) == 0,
+                    start + i * 180000L));
+        }
+        return events;
+    }
+
+    // mostly a few units, now and then a large order up to the maximum load
+    private static int quantity(final Random random) {
+        return random.nextInt(5) == 0 ? 1 + random.nextInt(Order.MAX_LOAD) : 1 + random.nextInt(5);
+    }
+
+    /**
+     * Get the json of an order as posted by a client.
+     *
+     * @param numberOfItems
+     *            the number of items of the order.
+     * @return the json of the order.
+     */
+    public static String orderJson(final int numberOfItems) {
+        final List<Map<String, Integer>> items = new ArrayList<>();
+        for (int i = 1; i <= numberOfItems; i++) {
+            final Map<String, Integer> item = new LinkedHashMap<>();
+            item.put("quantity", i);
+            items.add(item);
+        }
+        final Map<String, Object> order = new LinkedHashMap<>();
+        order.put("clientId", 1001);
+        order.put("items", items);
+        return JsonWriter.writeToString(order);
+    }
+
+    /**
+     * Get the json of a customer as posted by a client.
+     *
+     * @return the json of the customer.
+     */
+    public static String userJson() {
+        return "{\"name\": \"Mary Simpson\", \"email\": \"mary@domain.com\", \"password\": \"12345678\","
+                + " \"type\": \"CUSTOMER\"}";
+    }
+}
@@ -0,0 +1,64 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.common.utils.DateUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Date formatting and parsing, done for every order and user written to json and every date
+ * filter, compared with the SimpleDateFormat created for each date as DateUtils used to do.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilsBenchmark {
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private Date date;
+    private String dateTime;
+
+    @Setup
+    public void setUp() {
+        date = new Date();
+        dateTime = DateUtils.formatDateTime(date);
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        return DateUtils.formatDateTime(date);
+    }
+
+    @Benchmark
+    public String formatDateTimeWithNewSimpleDateFormat() {
+        return new SimpleDateFormat(DATE_FORMAT).format(date);
+    }
+
+    @Benchmark
+    public Date getAsDateTime() {
+        return DateUtils.getAsDateTime(dateTime);
+    }
+
+    @Benchmark
+    public Date getAsDateTimeWithNewSimpleDateFormat() throws Exception {
+        return new SimpleDateFormat(DATE_FORMAT).parse(dateTime);
+    }
+}
@@ -0,0 +1,55 @@
+package com.storehouse.app.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.storehouse.app.common.json.JsonReader;
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.resource.OrderJsonConverter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the posted orders, the order json converter reads the items out of the parsed json.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonReaderBenchmark {
+    @Param({ "1", "10" })
+    private int numberOfItems;
+
+    private final OrderJsonConverter converter = new OrderJsonConverter();
+    private String orderJson;
+
+    @Setup
+    public void setUp() {
+        orderJson = BenchmarkFixtures.orderJson(numberOfItems);
+    }
+
+    @Benchmark
+    public JsonObject readAsJsonObject() {
+        return JsonReader.readAsJsonObject(orderJson);
+    }
+
+    @Benchmark
+    public Order convertFrom() {
+        return converter.convertFrom(orderJson);
+    }
+}
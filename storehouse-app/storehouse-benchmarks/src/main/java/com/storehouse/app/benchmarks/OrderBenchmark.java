@@ -0,0 +1,49 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.order.model.Order;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The total quantity of an order, computed for each order placed and each order event.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+    @Param({ "1", "10" })
+    private int numberOfItems;
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = new Order();
+        for (int i = 1; i <= numberOfItems; i++) {
+            order.addItem(i);
+        }
+    }
+
+    @Benchmark
+    public int calculateTotalQuantity() {
+        return order.calculateTotalQuantity();
+    }
+}
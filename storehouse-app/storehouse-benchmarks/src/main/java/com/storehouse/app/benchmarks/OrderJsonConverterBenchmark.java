@@ -0,0 +1,65 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.common.json.JsonStreamable;
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.resource.OrderJsonConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of the orders listing and of an order with its items and history.
+ *
+ * Run with -prof gc to see the allocation rate of each benchmark.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderJsonConverterBenchmark {
+    @Param({ "10", "1000" })
+    private int numberOfOrders;
+
+    private final OrderJsonConverter converter = new OrderJsonConverter();
+    private List<Order> orders;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        orders = BenchmarkFixtures.orders(numberOfOrders);
+        order = orders.get(0);
+    }
+
+    @Benchmark
+    public String writeOrdersListing() {
+        return JsonWriter.writeToString((JsonStreamable) writer -> converter.write(orders, writer));
+    }
+
+    @Benchmark
+    public String convertOrdersToJsonElement() {
+        return JsonWriter.writeToString(converter.convertToJsonElement(orders));
+    }
+
+    @Benchmark
+    public String convertOrderToJsonElement() {
+        return JsonWriter.writeToString(converter.convertToJsonElement(order));
+    }
+}
@@ -0,0 +1,64 @@
+package com.storehouse.app.benchmarks;
+
+import com.storehouse.app.common.json.JsonStreamable;
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.resource.UserJsonConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of the users listing, and conversion of a posted user.
+ *
+ * @author ejiafzh
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonConverterBenchmark {
+    @Param({ "10", "1000" })
+    private int numberOfUsers;
+
+    private final UserJsonConverter converter = new UserJsonConverter();
+    private List<User> users;
+    private String userJson;
+
+    @Setup
+    public void setUp() {
+        users = BenchmarkFixtures.customers(numberOfUsers);
+        users.addAll(BenchmarkFixtures.employees(Math.max(1, numberOfUsers / 10)));
+        userJson = BenchmarkFixtures.userJson();
+    }
+
+    @Benchmark
+    public String writeUsersListing() {
+        return JsonWriter.writeToString((JsonStreamable) writer -> converter.write(users, writer));
+    }
+
+    @Benchmark
+    public String convertUsersToJsonElement() {
+        return JsonWriter.writeToString(converter.convertToJsonElement(users));
+    }
+
+    @Benchmark
+    public User convertFrom() {
+        return converter.convertFrom(userJson);
+    }
+}
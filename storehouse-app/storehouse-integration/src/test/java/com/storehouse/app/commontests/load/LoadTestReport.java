@@ -0,0 +1,143 @@
+package com.storehouse.app.commontests.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+
+/**
+ * The latencies of the requests sent by a load test, per endpoint.
+ *
+ * The workers record every request, so the percentiles are exact: a load test sends at most a few
+ * hundred thousand requests, which is nothing to keep in memory.
+ *
+ * @author ejiafzh
+ *
+ */
+@Ignore
+public class LoadTestReport {
+    private final Map<String, EndpointLatencies> endpoints = new TreeMap<>();
+
+    /**
+     * Record a request which has been answered with an expected status.
+     *
+     * @param endpoint
+     *            the name of the endpoint, e.g. "POST orders".
+     * @param latencyNanos
+     *            the time between sending the request and reading the response.
+     */
+    public void recordSuccess(final String endpoint, final long latencyNanos) {
+        record(endpoint, latencyNanos, false);
+    }
+
+    /**
+     * Record a request which failed or has been answered with an unexpected status.
+     *
+     * @param endpoint
+     *            the name of the endpoint.
+     * @param latencyNanos
+     *            the time between sending the request and the failure.
+     */
+    public void recordError(final String endpoint, final long latencyNanos) {
+        record(endpoint, latencyNanos, true);
+    }
+
+    /**
+     * Get the number of the failed requests of all the endpoints.
+     *
+     * @return the number of errors.
+     */
+    public synchronized long getErrorCount() {
+        long errors = 0;
+        for (final EndpointLatencies latencies : endpoints.values()) {
+            errors += latencies.errors;
+        }
+        return errors;
+    }
+
+    /**
+     * Get the number of the requests of all the endpoints.
+     *
+     * @return the number of requests.
+     */
+    public synchronized long getRequestCount() {
+        long requests = 0;
+        for (final EndpointLatencies latencies : endpoints.values()) {
+            requests += latencies.count;
+        }
+        return requests;
+    }
+
+    /**
+     * Format the report, one line per endpoint with its throughput and its latency percentiles in ms.
+     *
+     * @param elapsedNanos
+     *            how long the load has been running.
+     * @return the report.
+     */
+    public synchronized String format(final long elapsedNanos) {
+        final double elapsedSeconds = (double) elapsedNanos / TimeUnit.SECONDS.toNanos(1);
+        final StringBuilder report = new StringBuilder(String.format("%-24s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (final Map.Entry<String, EndpointLatencies> entry : endpoints.entrySet()) {
+            final EndpointLatencies latencies = entry.getValue();
+            final long[] sorted = latencies.sorted();
+            report.append(String.format("%-24s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    latencies.count, latencies.errors, latencies.count / elapsedSeconds,
+                    toMillis(percentile(sorted, 50)), toMillis(percentile(sorted, 90)),
+                    toMillis(percentile(sorted, 99)), toMillis(percentile(sorted, 100))));
+        }
+        report.append(String.format("%-24s %8d %7d %9.1f%n", "total", getRequestCount(), getErrorCount(),
+                getRequestCount() / elapsedSeconds));
+        return report.toString();
+    }
+
+    private synchronized void record(final String endpoint, final long latencyNanos, final boolean error) {
+        EndpointLatencies latencies = endpoints.get(endpoint);
+        if (latencies == null) {
+            latencies = new EndpointLatencies();
+            endpoints.put(endpoint, latencies);
+        }
+        latencies.add(latencyNanos, error);
+    }
+
+    // nearest rank
+    private static long percentile(final long[] sorted, final int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static class EndpointLatencies {
+        private final List<Long> latencies = new ArrayList<>();
+        private long count;
+        private long errors;
+
+        void add(final long latencyNanos, final boolean error) {
+            latencies.add(latencyNanos);
+            count++;
+            if (error) {
+                errors++;
+            }
+        }
+
+        long[] sorted() {
+            final long[] sorted = new long[latencies.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
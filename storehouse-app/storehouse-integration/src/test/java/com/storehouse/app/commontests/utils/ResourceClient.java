@@ -11,6 +11,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -20,11 +21,26 @@ import javax.ws.rs.core.Response;
  */
 public class ResourceClient {
     private final URL urlBase;
+    private final Client client;
     private String resourcePath;
     private User user;
 
     public ResourceClient(final URL urlBase) {
+        this(urlBase, null);
+    }
+
+    /**
+     * A client sending all its requests through the given client, e.g. one with a pool of
+     * connections shared by the threads of a load test, instead of a new client per request.
+     *
+     * @param urlBase
+     *            the url of the deployment.
+     * @param client
+     *            the client to send the requests with.
+     */
+    public ResourceClient(final URL urlBase, final Client client) {
         this.urlBase = urlBase;
+        this.client = client;
     }
 
     public ResourceClient resourcePath(final String resourcePath) {
@@ -62,6 +78,14 @@ public class ResourceClient {
     }
 
     private Builder buildClient() {
+        if (client != null) {
+            // the authenticator goes on the target, the shared client is used by other users as well
+            WebTarget target = client.target(getFullURL(resourcePath));
+            if (user != null) {
+                target = target.register(new HttpBasicAuthenticator(user.getEmail(), user.getPassword()));
+            }
+            return target.request();
+        }
         Client resourceClient = ClientBuilder.newClient();
         if (user != null) {
             resourceClient = resourceClient.register(new HttpBasicAuthenticator(
@@ -0,0 +1,54 @@
+package com.storehouse.app.commontests.utils;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.common.metrics.StatementAccountingFilter;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Ignore;
+
+/**
+ * Assertions on the JDBC statements of a request, from the X-Statement-* headers which the
+ * deployment of the integration tests sends back (storehouse.debug.statements in the web.xml).
+ *
+ * @author ejiafzh
+ *
+ */
+@Ignore
+public class StatementBudget {
+
+    public static int getStatementCount(final Response response) {
+        return getIntHeader(response, StatementAccountingFilter.STATEMENT_COUNT_HEADER);
+    }
+
+    public static int getMaxRepeat(final Response response) {
+        return getIntHeader(response, StatementAccountingFilter.STATEMENT_MAX_REPEAT_HEADER);
+    }
+
+    /**
+     * Assert the request has not executed more statements than its budget.
+     */
+    public static void assertStatementsAtMost(final Response response, final int maxStatements) {
+        final int statementCount = getStatementCount(response);
+        assertThat("statements executed: " + statementCount + ", budget: " + maxStatements,
+                statementCount <= maxStatements, is(equalTo(true)));
+    }
+
+    /**
+     * Assert the request has not executed the same statement maxRepeat times or more, i.e. its
+     * number of statements does not grow with the size of its result.
+     */
+    public static void assertNoNPlusOne(final Response response, final int maxRepeat) {
+        final int repeat = getMaxRepeat(response);
+        assertThat("the same statement has been executed " + repeat + " times", repeat < maxRepeat,
+                is(equalTo(true)));
+    }
+
+    private static int getIntHeader(final Response response, final String header) {
+        final String value = response.getHeaderString(header);
+        assertThat("missing header " + header, value, is(notNullValue()));
+        return Integer.parseInt(value);
+    }
+}
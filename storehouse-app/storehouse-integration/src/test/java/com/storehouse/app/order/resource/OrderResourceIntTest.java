@@ -16,6 +16,7 @@ import com.storehouse.app.commontests.utils.IntegrationTestUtils;
 import com.storehouse.app.commontests.utils.JsonTestUtils;
 import com.storehouse.app.commontests.utils.ResourceClient;
 import com.storehouse.app.commontests.utils.ResourceDefinitions;
+import com.storehouse.app.commontests.utils.StatementBudget;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
 import com.storehouse.app.order.model.OrderHistoryEntry;
@@ -44,6 +45,8 @@ public class OrderResourceIntTest {
 
     private static final String PATH_RESOURCE = ResourceDefinitions.ORDER.getResourceName();
     private static final String USER_PATH_RESOURCE = ResourceDefinitions.USER.getResourceName();
+    // three orders, so a statement executed once per order is executed three times
+    private static final int ORDERS_OF_THE_BUDGET_TESTS = 3;
 
     /**
      * ShrinkWrap is used to create the WebArchive file.
@@ -175,6 +178,27 @@ public class OrderResourceIntTest {
         findOrderAndAssertResposneWithOrder(orderId, expectedOrder);
     }
 
+    @Test
+    @RunAsClient
+    public void addStatusesDeliveredAsEmployee() {
+        resourceClient.user(johnDoe());
+        final Order order = loadOrderCustomerIdFromRest(johnDoe(), orderReservedJohnDoe());
+        final Long orderId = addOrderAndGetId(order);
+
+        final Response response = resourceClient.user(admin()).resourcePath(PATH_RESOURCE + "/status")
+                .postWithContent("[{\"id\": " + orderId + ", \"status\": \"DELIVERED\"},"
+                        + " {\"id\": 999, \"status\": \"DELIVERED\"}]");
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        final JsonArray results = IntegrationTestUtils.assertJsonHasTheNumberofElementsAndReturnTheEntries(response,
+                2, 2);
+        assertThat(results.get(0).getAsJsonObject().get("result").getAsString(), is(equalTo("UPDATED")));
+        assertThat(results.get(1).getAsJsonObject().get("result").getAsString(), is(equalTo("NOT_FOUND")));
+
+        final Order expectedOrder = orderReservedJohnDoe();
+        expectedOrder.addHistoryEntry(OrderStatus.DELIVERED);
+        findOrderAndAssertResposneWithOrder(orderId, expectedOrder);
+    }
+
     private Order loadOrderCustomerIdFromRest(final User user, final Order order) {
         final Response response = resourceClient.resourcePath(USER_PATH_RESOURCE + "/authenticate").postWithContent(
                 getJsonWithEmailAndPassword(user.getEmail(), user.getPassword()));
@@ -203,9 +227,7 @@ public class OrderResourceIntTest {
         }
     }
 
-    @Test
-    @RunAsClient
-    public void findByFilterPaginationByDates() {
+    private void addReservedOrdersOfThreeCustomers() {
         resourceClient.user(johnDoe());
         resourceClient.resourcePath("DB/" + PATH_RESOURCE + "/john").postWithContent("");
 
@@ -216,6 +238,12 @@ public class OrderResourceIntTest {
         resourceClient.resourcePath("DB/" + PATH_RESOURCE + "/donald").postWithContent("");
 
         resourceClient.user(admin());
+    }
+
+    @Test
+    @RunAsClient
+    public void findByFilterPaginationByDates() {
+        addReservedOrdersOfThreeCustomers();
         final Response response = resourceClient.resourcePath(
                 PATH_RESOURCE + "?page=0&per_page=3&startDate=2017-10-01T10:00:00Z&endDate=2017-11-07T10:00:00Z").get();
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
@@ -223,6 +251,54 @@ public class OrderResourceIntTest {
                 OrderStatus.RESERVED);
     }
 
+    @Test
+    @RunAsClient
+    public void findByFilterWithinItsStatementBudget() {
+        addReservedOrdersOfThreeCustomers();
+
+        final Response response = resourceClient.resourcePath(PATH_RESOURCE + "?page=0&per_page=10").get();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        // the page with the customers, then the count
+        StatementBudget.assertStatementsAtMost(response, 2);
+        StatementBudget.assertNoNPlusOne(response, ORDERS_OF_THE_BUDGET_TESTS);
+    }
+
+    @Test
+    @RunAsClient
+    public void findByFilterWithDetailWithinItsStatementBudget() {
+        addReservedOrdersOfThreeCustomers();
+
+        final Response response = resourceClient.resourcePath(PATH_RESOURCE + "?page=0&per_page=10&fetch=detail")
+                .get();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        // the page with the customers, the count, then the items and the history of the whole page
+        StatementBudget.assertStatementsAtMost(response, 3);
+        StatementBudget.assertNoNPlusOne(response, ORDERS_OF_THE_BUDGET_TESTS);
+    }
+
+    @Test
+    @RunAsClient
+    public void addStatusesWithinTheirStatementBudget() {
+        addReservedOrdersOfThreeCustomers();
+        final JsonArray orders = IntegrationTestUtils.assertJsonHasTheNumberofElementsAndReturnTheEntries(
+                resourceClient.resourcePath(PATH_RESOURCE + "?page=0&per_page=10").get(),
+                ORDERS_OF_THE_BUDGET_TESTS, ORDERS_OF_THE_BUDGET_TESTS);
+        final JsonArray newStatuses = new JsonArray();
+        for (int i = 0; i < orders.size(); i++) {
+            final JsonObject newStatus = new JsonObject();
+            newStatus.addProperty("id", orders.get(i).getAsJsonObject().get("id").getAsLong());
+            newStatus.addProperty("status", OrderStatus.DELIVERED.name());
+            newStatuses.add(newStatus);
+        }
+
+        final Response response = resourceClient.resourcePath(PATH_RESOURCE + "/status")
+                .postWithContent(JsonWriter.writeToString(newStatuses));
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        // the orders, one update of all of them, then one batch of history entries
+        StatementBudget.assertStatementsAtMost(response, 3);
+        StatementBudget.assertNoNPlusOne(response, ORDERS_OF_THE_BUDGET_TESTS);
+    }
+
     @Test
     @RunAsClient
     public void getAllOrderStatus() {
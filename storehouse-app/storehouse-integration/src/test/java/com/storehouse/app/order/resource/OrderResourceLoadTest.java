@@ -0,0 +1,215 @@
+package com.storehouse.app.order.resource;
+
+import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.common.model.HttpCode;
+import com.storehouse.app.commontests.load.LoadTestReport;
+import com.storehouse.app.commontests.utils.ArquillianTestUtils;
+import com.storehouse.app.commontests.utils.IntegrationTestUtils;
+import com.storehouse.app.commontests.utils.ResourceClient;
+import com.storehouse.app.commontests.utils.ResourceDefinitions;
+import com.storehouse.app.user.model.Customer;
+import com.storehouse.app.user.model.User;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Response;
+
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load test of the order REST API, against the same managed WildFly and in-memory database as the
+ * integration tests.
+ *
+ * It seeds the customers and one order each, then the workers place, poll the stats of, cancel and
+ * consume orders concurrently for a while, and the latency percentiles and the throughput of every
+ * endpoint are logged at the end. The name does not end with IntTest so it is not run with the
+ * integration tests, run it on its own with:
+ *
+ * mvn clean install -PintegrationTests-wildfly -Dtest=OrderResourceLoadTest -DfailIfNoTests=false
+ *
+ * and tune it with -Dstorehouse.load.customers, -Dstorehouse.load.threads and
+ * -Dstorehouse.load.seconds.
+ *
+ * @author ejiafzh
+ *
+ */
+@RunWith(Arquillian.class)
+public class OrderResourceLoadTest {
+    private static final String PATH_RESOURCE = ResourceDefinitions.ORDER.getResourceName();
+    private static final String USER_PATH_RESOURCE = ResourceDefinitions.USER.getResourceName();
+
+    private static final int CUSTOMERS = Integer.getInteger("storehouse.load.customers", 200);
+    private static final int THREADS = Integer.getInteger("storehouse.load.threads", 8);
+    private static final int SECONDS = Integer.getInteger("storehouse.load.seconds", 30);
+    private static final String PASSWORD = "12345678";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @ArquillianResource
+    private URL url;
+
+    private Client client;
+    private final List<Customer> customers = new ArrayList<>();
+
+    @Deployment
+    public static WebArchive createDeployment() {
+        return ArquillianTestUtils.createDeployment();
+    }
+
+    @Before
+    public void initTestCase() {
+        // one pool of connections for all the workers, as a real client would do
+        client = new ResteasyClientBuilder().connectionPoolSize(THREADS * 2).build();
+
+        final ResourceClient resourceClient = new ResourceClient(url, client);
+        resourceClient.resourcePath("DB").delete();
+        // add all the users of the tests, the admin consumes the orders
+        resourceClient.resourcePath("DB/" + USER_PATH_RESOURCE).postWithContent("").close();
+
+        for (int i = 0; i < CUSTOMERS; i++) {
+            final Customer customer = new Customer();
+            customer.setName("Load Customer " + i);
+            customer.setEmail("load.customer" + i + "@domain.com");
+            customer.setPassword(PASSWORD);
+            customer.setId(IntegrationTestUtils.addElementWithContentAndGetId(resourceClient.user(null),
+                    USER_PATH_RESOURCE, getJsonForCustomer(customer)));
+            customers.add(customer);
+
+            IntegrationTestUtils.addElementWithContentAndGetId(resourceClient.user(customer), PATH_RESOURCE,
+                    getJsonForOrder(customer.getId(), 1 + i % 10));
+        }
+    }
+
+    @After
+    public void closeClient() {
+        client.close();
+    }
+
+    @Test
+    @RunAsClient
+    public void placePollCancelAndConsumeOrdersConcurrently() throws Exception {
+        final LoadTestReport report = new LoadTestReport();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(SECONDS);
+
+        final List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final long seed = i;
+            workers.add(executor.submit(() -> runWorker(new Random(seed), end, report)));
+        }
+        for (final Future<?> worker : workers) {
+            worker.get();
+        }
+        final long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        logger.info("Load of {} customers with {} threads for {} s:{}{}", CUSTOMERS, THREADS, SECONDS,
+                System.lineSeparator(), report.format(elapsed));
+        assertThat(report.getRequestCount(), is(not(equalTo(0L))));
+        assertThat(report.getErrorCount(), is(equalTo(0L)));
+    }
+
+    private void runWorker(final Random random, final long end, final LoadTestReport report) {
+        // a client per worker, the fluent client keeps the path and the user of the request
+        final ResourceClient resourceClient = new ResourceClient(url, client);
+        while (System.nanoTime() < end) {
+            final Customer customer = customers.get(random.nextInt(customers.size()));
+            final int operation = random.nextInt(100);
+            if (operation < 35) {
+                send(report, "POST orders", () -> resourceClient.user(customer).resourcePath(PATH_RESOURCE)
+                        .postWithContent(getJsonForOrder(customer.getId(), 1 + random.nextInt(10))));
+            } else if (operation < 75) {
+                send(report, "GET orders/stats/{id}", () -> resourceClient.user(customer)
+                        .resourcePath(PATH_RESOURCE + "/stats/" + customer.getId()).get());
+            } else if (operation < 90) {
+                send(report, "GET orders/{id}/cancel", () -> resourceClient.user(customer)
+                        .resourcePath(PATH_RESOURCE + "/" + customer.getId() + "/cancel").get());
+            } else if (operation < 95) {
+                send(report, "GET orders/stats/all", () -> resourceClient.user(admin())
+                        .resourcePath(PATH_RESOURCE + "/stats/all").get());
+            } else {
+                send(report, "GET orders/consume", () -> resourceClient.user(admin())
+                        .resourcePath(PATH_RESOURCE + "/consume").get());
+            }
+        }
+    }
+
+    private void send(final LoadTestReport report, final String endpoint, final Request request) {
+        final long start = System.nanoTime();
+        try {
+            final Response response = request.send();
+            try {
+                // read the whole body, the latency is the one seen by the client
+                response.readEntity(String.class);
+            } finally {
+                response.close();
+            }
+            if (isExpectedStatus(response.getStatus())) {
+                report.recordSuccess(endpoint, System.nanoTime() - start);
+            } else {
+                logger.error("Unexpected status {} for {}", response.getStatus(), endpoint);
+                report.recordError(endpoint, System.nanoTime() - start);
+            }
+        } catch (final RuntimeException ex) {
+            logger.error("Request failed for " + endpoint, ex);
+            report.recordError(endpoint, System.nanoTime() - start);
+        }
+    }
+
+    // the customers race each other, e.g. an order already exists or it has just been consumed
+    private static boolean isExpectedStatus(final int status) {
+        return status == HttpCode.OK.getCode() || status == HttpCode.CREATED.getCode()
+                || status == HttpCode.NOT_FOUND.getCode() || status == HttpCode.VALIDATION_ERROR.getCode();
+    }
+
+    private static String getJsonForCustomer(final User customer) {
+        final JsonObject customerJson = new JsonObject();
+        customerJson.addProperty("name", customer.getName());
+        customerJson.addProperty("email", customer.getEmail());
+        customerJson.addProperty("password", customer.getPassword());
+        customerJson.addProperty("type", customer.getUserType().toString());
+        return JsonWriter.writeToString(customerJson);
+    }
+
+    private static String getJsonForOrder(final Long customerId, final int quantity) {
+        final JsonObject orderJson = new JsonObject();
+        orderJson.addProperty("clientId", customerId);
+        final JsonArray itemsJson = new JsonArray();
+        final JsonObject itemJson = new JsonObject();
+        itemJson.addProperty("quantity", quantity);
+        itemsJson.add(itemJson);
+        orderJson.add("items", itemsJson);
+        return JsonWriter.writeToString(orderJson);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        Response send();
+    }
+}
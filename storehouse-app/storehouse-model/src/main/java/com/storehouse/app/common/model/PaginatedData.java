@@ -1,5 +1,7 @@
 package com.storehouse.app.common.model;
 
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
+
 import java.util.List;
 
 /**
@@ -14,8 +16,12 @@ import java.util.List;
  * @param <T>
  */
 public class PaginatedData<T> {
+    public static final int UNKNOWN_NUMBER_OF_ROWS = -1;
+
     private final int numberOfRows; // represents the real count records in the database.
     private final List<T> rows; // presents the returned paginated records
+    private final String nextCursor; // keyset pagination cursor of the next page, null if none
+    private final CountMode countMode; // which kind of count numberOfRows holds
 
     /**
      * Constructs the paginated data object.
@@ -26,8 +32,41 @@ public class PaginatedData<T> {
      *            the rows returned.
      */
     public PaginatedData(final int numberOfRows, final List<T> rows) {
+        this(numberOfRows, rows, null);
+    }
+
+    /**
+     * Constructs the paginated data object of keyset pagination.
+     *
+     * @param numberOfRows
+     *            number of the rows returned.
+     * @param rows
+     *            the rows returned.
+     * @param nextCursor
+     *            the cursor of the next page, null if this is the last page.
+     */
+    public PaginatedData(final int numberOfRows, final List<T> rows, final String nextCursor) {
+        this(numberOfRows, CountMode.EXACT, rows, nextCursor);
+    }
+
+    /**
+     * Constructs the paginated data object with the kind of count it holds.
+     *
+     * @param numberOfRows
+     *            number of the rows, UNKNOWN_NUMBER_OF_ROWS if the rows were not counted.
+     * @param countMode
+     *            which kind of count the number of rows is.
+     * @param rows
+     *            the rows returned.
+     * @param nextCursor
+     *            the cursor of the next page, null if this is the last page or offset pagination is used.
+     */
+    public PaginatedData(final int numberOfRows, final CountMode countMode, final List<T> rows,
+            final String nextCursor) {
         this.numberOfRows = numberOfRows;
+        this.countMode = countMode;
         this.rows = rows;
+        this.nextCursor = nextCursor;
     }
 
     /**
@@ -39,6 +78,16 @@ public class PaginatedData<T> {
         return numberOfRows;
     }
 
+    /**
+     * Get which kind of count the number of rows is: EXACT, ESTIMATED (it could be slightly out of
+     * date) or NONE (the rows were not counted and the number of rows is UNKNOWN_NUMBER_OF_ROWS).
+     *
+     * @return which kind of count the number of rows is.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
     /**
      * Get the actual rows returned as paginated data.
      * 
@@ -48,6 +97,15 @@ public class PaginatedData<T> {
         return rows;
     }
 
+    /**
+     * Get the keyset pagination cursor of the next page.
+     *
+     * @return the cursor of the next page, null if there is none or if offset pagination is used.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     /**
      * Get a particular row data based on the index.
      * 
@@ -67,6 +125,7 @@ public class PaginatedData<T> {
      */
     @Override
     public String toString() {
-        return "PaginatedData [numberOfRows=" + numberOfRows + ", rows=" + rows + "]";
+        return "PaginatedData [numberOfRows=" + numberOfRows + ", rows=" + rows + ", nextCursor=" + nextCursor
+                + ", countMode=" + countMode + "]";
     }
 }
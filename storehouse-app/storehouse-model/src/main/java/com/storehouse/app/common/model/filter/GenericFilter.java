@@ -8,6 +8,22 @@ package com.storehouse.app.common.model.filter;
  */
 public class GenericFilter {
     private PaginationData paginationData;
+    private CountMode countMode = CountMode.EXACT;
+
+    /**
+     * How the total number of rows is counted along with a page.
+     *
+     * @author ejiafzh
+     *
+     */
+    public enum CountMode {
+        /** the rows are not counted, e.g. the client only follows the next pages. */
+        NONE,
+        /** the rows are counted with the page. */
+        EXACT,
+        /** a recent count of the same filter is reused, the rows are counted if there is none. */
+        ESTIMATED;
+    }
 
     /**
      * Constructor with no arguments.
@@ -44,6 +60,25 @@ public class GenericFilter {
         this.paginationData = paginationData;
     }
 
+    /**
+     * Get how the total number of rows is counted, EXACT by default.
+     *
+     * @return how the total number of rows is counted.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Sets how the total number of rows is counted.
+     *
+     * @param countMode
+     *            how the total number of rows is counted.
+     */
+    public void setCountMode(final CountMode countMode) {
+        this.countMode = countMode;
+    }
+
     /**
      * Check whether or not this filter has pagination data.
      * 
@@ -67,6 +102,6 @@ public class GenericFilter {
      */
     @Override
     public String toString() {
-        return "GenericFilter [paginationData=" + paginationData + "]";
+        return "GenericFilter [paginationData=" + paginationData + ", countMode=" + countMode + "]";
     }
 }
@@ -0,0 +1,119 @@
+package com.storehouse.app.common.model.filter;
+
+import com.storehouse.app.common.exception.FieldNotValidException;
+import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of a page in keyset (seek) pagination: the sort field value and the ID of the
+ * last row of the previous page. The next page starts right after this row, so the database
+ * does not need to scan and discard the rows of the previous pages.
+ *
+ * The cursor is given to the client as an opaque URL-safe string, it also records the sort it
+ * was created for, so it cannot be used with another sort.
+ *
+ * @author ejiafzh
+ *
+ */
+public class KeysetCursor {
+    private static final String SEPARATOR = ":";
+
+    private final String sortField;
+    private final OrderMode orderMode;
+    private final Long id;
+    private final String value;
+
+    /**
+     * Constructs a cursor after the given row.
+     *
+     * @param sortField
+     *            the sort field.
+     * @param orderMode
+     *            the sort order mode.
+     * @param id
+     *            the ID of the last row.
+     * @param value
+     *            the sort field value of the last row, encoded as a string.
+     */
+    public KeysetCursor(final String sortField, final OrderMode orderMode, final Long id, final String value) {
+        this.sortField = sortField;
+        this.orderMode = orderMode;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Encode the cursor for the client.
+     *
+     * @return the encoded cursor.
+     */
+    public String encode() {
+        final String cursor = sortField + SEPARATOR + orderMode.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor given by the client.
+     *
+     * @param encodedCursor
+     *            the encoded cursor.
+     * @return the decoded cursor.
+     * @throws FieldNotValidException
+     *             if the cursor is not valid.
+     */
+    public static KeysetCursor decode(final String encodedCursor) {
+        try {
+            final String cursor = new String(Base64.getUrlDecoder().decode(encodedCursor), StandardCharsets.UTF_8);
+            // the value is last, it can contain the separator
+            final String[] parts = cursor.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Missing cursor parts");
+            }
+            return new KeysetCursor(parts[0], OrderMode.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (final IllegalArgumentException ex) {
+            throw new FieldNotValidException("cursor", encodedCursor, "The cursor is not valid");
+        }
+    }
+
+    /**
+     * Check whether or not the cursor was created for the given sort.
+     *
+     * @param sortField
+     *            the sort field.
+     * @param orderMode
+     *            the sort order mode.
+     * @return true if it was, false otherwise.
+     */
+    public boolean isForSort(final String sortField, final OrderMode orderMode) {
+        return this.sortField.equals(sortField) && this.orderMode == orderMode;
+    }
+
+    /**
+     * Get the ID of the last row.
+     *
+     * @return the ID of the last row.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Get the sort field value of the last row, encoded as a string.
+     *
+     * @return the sort field value of the last row.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "KeysetCursor [sortField=" + sortField + ", orderMode=" + orderMode + ", id=" + id + ", value="
+                + value + "]";
+    }
+}
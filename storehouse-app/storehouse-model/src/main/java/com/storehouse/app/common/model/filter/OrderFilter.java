@@ -1,5 +1,6 @@
 package com.storehouse.app.common.model.filter;
 
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
 
 import java.util.Date;
@@ -15,6 +16,7 @@ public class OrderFilter extends GenericFilter {
     private Date endDate;
     private Long customerId;
     private OrderStatus status;
+    private FetchPlan fetchPlan = FetchPlan.SUMMARY;
 
     /**
      * Get the start date of this filter.
@@ -92,13 +94,32 @@ public class OrderFilter extends GenericFilter {
         this.status = status;
     }
 
+    /**
+     * Get what is loaded with the orders found, SUMMARY by default.
+     *
+     * @return what is loaded with the orders found.
+     */
+    public FetchPlan getFetchPlan() {
+        return fetchPlan;
+    }
+
+    /**
+     * Sets what is loaded with the orders found.
+     *
+     * @param fetchPlan
+     *            what is loaded with the orders found.
+     */
+    public void setFetchPlan(final FetchPlan fetchPlan) {
+        this.fetchPlan = fetchPlan;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String toString() {
         return "OrderFilter [startDate=" + startDate + ", endDate=" + endDate + ", customerId=" + customerId
-                + ", status=" + status + ", toString()=" + super.toString() + "]";
+                + ", status=" + status + ", fetchPlan=" + fetchPlan + ", toString()=" + super.toString() + "]";
     }
 
 }
@@ -12,6 +12,7 @@ public class PaginationData {
     private final int maxResults;
     private final String orderField;
     private final OrderMode orderMode;
+    private final String cursor; // keyset pagination cursor, null for offset pagination
 
     /**
      * Order mode which could be either ascending or descending.
@@ -37,10 +38,30 @@ public class PaginationData {
      */
     public PaginationData(final int firstResult, final int maxResults, final String orderField,
             final OrderMode orderMode) {
+        this(firstResult, maxResults, orderField, orderMode, null);
+    }
+
+    /**
+     * Constructs a PaginationData based on a number of parameters, with a keyset pagination cursor.
+     *
+     * @param firstResult
+     *            the first result index, not used with a cursor.
+     * @param maxResults
+     *            maximum results.
+     * @param orderField
+     *            order field
+     * @param orderMode
+     *            order mode.
+     * @param cursor
+     *            the keyset pagination cursor, empty for the first page and null for offset pagination.
+     */
+    public PaginationData(final int firstResult, final int maxResults, final String orderField,
+            final OrderMode orderMode, final String cursor) {
         this.firstResult = firstResult;
         this.maxResults = maxResults;
         this.orderField = orderField;
         this.orderMode = orderMode;
+        this.cursor = cursor;
     }
 
     /**
@@ -79,4 +100,31 @@ public class PaginationData {
         return orderMode;
     }
 
+    /**
+     * Gets the keyset pagination cursor.
+     *
+     * @return the keyset pagination cursor, empty for the first page and null for offset pagination.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Check whether or not keyset pagination is used instead of offset pagination.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isKeysetPagination() {
+        return cursor != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "PaginationData [firstResult=" + firstResult + ", maxResults=" + maxResults + ", orderField="
+                + orderField + ", orderMode=" + orderMode + ", cursor=" + cursor + "]";
+    }
+
 }
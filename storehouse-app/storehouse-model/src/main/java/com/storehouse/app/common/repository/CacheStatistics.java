@@ -0,0 +1,129 @@
+package com.storehouse.app.common.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * The statistics of the second-level cache of the persistence unit by region, so the regions can be
+ * sized: a region with many misses and as many entries as its maximum is too small.
+ *
+ * The statistics are gathered by the persistence provider when hibernate.generate_statistics is
+ * set, there is no region otherwise.
+ *
+ * @author ejiafzh
+ *
+ */
+@Stateless
+public class CacheStatistics {
+
+    @PersistenceContext
+    EntityManager em;
+
+    /**
+     * Get the statistics of every region of the second-level cache, the entities, the collections
+     * and the query cache.
+     *
+     * @return the statistics by region, sorted by region name.
+     */
+    public List<RegionStatistics> getRegionStatistics() {
+        return ProviderStatistics.getRegionStatistics(
+                em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics());
+    }
+
+    // the statistics of the provider are read apart, the signatures of the bean do not use the
+    // Hibernate classes so its clients do not need them
+    static final class ProviderStatistics {
+        private ProviderStatistics() {
+        }
+
+        static List<RegionStatistics> getRegionStatistics(final Statistics statistics) {
+            final List<RegionStatistics> regions = new ArrayList<>();
+            if (!statistics.isStatisticsEnabled()) {
+                return regions;
+            }
+            final String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+            Arrays.sort(regionNames);
+            for (final String regionName : regionNames) {
+                final SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+                if (region != null) {
+                    regions.add(new RegionStatistics(regionName, region.getHitCount(), region.getMissCount(),
+                            region.getPutCount(), region.getElementCountInMemory()));
+                }
+            }
+            return regions;
+        }
+    }
+
+    /**
+     * The statistics of a region of the second-level cache.
+     *
+     * @author ejiafzh
+     *
+     */
+    public static final class RegionStatistics {
+        private final String name;
+        private final long hitCount;
+        private final long missCount;
+        private final long putCount;
+        private final long entryCount;
+
+        public RegionStatistics(final String name, final long hitCount, final long missCount, final long putCount,
+                final long entryCount) {
+            this.name = name;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.putCount = putCount;
+            this.entryCount = entryCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getPutCount() {
+            return putCount;
+        }
+
+        /**
+         * Get the number of entries of the region on this node.
+         *
+         * @return the number of entries.
+         */
+        public long getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Get the ratio of the lookups found in the region.
+         *
+         * @return the hit rate between 0 and 1, 0 if there was no lookup.
+         */
+        public double getHitRate() {
+            final long lookups = hitCount + missCount;
+            return lookups == 0 ? 0 : (double) hitCount / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "RegionStatistics [name=" + name + ", hitCount=" + hitCount + ", missCount=" + missCount
+                    + ", putCount=" + putCount + ", entryCount=" + entryCount + "]";
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.storehouse.app.common.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A short-lived cache of the row counts of the paginated queries, keyed by the filter predicate,
+ * i.e. the entity, the where clause and the query parameters.
+ *
+ * It serves the ESTIMATED counts: a client paging through a filtered result set gets the count
+ * of its first page again instead of counting the rows for every page. A cached count is at most
+ * the time to live old, the counts of an entity are dropped when the entity is written on this node.
+ *
+ * @author ejiafzh
+ *
+ */
+class CountCache {
+    static final long DEFAULT_TIME_TO_LIVE_MS = 30000L;
+
+    // the expired entries are dropped first, then the oldest ones down to the low water mark
+    static final int MAX_ENTRIES = 1000;
+    private static final int ENTRIES_AFTER_EVICTION = MAX_ENTRIES * 3 / 4;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final long timeToLiveMillis;
+
+    /**
+     * Constructs a count cache.
+     *
+     * @param timeToLiveMillis
+     *            how long a count is served from the cache, in milliseconds.
+     */
+    CountCache(final long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Get the cached count of the filter predicate.
+     *
+     * @param entityName
+     *            the entity name.
+     * @param whereClause
+     *            the where clause.
+     * @param queryParameters
+     *            the query parameters.
+     * @return the cached count, null if there is none or if it has expired.
+     */
+    Integer get(final String entityName, final String whereClause, final Map<String, Object> queryParameters) {
+        final CachedCount cachedCount = counts.get(createKey(entityName, whereClause, queryParameters));
+        if (cachedCount == null || cachedCount.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return cachedCount.count;
+    }
+
+    /**
+     * Cache the count of the filter predicate.
+     *
+     * @param entityName
+     *            the entity name.
+     * @param whereClause
+     *            the where clause.
+     * @param queryParameters
+     *            the query parameters.
+     * @param count
+     *            the count to cache.
+     */
+    void put(final String entityName, final String whereClause, final Map<String, Object> queryParameters,
+            final int count) {
+        if (counts.size() >= MAX_ENTRIES) {
+            evictExpired();
+            if (counts.size() >= MAX_ENTRIES) {
+                evictOldest();
+            }
+        }
+        counts.put(createKey(entityName, whereClause, queryParameters),
+                new CachedCount(entityName, count, System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    /**
+     * Drop the cached counts of an entity, e.g. when it has been written.
+     *
+     * @param entityName
+     *            the entity name.
+     */
+    void invalidate(final String entityName) {
+        counts.values().removeIf(cachedCount -> cachedCount.entityName.equals(entityName));
+    }
+
+    /**
+     * Get the number of cached counts, including the expired ones which are not evicted yet.
+     *
+     * @return the number of cached counts.
+     */
+    int size() {
+        return counts.size();
+    }
+
+    /**
+     * Drop all the cached counts.
+     */
+    void clear() {
+        counts.clear();
+    }
+
+    private void evictExpired() {
+        final long now = System.currentTimeMillis();
+        for (final Iterator<CachedCount> it = counts.values().iterator(); it.hasNext();) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    // all the counts have the same time to live, the oldest expire first
+    private void evictOldest() {
+        final List<Map.Entry<String, CachedCount>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().expiresAt));
+        for (int i = 0; i < entries.size() - ENTRIES_AFTER_EVICTION; i++) {
+            counts.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    // the parameters are sorted by name so the same predicate always gives the same key
+    private String createKey(final String entityName, final String whereClause,
+            final Map<String, Object> queryParameters) {
+        return entityName + "|" + whereClause + "|" + new TreeMap<>(queryParameters);
+    }
+
+    private static class CachedCount {
+        private final String entityName;
+        private final int count;
+        private final long expiresAt;
+
+        CachedCount(final String entityName, final int count, final long expiresAt) {
+            this.entityName = entityName;
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+    }
+}
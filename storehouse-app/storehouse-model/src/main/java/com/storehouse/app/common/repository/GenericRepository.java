@@ -1,15 +1,31 @@
 package com.storehouse.app.common.repository;
 
+import com.storehouse.app.common.exception.FieldNotValidException;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.GenericFilter;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
+import com.storehouse.app.common.model.filter.KeysetCursor;
+import com.storehouse.app.common.model.filter.PaginationData;
 import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
+import com.storehouse.app.common.utils.TransactionUtils;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 /**
  * Abstract class of a generic repository class to interact with the database.
@@ -20,11 +36,36 @@ import javax.persistence.Query;
  *            the generic entity class.
  */
 public abstract class GenericRepository<T> {
+    /**
+     * The JPA hint to load the attributes of an entity graph along with the entities, the other
+     * attributes are loaded as they are mapped.
+     */
+    protected static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
+    /**
+     * The Hibernate hint to keep the result of a query in the query cache, when the persistence
+     * unit has one. The result is dropped as soon as a table of the query is written.
+     */
+    protected static final String CACHEABLE_HINT = "org.hibernate.cacheable";
+
+    // shared by all the repository instances, the repositories are pooled stateless beans
+    private static final CountCache COUNT_CACHE = new CountCache(CountCache.DEFAULT_TIME_TO_LIVE_MS);
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
 
     protected abstract Class<T> getPersistentClass();
 
     protected abstract EntityManager getEntityManager();
 
+    /**
+     * Get the fields the entities can be sorted by, the sort fields given by the clients are
+     * checked against it.
+     *
+     * @return the sortable fields.
+     */
+    protected abstract Set<String> getSortableFields();
+
     /**
      * Persist a new entity into the database.
      *
@@ -34,6 +75,7 @@ public abstract class GenericRepository<T> {
      */
     public T add(final T entity) {
         getEntityManager().persist(entity);
+        invalidateCounts();
         return entity;
     }
 
@@ -60,7 +102,20 @@ public abstract class GenericRepository<T> {
      * @return an updated entity from the database
      */
     public T update(final T entity) {
-        return getEntityManager().merge(entity);
+        final T updated = getEntityManager().merge(entity);
+        invalidateCounts();
+        return updated;
+    }
+
+    /**
+     * Drop the cached counts of the entity, they are dropped again once the transaction is
+     * completed as a count made by another transaction in the meantime could not see the write.
+     * The bulk updates must call it, add and update do it already.
+     */
+    protected void invalidateCounts() {
+        final String className = getPersistentClass().getSimpleName();
+        COUNT_CACHE.invalidate(className);
+        TransactionUtils.runAfterCompletion(transactionRegistry, () -> COUNT_CACHE.invalidate(className));
     }
 
     /**
@@ -70,7 +125,9 @@ public abstract class GenericRepository<T> {
      */
     @SuppressWarnings("unchecked")
     public List<T> findAll() {
-        return getEntityManager().createQuery("Select e from " + getPersistentClass().getSimpleName() + " e")
+        final String className = getPersistentClass().getSimpleName();
+        return getEntityManager()
+                .createQuery(JpqlCache.get("findAll|" + className, () -> "Select e from " + className + " e"))
                 .getResultList();
     }
 
@@ -81,11 +138,16 @@ public abstract class GenericRepository<T> {
      * @param orderField
      *            field to order by for the list
      * @return a sorted list of the found entities.
+     * @throws FieldNotValidException
+     *             if the entities cannot be sorted by the field.
      */
     @SuppressWarnings("unchecked")
     public List<T> findAll(final String orderField) {
+        final String className = getPersistentClass().getSimpleName();
+        checkSortField(orderField);
         return getEntityManager()
-                .createQuery("Select e from " + getPersistentClass().getSimpleName() + " e Order by e." + orderField)
+                .createQuery(JpqlCache.get("findAll|" + className + "|" + orderField,
+                        () -> "Select e from " + className + " e Order by e." + orderField))
                 .getResultList();
     }
 
@@ -97,8 +159,10 @@ public abstract class GenericRepository<T> {
      * @return true if exists false otherwise.
      */
     public boolean existsById(final Long id) {
+        final String className = getPersistentClass().getSimpleName();
         return getEntityManager()
-                .createQuery("Select 1 from " + getPersistentClass().getSimpleName() + " e where e.id = :id")
+                .createQuery(JpqlCache.get("existsById|" + className,
+                        () -> "Select 1 from " + className + " e where e.id = :id"))
                 .setParameter("id", id).setMaxResults(1).getResultList().size() > 0;
     }
 
@@ -112,16 +176,23 @@ public abstract class GenericRepository<T> {
      * @param propertyValue
      *            the value of the property.
      * @return true if exists false otherwise.
+     * @throws FieldNotValidException
+     *             if the property is not a basic attribute of the entity.
      */
     public boolean propertyAlreadyExists(final Long id, final String propertyName, final String propertyValue) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append("Select 1 from " + getPersistentClass().getSimpleName() + " e where e." + propertyName
-                + " = :propertyValue");
-        if (id != null) {
-            sb.append(" And e.id != :id");
-        }
+        final String className = getPersistentClass().getSimpleName();
+        getBasicAttribute(propertyName, "propertyName");
+        final String shape = "propertyAlreadyExists|" + className + "|" + propertyName + "|" + (id != null);
+        final String jpql = JpqlCache.get(shape, () -> {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Select 1 from " + className + " e where e." + propertyName + " = :propertyValue");
+            if (id != null) {
+                sb.append(" And e.id != :id");
+            }
+            return sb.toString();
+        });
 
-        final Query query = getEntityManager().createQuery(sb.toString());
+        final Query query = getEntityManager().createQuery(jpql);
         query.setParameter("propertyValue", propertyValue);
         if (id != null) {
             query.setParameter("id", id);
@@ -129,8 +200,25 @@ public abstract class GenericRepository<T> {
         return query.setMaxResults(1).getResultList().size() > 0;
     }
 
+    /**
+     * Append a predicate to a where clause, the clause is started by the first predicate.
+     * There is no always true predicate to start with, it would steer the databases which take
+     * it as an index condition (e.g. HSQL with the primary key) away from the listing indexes.
+     *
+     * @param whereClause
+     *            the where clause being built, empty if there is no predicate yet.
+     * @param predicate
+     *            the predicate to append.
+     */
+    protected static void appendPredicate(final StringBuilder whereClause, final String predicate) {
+        whereClause.append(whereClause.length() == 0 ? "WHERE " : " And ").append(predicate);
+    }
+
     /**
      * Find the PaginatedData based on a number of parameters.
+     * If the pagination data has a cursor, the keyset pagination is used instead of the offset one.
+     * The where clause must be built from fixed fragments and only use named parameters, so that the
+     * query string only depends on which filters are set.
      * 
      * @param whereClause
      *            where clause in the SQL
@@ -141,30 +229,220 @@ public abstract class GenericRepository<T> {
      * @param defaultSort
      *            default sort field
      * @return PaginatedData, null if none
+     * @throws FieldNotValidException
+     *             if the entities cannot be sorted by the sort field of the filter.
      */
     protected PaginatedData<T> findByParameters(final String whereClause, final GenericFilter filter,
             final Map<String, Object> queryParameters, final String defaultSort) {
+        if (filter.hasPaginationData() && filter.getPaginationData().isKeysetPagination()) {
+            return findByParametersWithKeyset(whereClause, filter, queryParameters, defaultSort);
+        }
         final String className = getPersistentClass().getSimpleName();
-        final StringBuilder sortClause = populateSortClause(filter, defaultSort);
+        final String sortClause = populateSortClause(filter, defaultSort);
 
         final Query queryResults = getEntityManager()
-                .createQuery("Select a From " + className + " a " + whereClause + " " + sortClause.toString());
+                .createQuery(JpqlCache.get("select|" + className + "|" + whereClause + "|" + sortClause,
+                        () -> "Select a From " + className + " a " + whereClause + " " + sortClause));
         applyQueryParameters(queryParameters, queryResults);
+        applyFetchPlan(filter, queryResults);
 
         applyPaginationOnQuery(filter, queryResults);
 
         @SuppressWarnings("unchecked")
         final List<T> results = queryResults.getResultList();
-        final Integer count = countNumberOfRows(whereClause, queryParameters, className);
+        final Integer count = countNumberOfRows(whereClause, queryParameters, className, filter.getCountMode());
 
-        final PaginatedData<T> paginatedData = new PaginatedData<>(count, results);
+        final PaginatedData<T> paginatedData = new PaginatedData<>(count, filter.getCountMode(), results, null);
         return paginatedData;
     }
 
+    /**
+     * Find the PaginatedData with the keyset pagination: the page starts right after the row of the
+     * cursor, with a condition on the sort field and the ID instead of an offset, so the cost of a
+     * page does not depend on its depth. The ID breaks the ties of the sort field.
+     * The sort field must be a basic attribute which is never null.
+     */
+    private PaginatedData<T> findByParametersWithKeyset(final String whereClause, final GenericFilter filter,
+            final Map<String, Object> queryParameters, final String defaultSort) {
+        final PaginationData paginationData = filter.getPaginationData();
+        final String className = getPersistentClass().getSimpleName();
+        final String sortField;
+        final OrderMode orderMode;
+        if (paginationData.getOrderField() != null) {
+            sortField = paginationData.getOrderField();
+            orderMode = paginationData.getOrderMode();
+        } else {
+            final String[] defaultSortParts = defaultSort.trim().split("\\s+");
+            sortField = defaultSortParts[0];
+            orderMode = defaultSortParts.length > 1 && "DESC".equalsIgnoreCase(defaultSortParts[1])
+                    ? OrderMode.DESCENDING : OrderMode.ASCENDING;
+        }
+        checkSortField(sortField);
+        final Attribute<? super T, ?> sortAttribute = getBasicAttribute(sortField, "sort");
+
+        final boolean firstPage = paginationData.getCursor().isEmpty();
+        final Map<String, Object> keysetParameters = new HashMap<>(queryParameters);
+        if (!firstPage) {
+            final KeysetCursor cursor = KeysetCursor.decode(paginationData.getCursor());
+            if (!cursor.isForSort(sortField, orderMode)) {
+                throw new FieldNotValidException("cursor", paginationData.getCursor(),
+                        "The cursor was created for another sort");
+            }
+            keysetParameters.put("keysetValue", parseKeysetValue(sortAttribute, cursor));
+            keysetParameters.put("keysetId", cursor.getId());
+        }
+
+        final String jpql = JpqlCache.get(
+                "keyset|" + className + "|" + whereClause + "|" + sortField + "|" + orderMode + "|" + firstPage,
+                () -> buildKeysetQuery(className, whereClause, sortField, orderMode, firstPage));
+        final Query queryResults = getEntityManager().createQuery(jpql);
+        applyQueryParameters(keysetParameters, queryResults);
+        applyFetchPlan(filter, queryResults);
+        // one more row tells whether or not there is a next page
+        queryResults.setMaxResults(paginationData.getMaxResults() + 1);
+
+        @SuppressWarnings("unchecked")
+        final List<T> results = queryResults.getResultList();
+        String nextCursor = null;
+        if (results.size() > paginationData.getMaxResults()) {
+            results.remove(results.size() - 1);
+            final T lastRow = results.get(results.size() - 1);
+            final Object lastId = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil()
+                    .getIdentifier(lastRow);
+            nextCursor = new KeysetCursor(sortField, orderMode, (Long) lastId,
+                    formatKeysetValue(readAttributeValue(sortAttribute, lastRow))).encode();
+        }
+        final Integer count = countNumberOfRows(whereClause, queryParameters, className, filter.getCountMode());
+
+        return new PaginatedData<>(count, filter.getCountMode(), results, nextCursor);
+    }
+
+    /**
+     * Set what is loaded along with the entities of a page, nothing more than the mapping by default.
+     * The page is limited by the database, so a collection fetched here would be paginated in memory.
+     *
+     * @param filter
+     *            the filter of the page.
+     * @param query
+     *            the query of the page.
+     */
+    protected void applyFetchPlan(final GenericFilter filter, final Query query) {
+    }
+
+    private String buildKeysetQuery(final String className, final String whereClause, final String sortField,
+            final OrderMode orderMode, final boolean firstPage) {
+        final String direction = orderMode == OrderMode.ASCENDING ? " ASC" : " DESC";
+        final StringBuilder jpql = new StringBuilder("Select a From " + className + " a " + whereClause);
+        if (!firstPage) {
+            final String operator = orderMode == OrderMode.ASCENDING ? " > " : " < ";
+            jpql.append(whereClause.trim().isEmpty() ? "WHERE " : " And ");
+            jpql.append("(a." + sortField + operator + ":keysetValue Or (a." + sortField
+                    + " = :keysetValue And a.id" + operator + ":keysetId))");
+        }
+        jpql.append(" Order by a." + sortField + direction + ", a.id" + direction);
+        return jpql.toString();
+    }
+
+    private void checkSortField(final String sortField) {
+        if (!getSortableFields().contains(sortField)) {
+            throw new FieldNotValidException("sort", sortField, "The entities cannot be sorted by this field");
+        }
+    }
+
+    private Attribute<? super T, ?> getBasicAttribute(final String fieldName, final String invalidFieldName) {
+        try {
+            final Attribute<? super T, ?> attribute = getEntityManager().getMetamodel()
+                    .entity(getPersistentClass()).getAttribute(fieldName);
+            if (attribute.getPersistentAttributeType() == PersistentAttributeType.BASIC) {
+                return attribute;
+            }
+        } catch (final IllegalArgumentException ex) {
+            // not an attribute of the entity
+        }
+        throw new FieldNotValidException(invalidFieldName, fieldName, "The field is not a basic field of the entity");
+    }
+
+    private Object readAttributeValue(final Attribute<? super T, ?> attribute, final T entity) {
+        final Member member = attribute.getJavaMember();
+        try {
+            if (member instanceof Field) {
+                final Field field = (Field) member;
+                field.setAccessible(true);
+                return field.get(entity);
+            }
+            final Method method = (Method) member;
+            method.setAccessible(true);
+            return method.invoke(entity);
+        } catch (final IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Cannot read the attribute " + attribute.getName(), ex);
+        }
+    }
+
+    private String formatKeysetValue(final Object value) {
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return String.valueOf(value);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object parseKeysetValue(final Attribute<? super T, ?> attribute, final KeysetCursor cursor) {
+        final Class<?> type = attribute.getJavaType();
+        final String value = cursor.getValue();
+        try {
+            if (Date.class.isAssignableFrom(type)) {
+                return new Date(Long.parseLong(value));
+            }
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, value);
+            }
+            if (type == String.class) {
+                return value;
+            }
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            }
+            if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            }
+            if (type == Double.class || type == double.class) {
+                return Double.valueOf(value);
+            }
+            if (type == Boolean.class || type == boolean.class) {
+                return Boolean.valueOf(value);
+            }
+        } catch (final IllegalArgumentException ex) {
+            // not a value of the sort field
+        }
+        throw new FieldNotValidException("cursor", value, "The cursor value is not valid");
+    }
+
+    // the count query costs as much as the page query on large filtered result sets, so it is
+    // skipped or served from the cache when the client does not need an exact count
+    private Integer countNumberOfRows(final String whereClause, final Map<String, Object> queryParameters,
+            final String className, final CountMode countMode) {
+        if (countMode == CountMode.NONE) {
+            return PaginatedData.UNKNOWN_NUMBER_OF_ROWS;
+        }
+        if (countMode == CountMode.ESTIMATED) {
+            final Integer cachedCount = COUNT_CACHE.get(className, whereClause, queryParameters);
+            if (cachedCount != null) {
+                return cachedCount;
+            }
+        }
+        final Integer count = countNumberOfRows(whereClause, queryParameters, className);
+        COUNT_CACHE.put(className, whereClause, queryParameters, count);
+        return count;
+    }
+
     private Integer countNumberOfRows(final String whereClause, final Map<String, Object> queryParameters,
             final String className) {
         final Query queryCount = getEntityManager()
-                .createQuery("Select Count(a) From " + className + " a " + whereClause);
+                .createQuery(JpqlCache.get("count|" + className + "|" + whereClause,
+                        () -> "Select Count(a) From " + className + " a " + whereClause));
         applyQueryParameters(queryParameters, queryCount);
         final Integer count = ((Long) queryCount.getSingleResult()).intValue();
         return count;
@@ -177,15 +455,17 @@ public abstract class GenericRepository<T> {
         }
     }
 
-    private StringBuilder populateSortClause(final GenericFilter filter, final String defaultSort) {
+    // the sort field of the filter comes from the client, the default sort from the repository
+    private String populateSortClause(final GenericFilter filter, final String defaultSort) {
         final StringBuilder sortClause = new StringBuilder();
         if (filter.hasOrderField()) {
+            checkSortField(filter.getPaginationData().getOrderField());
             sortClause.append("Order by a." + filter.getPaginationData().getOrderField());
             sortClause.append(filter.getPaginationData().getOrderMode() == OrderMode.ASCENDING ? " ASC" : " DESC");
         } else {
             sortClause.append("Order by a." + defaultSort); // default
         }
-        return sortClause;
+        return sortClause.toString();
     }
 
     private void applyQueryParameters(final Map<String, Object> queryParameters, final Query query) {
@@ -0,0 +1,36 @@
+package com.storehouse.app.common.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The JPQL of the generic queries, built once per query shape, e.g. the entity, the where clause
+ * and the sort of a paginated query.
+ *
+ * The queries are fully parameterized and the sort fields are whitelisted, so there is a bounded
+ * set of shapes: the same filter combination always gives the same query string, which the
+ * persistence provider finds in its query plan cache instead of parsing it again.
+ *
+ * @author ejiafzh
+ *
+ */
+final class JpqlCache {
+    private static final Map<String, String> QUERIES = new ConcurrentHashMap<>();
+
+    private JpqlCache() {
+    }
+
+    /**
+     * Get the JPQL of the query shape, build it if it is not built yet.
+     *
+     * @param shape
+     *            the key of the query shape.
+     * @param builder
+     *            builds the JPQL of the query shape.
+     * @return the JPQL of the query shape.
+     */
+    static String get(final String shape, final Supplier<String> builder) {
+        return QUERIES.computeIfAbsent(shape, key -> builder.get());
+    }
+}
@@ -0,0 +1,24 @@
+package com.storehouse.app.common.repository;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * Counts the statements prepared by Hibernate into the StatementStatistics of the thread. It is
+ * set for the whole persistence unit with the hibernate.ejb.interceptor property, so it is shared by
+ * all the sessions and keeps no state.
+ *
+ * @author ejiafzh
+ *
+ */
+public class StatementCountingInterceptor extends EmptyInterceptor {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String onPrepareStatement(final String sql) {
+        StatementStatistics.recordStatement(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,134 @@
+package com.storehouse.app.common.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The JDBC statements of a unit of work, e.g. an HTTP request, and the time spent executing them.
+ *
+ * The unit of work is bound to the thread between begin() and end(), the persistence provider
+ * reports to it through the StatementCountingInterceptor and the StatementTimingListener, the
+ * statements outside a unit of work are not recorded. The statements are also counted by SQL, so a
+ * query repeated for every row of a result, i.e. N+1 selects, shows up as one statement executed
+ * many times.
+ *
+ * @author ejiafzh
+ *
+ */
+public final class StatementStatistics {
+    private static final ThreadLocal<StatementStatistics> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Integer> countsBySql = new HashMap<>();
+    private int statementCount;
+    private long executionNanos;
+
+    private StatementStatistics() {
+    }
+
+    /**
+     * Start recording the statements of the current thread, dropping the ones of a previous unit of
+     * work which has not been ended.
+     */
+    public static void begin() {
+        CURRENT.set(new StatementStatistics());
+    }
+
+    /**
+     * Stop recording the statements of the current thread.
+     *
+     * @return the statements recorded since begin(), null if begin() has not been called.
+     */
+    public static StatementStatistics end() {
+        final StatementStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    /**
+     * Record a statement prepared by the current thread.
+     *
+     * @param sql
+     *            the SQL of the statement.
+     */
+    public static void recordStatement(final String sql) {
+        final StatementStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementCount++;
+            statistics.countsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Record the execution of a statement by the current thread.
+     *
+     * @param nanos
+     *            the time spent executing the statement.
+     */
+    public static void recordExecution(final long nanos) {
+        final StatementStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.executionNanos += nanos;
+        }
+    }
+
+    /**
+     * Get the number of statements prepared.
+     *
+     * @return the number of statements.
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Get the time spent executing the statements, in the database and the driver.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    /**
+     * Get the SQL of the statement prepared the most times.
+     *
+     * @return the SQL, null if there was no statement.
+     */
+    public String getMostRepeatedStatement() {
+        String mostRepeated = null;
+        int maxCount = 0;
+        for (final Map.Entry<String, Integer> entry : countsBySql.entrySet()) {
+            if (entry.getValue() > maxCount) {
+                mostRepeated = entry.getKey();
+                maxCount = entry.getValue();
+            }
+        }
+        return mostRepeated;
+    }
+
+    /**
+     * Get how many times the statement prepared the most times has been prepared.
+     *
+     * @return the number of times, 0 if there was no statement.
+     */
+    public int getMostRepeatedCount() {
+        int maxCount = 0;
+        for (final Integer count : countsBySql.values()) {
+            maxCount = Math.max(maxCount, count);
+        }
+        return maxCount;
+    }
+
+    /**
+     * Whether the same statement has been prepared at least threshold times, which is what loading
+     * an association or a collection row by row looks like, the number of statements then grows
+     * with the size of the result.
+     *
+     * @param threshold
+     *            the number of times from which a repeated statement is suspect.
+     * @return true if N+1 selects are suspected.
+     */
+    public boolean isNPlusOneSuspected(final int threshold) {
+        return getMostRepeatedCount() >= threshold;
+    }
+}
@@ -0,0 +1,49 @@
+package com.storehouse.app.common.repository;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Times the statements executed by Hibernate into the StatementStatistics of the thread. Hibernate
+ * creates one per session from the hibernate.session.events.auto property, a session being used by
+ * one thread at a time.
+ *
+ * @author ejiafzh
+ *
+ */
+public class StatementTimingListener extends BaseSessionEventListener {
+    private static final long serialVersionUID = 1L;
+
+    private long executionStart;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        StatementStatistics.recordExecution(System.nanoTime() - executionStart);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        StatementStatistics.recordExecution(System.nanoTime() - executionStart);
+    }
+}
@@ -0,0 +1,86 @@
+package com.storehouse.app.common.security;
+
+import com.storehouse.app.user.model.User.Roles;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The claims of a valid authentication token: who the caller is, its roles and until when the
+ * token can be used.
+ *
+ * @author ejiafzh
+ *
+ */
+public class AuthenticationToken {
+    private final String email;
+    private final List<Roles> roles;
+    private final long expiresAt;
+
+    /**
+     * Constructs the claims of an authentication token.
+     *
+     * @param email
+     *            the email of the user, i.e. the principal name.
+     * @param roles
+     *            the roles of the user.
+     * @param expiresAt
+     *            when the token expires, in milliseconds.
+     */
+    public AuthenticationToken(final String email, final List<Roles> roles, final long expiresAt) {
+        this.email = email;
+        this.roles = Collections.unmodifiableList(roles);
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Get the email of the user, i.e. the principal name.
+     *
+     * @return the email of the user.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Get the roles of the user.
+     *
+     * @return the roles of the user.
+     */
+    public List<Roles> getRoles() {
+        return roles;
+    }
+
+    /**
+     * Get when the token expires, in milliseconds.
+     *
+     * @return when the token expires.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Check whether or not the user has the role.
+     *
+     * @param role
+     *            the role name.
+     * @return true if it has, false otherwise.
+     */
+    public boolean hasRole(final String role) {
+        for (final Roles userRole : roles) {
+            if (userRole.name().equals(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "AuthenticationToken [email=" + email + ", roles=" + roles + ", expiresAt=" + expiresAt + "]";
+    }
+}
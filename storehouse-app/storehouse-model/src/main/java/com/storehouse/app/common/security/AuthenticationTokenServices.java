@@ -0,0 +1,170 @@
+package com.storehouse.app.common.security;
+
+import com.storehouse.app.common.exception.UserNotAuthorizedException;
+import com.storehouse.app.common.exception.UserNotFoundException;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+import com.storehouse.app.user.services.UserServices;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issues and validates the authentication tokens.
+ *
+ * A token is self-contained: the claims (expiry, token version, roles and email) and their
+ * HMAC-SHA256 signature, so it is validated with the principal cache of the users, unlike the login
+ * module of the security domain which queries the user and its roles on every request. The token
+ * version of the user is raised when its password, roles or email change, so the tokens issued
+ * before are rejected at once on this node, and once the principal cache entry expires on the other
+ * nodes.
+ *
+ * The signing secret is given by the storehouse.token.secret system property, all the nodes of a
+ * cluster must share it. Without it a random secret is generated and the tokens are only valid
+ * on this node until it restarts.
+ *
+ * @author ejiafzh
+ *
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AuthenticationTokenServices {
+    public static final String SECRET_PROPERTY = "storehouse.token.secret";
+    public static final String TIME_TO_LIVE_PROPERTY = "storehouse.token.ttl";
+
+    static final long DEFAULT_TIME_TO_LIVE_SECONDS = 3600L;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String SEPARATOR = ":";
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    UserServices userServices;
+
+    private SecretKeySpec secretKey;
+    long timeToLiveMillis;
+
+    /**
+     * Read the signing secret and the time to live of the tokens from the system properties.
+     */
+    @PostConstruct
+    public void init() {
+        final String secret = System.getProperty(SECRET_PROPERTY);
+        final byte[] secretBytes;
+        if (secret == null || secret.isEmpty()) {
+            logger.warn("No {} system property, the tokens are only valid on this node until it restarts",
+                    SECRET_PROPERTY);
+            secretBytes = new byte[32];
+            new SecureRandom().nextBytes(secretBytes);
+        } else {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        secretKey = new SecretKeySpec(secretBytes, ALGORITHM);
+        timeToLiveMillis = Long.getLong(TIME_TO_LIVE_PROPERTY, DEFAULT_TIME_TO_LIVE_SECONDS) * 1000L;
+    }
+
+    /**
+     * Issue a token for an authenticated user.
+     *
+     * @param user
+     *            the user, authenticated by its email and password.
+     * @return the token.
+     */
+    public String issueToken(final User user) {
+        final StringBuilder roles = new StringBuilder();
+        for (final Roles role : user.getRoles()) {
+            if (roles.length() > 0) {
+                roles.append(',');
+            }
+            roles.append(role.name());
+        }
+        // the email is last, it can contain the separator
+        final String claims = (System.currentTimeMillis() + timeToLiveMillis) + SEPARATOR + user.getTokenVersion()
+                + SEPARATOR + roles + SEPARATOR + user.getEmail();
+        final byte[] claimsBytes = claims.getBytes(StandardCharsets.UTF_8);
+        return encode(claimsBytes) + "." + encode(sign(claimsBytes));
+    }
+
+    /**
+     * Validate a token.
+     *
+     * @param token
+     *            the token.
+     * @return the claims of the token.
+     * @throws UserNotAuthorizedException
+     *             if the token is not valid, has expired or has been revoked.
+     */
+    public AuthenticationToken validateToken(final String token) {
+        try {
+            final String[] parts = token.split("\\.");
+            if (parts.length != 2) {
+                throw new UserNotAuthorizedException();
+            }
+            final byte[] claimsBytes = Base64.getUrlDecoder().decode(parts[0]);
+            if (!MessageDigest.isEqual(sign(claimsBytes), Base64.getUrlDecoder().decode(parts[1]))) {
+                throw new UserNotAuthorizedException();
+            }
+
+            final String[] claims = new String(claimsBytes, StandardCharsets.UTF_8).split(SEPARATOR, 4);
+            final long expiresAt = Long.parseLong(claims[0]);
+            if (expiresAt <= System.currentTimeMillis()) {
+                throw new UserNotAuthorizedException();
+            }
+            final int tokenVersion = Integer.parseInt(claims[1]);
+            final List<Roles> roles = new ArrayList<>();
+            for (final String role : claims[2].split(",")) {
+                if (!role.isEmpty()) {
+                    roles.add(Roles.valueOf(role));
+                }
+            }
+            final String email = claims[3];
+            if (isRevoked(email, tokenVersion)) {
+                throw new UserNotAuthorizedException();
+            }
+            return new AuthenticationToken(email, roles, expiresAt);
+        } catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new UserNotAuthorizedException();
+        }
+    }
+
+    // the password, the roles or the email of the user have changed since the token was issued
+    private boolean isRevoked(final String email, final int tokenVersion) {
+        try {
+            return userServices.findByEmail(email).getTokenVersion() != tokenVersion;
+        } catch (final UserNotFoundException ex) {
+            logger.info("Token of an unknown user: {}", email);
+            return true;
+        }
+    }
+
+    private byte[] sign(final byte[] claims) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(claims);
+        } catch (final GeneralSecurityException ex) {
+            throw new IllegalStateException("Cannot sign the token", ex);
+        }
+    }
+
+    private String encode(final byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
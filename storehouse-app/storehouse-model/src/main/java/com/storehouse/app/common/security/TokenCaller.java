@@ -0,0 +1,56 @@
+package com.storehouse.app.common.security;
+
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * The caller of the current request when it is authenticated by a token.
+ *
+ * The token is validated by the REST layer, out of the security domain, so the EJB
+ * SessionContext does not know the caller: the services ask this caller first.
+ *
+ * @author ejiafzh
+ *
+ */
+@RequestScoped
+public class TokenCaller {
+    private AuthenticationToken token;
+
+    /**
+     * Set the caller of the current request from its validated token.
+     *
+     * @param token
+     *            the claims of the validated token.
+     */
+    public void authenticate(final AuthenticationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Check whether or not the caller of the current request is authenticated by a token.
+     *
+     * @return true if it is, false otherwise.
+     */
+    public boolean isAuthenticated() {
+        return token != null;
+    }
+
+    /**
+     * Get the principal name of the caller, i.e. its email.
+     *
+     * @return the principal name of the caller, null if it is not authenticated by a token.
+     */
+    public String getName() {
+        return token == null ? null : token.getEmail();
+    }
+
+    /**
+     * Check whether or not the caller has the role.
+     *
+     * @param role
+     *            the role name.
+     * @return true if it has, false otherwise.
+     */
+    public boolean isInRole(final String role) {
+        return token != null && token.hasRole(role);
+    }
+}
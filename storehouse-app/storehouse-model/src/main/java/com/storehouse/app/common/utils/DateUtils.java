@@ -1,19 +1,28 @@
 package com.storehouse.app.common.utils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 /**
  * Utility class to deal with date.
  *
+ * The dates are written as yyyy-MM-dd'T'HH:mm:ss'Z' in the time zone of the JVM (the Z is a
+ * literal), as they always have been. Every order or user written to json and every date filter
+ * goes through here, so the usual four digit years are parsed and written by hand, and the shared
+ * immutable formatter only deals with the others.
+ *
  * @author ejiafzh
  *
  */
 public final class DateUtils {
     private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final int DATE_TIME_LENGTH = 20; // the length of the format without the quotes
 
     /**
      * Make this a private constructor.
@@ -27,11 +36,15 @@ public final class DateUtils {
      * @param dateTime
      *            string representation of date and time.
      * @return object representation of date and time.
+     * @throws IllegalArgumentException
+     *             if the dateTime is not a valid date and time.
      */
     public static Date getAsDateTime(final String dateTime) {
         try {
-            return new SimpleDateFormat(DATE_FORMAT).parse(dateTime);
-        } catch (final ParseException ex) {
+            final LocalDateTime localDateTime = isFixedLayout(dateTime) ? parseFixedLayout(dateTime)
+                    : LocalDateTime.parse(dateTime, FORMATTER);
+            return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+        } catch (final DateTimeException ex) {
             throw new IllegalArgumentException(ex);
         }
     }
@@ -44,7 +57,28 @@ public final class DateUtils {
      * @return String representation of date and time.
      */
     public static String formatDateTime(final Date date) {
-        return new SimpleDateFormat(DATE_FORMAT).format(date);
+        final Instant instant = Instant.ofEpochMilli(date.getTime());
+        final ZoneOffset offset = ZoneId.systemDefault().getRules().getOffset(instant);
+        final LocalDateTime localDateTime = LocalDateTime.ofEpochSecond(instant.getEpochSecond(), 0, offset);
+        final int year = localDateTime.getYear();
+        if (year < 1 || year > 9999) {
+            return FORMATTER.format(localDateTime);
+        }
+
+        final char[] chars = new char[DATE_TIME_LENGTH];
+        writeDigits(chars, 0, 4, year);
+        chars[4] = '-';
+        writeDigits(chars, 5, 2, localDateTime.getMonthValue());
+        chars[7] = '-';
+        writeDigits(chars, 8, 2, localDateTime.getDayOfMonth());
+        chars[10] = 'T';
+        writeDigits(chars, 11, 2, localDateTime.getHour());
+        chars[13] = ':';
+        writeDigits(chars, 14, 2, localDateTime.getMinute());
+        chars[16] = ':';
+        writeDigits(chars, 17, 2, localDateTime.getSecond());
+        chars[19] = 'Z';
+        return new String(chars);
     }
 
     /**
@@ -60,4 +94,64 @@ public final class DateUtils {
         final LocalDateTime localDateTime = LocalDateTime.now(); // current date
         return Date.from(localDateTime.plusDays(days).atZone(ZoneId.systemDefault()).toInstant()); // add days
     }
+
+    // e.g. 2017-10-10T10:00:00Z
+    private static boolean isFixedLayout(final String dateTime) {
+        if (dateTime == null || dateTime.length() != DATE_TIME_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < DATE_TIME_LENGTH; i++) {
+            final char c = dateTime.charAt(i);
+            switch (i) {
+            case 4:
+            case 7:
+                if (c != '-') {
+                    return false;
+                }
+                break;
+            case 10:
+                if (c != 'T') {
+                    return false;
+                }
+                break;
+            case 13:
+            case 16:
+                if (c != ':') {
+                    return false;
+                }
+                break;
+            case 19:
+                if (c != 'Z') {
+                    return false;
+                }
+                break;
+            default:
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static LocalDateTime parseFixedLayout(final String dateTime) {
+        return LocalDateTime.of(readDigits(dateTime, 0, 4), readDigits(dateTime, 5, 2), readDigits(dateTime, 8, 2),
+                readDigits(dateTime, 11, 2), readDigits(dateTime, 14, 2), readDigits(dateTime, 17, 2));
+    }
+
+    private static int readDigits(final String text, final int start, final int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static void writeDigits(final char[] chars, final int start, final int length, final int value) {
+        int remaining = value;
+        for (int i = start + length - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+    }
 }
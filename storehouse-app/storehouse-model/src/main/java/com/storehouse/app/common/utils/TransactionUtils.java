@@ -0,0 +1,65 @@
+package com.storehouse.app.common.utils;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Utility class to run an action at the end of the current transaction, for the in-memory state
+ * (indexes, caches) which must only follow what the database really holds.
+ *
+ * @author ejiafzh
+ *
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Run an action once the current transaction is committed, it is never run if the transaction
+     * is rolled back. Without a registry or a transaction, the action is run at once.
+     *
+     * @param registry
+     *            the transaction synchronization registry of the container, it may be null.
+     * @param action
+     *            the action to be run.
+     */
+    public static void runAfterCommit(final TransactionSynchronizationRegistry registry, final Runnable action) {
+        runAfterCompletion(registry, action, true);
+    }
+
+    /**
+     * Run an action once the current transaction is completed, committed or rolled back. Without a
+     * registry or a transaction, the action is run at once.
+     *
+     * @param registry
+     *            the transaction synchronization registry of the container, it may be null.
+     * @param action
+     *            the action to be run.
+     */
+    public static void runAfterCompletion(final TransactionSynchronizationRegistry registry,
+            final Runnable action) {
+        runAfterCompletion(registry, action, false);
+    }
+
+    private static void runAfterCompletion(final TransactionSynchronizationRegistry registry, final Runnable action,
+            final boolean onCommitOnly) {
+        if (registry == null || registry.getTransactionKey() == null) {
+            action.run();
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (!onCommitOnly || status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
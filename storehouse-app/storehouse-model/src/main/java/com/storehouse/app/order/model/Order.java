@@ -7,6 +7,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
@@ -17,8 +18,12 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
@@ -26,21 +31,51 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * This class represents an order placed by a customer.
  *
  * It will be sent to a JMS queue and eventually being consumed and being processed.
  *
+ * The items and the history entries are loaded lazily, each use case asks for what it reads with
+ * a FetchPlan: the lists only need the customer, the queue the item quantities and the detail of
+ * an order its history as well.
+ *
+ * The orders and their items are kept in the second-level cache (the order region of the
+ * persistence unit), the entry of an order is replaced by the transaction which changes its status
+ * and invalidated on the other nodes. The history entries, which change with every status, are not.
+ *
  * @author ejiafzh
  *
  */
 @Entity
-@Table(name = "storehouse_order")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL, region = Order.CACHE_REGION)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Order.SUMMARY_GRAPH, attributeNodes = @NamedAttributeNode("customer")),
+        @NamedEntityGraph(name = Order.QUANTITIES_GRAPH, attributeNodes = { @NamedAttributeNode("customer"),
+                @NamedAttributeNode("items") }),
+        @NamedEntityGraph(name = Order.DETAIL_GRAPH, attributeNodes = { @NamedAttributeNode("customer"),
+                @NamedAttributeNode("items"), @NamedAttributeNode("historyEntries") }) })
+// the indexes of db/migration, except the partial index of the RESERVED orders which JPA cannot define
+@Table(name = "storehouse_order", indexes = {
+        @Index(name = "ix_order_status_created_at", columnList = "current_status, created_at"),
+        @Index(name = "ix_order_customer_status", columnList = "customer_id, current_status"),
+        @Index(name = "ix_order_created_at_id", columnList = "created_at, id") })
 public class Order implements Serializable {
     private static final long serialVersionUID = -8589662328013809186L;
 
     public static final int MAX_LOAD = 25; // this defines the maximum load
 
+    public static final String CACHE_REGION = "order";
+    public static final String ITEMS_CACHE_REGION = "order.items";
+
+    public static final String SUMMARY_GRAPH = "Order.summary";
+    public static final String QUANTITIES_GRAPH = "Order.quantities";
+    public static final String DETAIL_GRAPH = "Order.detail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -58,7 +93,8 @@ public class Order implements Serializable {
     // have 1 product, once we have multiple product, we can add more items
     @NotNull
     @Valid // this annotation ensures all elements will be validated against
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL, region = Order.ITEMS_CACHE_REGION)
     @CollectionTable(name = "storehouse_order_item", joinColumns = @JoinColumn(name = "order_id"))
     @Size(min = 1, max = 1)
     private Set<OrderItem> items;
@@ -73,13 +109,54 @@ public class Order implements Serializable {
      *
      */
     public enum OrderStatus {
-        RESERVED, PENDING, DELIVERED, CANCELLED
+        RESERVED, PENDING, DELIVERED, CANCELLED;
+
+        /**
+         * Whether an order in this status can change to the new status: a DELIVERED or CANCELLED
+         * order cannot change any more, and the new status must be a different one.
+         *
+         * @param newStatus
+         *            the new status.
+         * @return true if the change is allowed.
+         */
+        public boolean canChangeTo(final OrderStatus newStatus) {
+            return this != DELIVERED && this != CANCELLED && this != newStatus;
+        }
+    }
+
+    /**
+     * What is loaded with an order, i.e. the entity graph of a use case.
+     *
+     * @author ejiafzh
+     *
+     */
+    public enum FetchPlan {
+        /** the customer, for the lists and the exports. */
+        SUMMARY(SUMMARY_GRAPH),
+        /** the customer and the items, for the queue and the delivery batches. */
+        QUANTITIES(QUANTITIES_GRAPH),
+        /** the customer, the items and the history entries, for the detail of an order. */
+        DETAIL(DETAIL_GRAPH);
+
+        private final String graphName;
+
+        private FetchPlan(final String graphName) {
+            this.graphName = graphName;
+        }
+
+        public String getGraphName() {
+            return graphName;
+        }
+
+        public boolean hasCollections() {
+            return this != SUMMARY;
+        }
     }
 
     // track the history of the order
     @NotNull
     @Valid // this annotation ensures all elements will be validated against
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "storehouse_order_orderhistory", joinColumns = @JoinColumn(name = "order_id"))
     @Size(min = 1)
     private Set<OrderHistoryEntry> historyEntries;
@@ -259,16 +336,13 @@ public class Order implements Serializable {
      *            a new order status to the history entries.
      */
     public void addHistoryEntry(final OrderStatus newStatus) {
-        if (currentStatus != null) {
-            // any order except RESERVED or PENDING cannot change its state
-            if (currentStatus == OrderStatus.DELIVERED || currentStatus == OrderStatus.CANCELLED) {
-                throw new IllegalArgumentException("An order in the state " + currentStatus
-                        + " cannot have its state changed.");
-            }
-
+        // the same rules as the bulk status changes
+        if (currentStatus != null && !currentStatus.canChangeTo(newStatus)) {
             if (currentStatus == newStatus) {
                 throw new IllegalArgumentException("The new status must be different from the current state");
             }
+            throw new IllegalArgumentException("An order in the state " + currentStatus
+                    + " cannot have its state changed.");
         }
         getHistoryEntries().add(new OrderHistoryEntry(newStatus));
         currentStatus = newStatus; // this method also sets the currentStatus if it is full
@@ -340,9 +414,10 @@ public class Order implements Serializable {
      */
     @Override
     public String toString() {
-        return "Order [id=" + id + ", createdAt=" + createdAt + ", customer=" + customer
-                + ", items=" + items + ", total=" + total + ", historyEntries="
-                + historyEntries + ", currentStatus=" + currentStatus + "]";
+        // the lazy collections are left out, the order may be logged once it is detached
+        return "Order [id=" + id + ", createdAt=" + createdAt + ", customerId="
+                + (customer == null ? null : customer.getId()) + ", total=" + total + ", currentStatus="
+                + currentStatus + "]";
     }
 
 }
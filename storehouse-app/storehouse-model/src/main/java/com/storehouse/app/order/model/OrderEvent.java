@@ -0,0 +1,156 @@
+package com.storehouse.app.order.model;
+
+import com.storehouse.app.user.model.Customer;
+
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+
+/**
+ * The event sent to the orders queue when an order is added.
+ *
+ * It only carries what the consumption needs to plan a delivery batch, as JMS message properties
+ * of a message without body, so browsing the queue does not deserialize any entity. The properties
+ * can also be used in message selectors, e.g. "orderId = 1".
+ *
+ * @author ejiafzh
+ *
+ */
+public class OrderEvent {
+    public static final String ORDER_ID = "orderId";
+    public static final String CUSTOMER_ID = "customerId";
+    public static final String QUANTITY = "quantity";
+    public static final String PREMIUM = "premium";
+    public static final String CREATED_AT = "createdAt";
+
+    private final long orderId;
+    private final long customerId;
+    private final int quantity;
+    private final boolean premium;
+    private final long createdAt;
+
+    /**
+     * Constructs an order event.
+     *
+     * @param orderId
+     *            the order ID.
+     * @param customerId
+     *            the customer ID.
+     * @param quantity
+     *            the total quantity of the order.
+     * @param premium
+     *            whether or not the customer is a premium customer.
+     * @param createdAt
+     *            the createdAt timestamp of the order in milliseconds.
+     */
+    public OrderEvent(final long orderId, final long customerId, final int quantity, final boolean premium,
+            final long createdAt) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.quantity = quantity;
+        this.premium = premium;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Create the event of a persisted order.
+     *
+     * @param order
+     *            the order with its ID and its customer.
+     * @return the event of the order.
+     */
+    public static OrderEvent fromOrder(final Order order) {
+        final Customer customer = order.getCustomer();
+        return new OrderEvent(order.getId(), customer.getId(), order.calculateTotalQuantity(),
+                customer.isPremiumCustomer(), order.getCreatedAt().getTime());
+    }
+
+    /**
+     * Read the event from a message of the orders queue.
+     * The messages sent before the events were introduced carry the serialized order instead.
+     *
+     * @param message
+     *            the message of the orders queue.
+     * @return the event of the message.
+     * @throws JMSException
+     *             if the properties of the message cannot be read.
+     */
+    public static OrderEvent fromMessage(final Message message) throws JMSException {
+        if (!message.propertyExists(ORDER_ID) && message instanceof ObjectMessage) {
+            return fromOrder((Order) ((ObjectMessage) message).getObject());
+        }
+        return new OrderEvent(message.getLongProperty(ORDER_ID), message.getLongProperty(CUSTOMER_ID),
+                message.getIntProperty(QUANTITY), message.getBooleanProperty(PREMIUM),
+                message.getLongProperty(CREATED_AT));
+    }
+
+    /**
+     * Set the event as the properties of the messages sent by the producer.
+     *
+     * @param producer
+     *            the JMS producer.
+     * @return the producer.
+     */
+    public JMSProducer setOn(final JMSProducer producer) {
+        return producer.setProperty(ORDER_ID, orderId)
+                .setProperty(CUSTOMER_ID, customerId)
+                .setProperty(QUANTITY, quantity)
+                .setProperty(PREMIUM, premium)
+                .setProperty(CREATED_AT, createdAt);
+    }
+
+    /**
+     * Get the order ID.
+     *
+     * @return the order ID.
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Get the customer ID.
+     *
+     * @return the customer ID.
+     */
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Get the total quantity of the order.
+     *
+     * @return the total quantity of the order.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Whether or not the customer is a premium customer.
+     *
+     * @return whether or not the customer is a premium customer.
+     */
+    public boolean isPremium() {
+        return premium;
+    }
+
+    /**
+     * Get the createdAt timestamp of the order in milliseconds.
+     *
+     * @return the createdAt timestamp of the order.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "OrderEvent [orderId=" + orderId + ", customerId=" + customerId + ", quantity=" + quantity
+                + ", premium=" + premium + ", createdAt=" + createdAt + "]";
+    }
+}
@@ -0,0 +1,80 @@
+package com.storehouse.app.order.model;
+
+/**
+ * The statistics of a RESERVED order in the queue, i.e. the position of the order
+ * and the estimated wait time for the customer.
+ *
+ * @author ejiafzh
+ *
+ */
+public class OrderQueueStats {
+    private final Long customerId;
+    private final String customerName;
+    private final Integer position;
+    private final Integer waitTime;
+
+    /**
+     * Constructs the queue statistics of an order.
+     *
+     * @param customerId
+     *            the customer ID of the order.
+     * @param customerName
+     *            the customer name of the order.
+     * @param position
+     *            the position of the order in the queue.
+     * @param waitTime
+     *            the estimated wait time of the order in the queue.
+     */
+    public OrderQueueStats(final Long customerId, final String customerName, final Integer position,
+            final Integer waitTime) {
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.position = position;
+        this.waitTime = waitTime;
+    }
+
+    /**
+     * Get the customer ID.
+     *
+     * @return the customer ID.
+     */
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Get the customer name.
+     *
+     * @return the customer name.
+     */
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    /**
+     * Get the position of the order in the queue.
+     *
+     * @return the position of the order in the queue.
+     */
+    public Integer getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the estimated wait time of the order in the queue.
+     *
+     * @return the estimated wait time of the order in the queue.
+     */
+    public Integer getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "OrderQueueStats [customerId=" + customerId + ", customerName=" + customerName + ", position="
+                + position + ", waitTime=" + waitTime + "]";
+    }
+}
@@ -0,0 +1,91 @@
+package com.storehouse.app.order.model;
+
+import com.storehouse.app.order.model.Order.OrderStatus;
+
+/**
+ * A change of the status of an order in a bulk status change, with its result once the changes
+ * have been applied.
+ *
+ * @author ejiafzh
+ *
+ */
+public class OrderStatusChange {
+    private final Long orderId;
+    private final OrderStatus newStatus;
+    private Result result;
+
+    /**
+     * The result of a status change.
+     *
+     * @author ejiafzh
+     *
+     */
+    public enum Result {
+        /** the status of the order has been changed. */
+        UPDATED,
+        /** the order does not exist. */
+        NOT_FOUND,
+        /** the order cannot change to the new status, or it is changed twice in the same request. */
+        NOT_ALLOWED,
+        /** the caller is not allowed to give the new status to the order. */
+        FORBIDDEN
+    }
+
+    /**
+     * Constructs a status change.
+     *
+     * @param orderId
+     *            the order ID.
+     * @param newStatus
+     *            the new status of the order.
+     */
+    public OrderStatusChange(final Long orderId, final OrderStatus newStatus) {
+        this.orderId = orderId;
+        this.newStatus = newStatus;
+    }
+
+    /**
+     * Get the order ID.
+     *
+     * @return the order ID.
+     */
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Get the new status of the order.
+     *
+     * @return the new status.
+     */
+    public OrderStatus getNewStatus() {
+        return newStatus;
+    }
+
+    /**
+     * Get the result of the change.
+     *
+     * @return the result, null until the change has been applied.
+     */
+    public Result getResult() {
+        return result;
+    }
+
+    /**
+     * Set the result of the change.
+     *
+     * @param result
+     *            the result of the change.
+     */
+    public void setResult(final Result result) {
+        this.result = result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "OrderStatusChange [orderId=" + orderId + ", newStatus=" + newStatus + ", result=" + result + "]";
+    }
+}
@@ -1,21 +1,36 @@
 package com.storehouse.app.order.repository;
 
 import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.common.repository.GenericRepository;
+import com.storehouse.app.common.repository.StatementStatistics;
 import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderQueueStats;
 import com.storehouse.app.user.model.Customer;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +44,16 @@ import org.slf4j.LoggerFactory;
 public class OrderRepository extends GenericRepository<Order> {
     private Logger logger = LoggerFactory.getLogger(getClass());
 
+    private static final Set<String> SORTABLE_FIELDS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("id", "createdAt", "total", "currentStatus")));
+
+    // the queue queries compare the status with a literal rather than a parameter, so PostgreSQL can
+    // match the predicate of the partial index of the RESERVED orders with a generic plan too
+    private static final String RESERVED_STATUS_LITERAL = "'" + OrderStatus.RESERVED.name() + "'";
+
+    private static final String INSERT_HISTORY_ENTRY_SQL = "insert into storehouse_order_orderhistory"
+            + " (order_id, status, created_at) values (?, ?, ?)";
+
     @PersistenceContext
     EntityManager em;
 
@@ -50,16 +75,23 @@ public class OrderRepository extends GenericRepository<Order> {
 
     /**
      * {@inheritDoc}
-     * We might need to load the size in case we need to change to LAZY initialization.
+     */
+    @Override
+    protected Set<String> getSortableFields() {
+        return SORTABLE_FIELDS;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The order is the detail of an order, it is loaded with its items and history entries.
      */
     @Override
     public Order findById(final Long id) {
-        final Order order = super.findById(id);
-        if (order != null) {
-            order.getItems().size();
-            order.getHistoryEntries().size();
+        if (id == null) {
+            return null;
         }
-        return order;
+        return em.find(Order.class, id,
+                Collections.singletonMap(LOAD_GRAPH_HINT, em.getEntityGraph(FetchPlan.DETAIL.getGraphName())));
     }
 
     /**
@@ -72,86 +104,77 @@ public class OrderRepository extends GenericRepository<Order> {
      * @return a paginated data of order
      */
     public PaginatedData<Order> findByFilterWithSort(final OrderFilter filter, final String defaultSort) {
-        final StringBuilder clause = new StringBuilder("WHERE a.id is not null");
+        final StringBuilder clause = new StringBuilder();
         final Map<String, Object> queryParameters = new HashMap<>();
         if (filter.getStartDate() != null) {
-            clause.append(" And a.createdAt >= :startDate");
+            appendPredicate(clause, "a.createdAt >= :startDate");
             queryParameters.put("startDate", filter.getStartDate());
         }
         if (filter.getEndDate() != null) {
-            clause.append(" And a.createdAt <= :endDate");
+            appendPredicate(clause, "a.createdAt <= :endDate");
             queryParameters.put("endDate", filter.getEndDate());
         }
         if (filter.getCustomerId() != null) {
-            clause.append(" And a.customer.id = :customerId");
+            appendPredicate(clause, "a.customer.id = :customerId");
             queryParameters.put("customerId", filter.getCustomerId());
         }
         if (filter.getStatus() != null) {
-            clause.append(" And a.currentStatus = :status");
+            appendPredicate(clause, "a.currentStatus = :status");
             queryParameters.put("status", filter.getStatus());
         }
 
-        return findByParameters(clause.toString(), filter, queryParameters, defaultSort);
+        final PaginatedData<Order> data = findByParameters(clause.toString(), filter, queryParameters, defaultSort);
+        fetchCollections(data.getRows(), filter.getFetchPlan());
+        return data;
     }
 
     /**
-     * Find the paginated data by filter with the default sort of order createdAt
-     * timestamp descending.
-     *
-     * @param filter
-     *            the order filter to be used
-     * @return a paginated data of order
+     * {@inheritDoc}
+     * The page is loaded with the customers of the orders, in the same query.
      */
-    public PaginatedData<Order> findByFilter(final OrderFilter filter) {
-        return findByFilterWithSort(filter, "createdAt DESC");
+    @Override
+    protected void applyFetchPlan(final GenericFilter filter, final Query query) {
+        query.setHint(LOAD_GRAPH_HINT, em.getEntityGraph(FetchPlan.SUMMARY.getGraphName()));
     }
 
-    /**
-     * This is for find the premium customer by filter.
-     *
-     * @param filter
-     *            filter to be used.
-     * @param checkTime
-     *            whether or not we want to filter by the createdAt.
-     * @return a paginated data of order for premium customer.
-     */
-    private PaginatedData<Order> findByFilterWithPremiumCustomer(final OrderFilter filter, final boolean checkTime) {
-        return findByFilterWithGeneric(filter, checkTime, true);
+    // the collections of the fetch plan are loaded for the whole page with one more query, the
+    // orders are managed already so their lazy collections are filled in
+    private void fetchCollections(final List<Order> orders, final FetchPlan fetchPlan) {
+        if (orders.isEmpty() || !fetchPlan.hasCollections()) {
+            return;
+        }
+        final List<Long> ids = new ArrayList<>(orders.size());
+        for (final Order order : orders) {
+            ids.add(order.getId());
+        }
+        findByIdsWithFetchPlan(ids, fetchPlan);
+    }
+
+    // join fetches rather than the entity graph: Hibernate 4.3 loses the expansion of the list
+    // parameter when it applies a graph to a query
+    private List<Order> findByIdsWithFetchPlan(final Collection<Long> ids, final FetchPlan fetchPlan) {
+        final StringBuilder jpql = new StringBuilder("Select Distinct o From Order o Join Fetch o.customer");
+        if (fetchPlan.hasCollections()) {
+            jpql.append(" Join Fetch o.items");
+        }
+        if (fetchPlan == FetchPlan.DETAIL) {
+            jpql.append(" Join Fetch o.historyEntries");
+        }
+        return em.createQuery(jpql.append(" Where o.id In :ids").toString(), Order.class)
+                .setParameter("ids", ids)
+                .getResultList();
     }
 
     /**
-     * This is for find the non-premium customer by filter.
+     * Find the paginated data by filter with the default sort of order createdAt
+     * timestamp descending.
      *
      * @param filter
-     *            filter to be used.
-     * @return a paginated data of order for premium customer.
+     *            the order filter to be used
+     * @return a paginated data of order
      */
-    private PaginatedData<Order> findByFilterWithNonPremiumCustomer(final OrderFilter filter) {
-        return findByFilterWithGeneric(filter, true, false);
-    }
-
-    // find by filter with Generic customer
-    private PaginatedData<Order> findByFilterWithGeneric(final OrderFilter filter,
-            final boolean checkTime, final boolean isPremiumCustomer) {
-        final StringBuilder clause = new StringBuilder("WHERE a.id is not null");
-        final Map<String, Object> queryParameters = new HashMap<>();
-        if (checkTime) {
-            if (filter.getEndDate() != null) {
-                clause.append(" And a.createdAt <= :endDate");
-                queryParameters.put("endDate", filter.getEndDate());
-            }
-        }
-        if (isPremiumCustomer) {
-            clause.append(" And a.customer.id < " + Customer.PREMIUM_ID_MAX); // premium users
-        } else {
-            clause.append(" And a.customer.id >= " + Customer.PREMIUM_ID_MAX); // non-premium users
-        }
-        if (filter.getStatus() != null) {
-            clause.append(" And a.currentStatus = :status");
-            queryParameters.put("status", filter.getStatus());
-        }
-
-        return findByParameters(clause.toString(), filter, queryParameters, "createdAt DESC");
+    public PaginatedData<Order> findByFilter(final OrderFilter filter) {
+        return findByFilterWithSort(filter, "createdAt DESC");
     }
 
     /**
@@ -167,20 +190,11 @@ public class OrderRepository extends GenericRepository<Order> {
     public Integer checkOrderPositionInQueueByCustomerId(final Long customerId) {
         logger.info("checkOrderPostionInQueueByCustomerId invokeed, customerId {}", customerId);
 
-        final OrderFilter dataFilter = initialiseOrderFilter(customerId);
-
-        if (dataFilter == null) {
+        final Date createdAt = findReservedOrderCreatedAt(customerId);
+        if (createdAt == null) {
             return -1;
         }
-        logger.debug("checkOrderPositionInQueueByCustomerId {}", dataFilter);
-        int size = 0;
-        if (customerId < Customer.PREMIUM_ID_MAX) {
-            size = findByFilterWithPremiumCustomer(dataFilter, true).getRows().size();
-        } else {
-            size = findByFilterWithPremiumCustomer(dataFilter, false).getRows().size()
-                    + findByFilterWithNonPremiumCustomer(dataFilter).getRows().size();
-        }
-        return size;
+        return (int) countReservedOrdersInQueueUntil(customerId < Customer.PREMIUM_ID_MAX, createdAt);
     }
 
     /**
@@ -199,44 +213,217 @@ public class OrderRepository extends GenericRepository<Order> {
      *         If there is no such order, it returns -1 for the given customerId.
      */
     public Integer checkOrderWaitTimeInQueueByCustomerId(final Long customerId) {
-        final OrderFilter dataFilter = initialiseOrderFilter(customerId);
-        if (dataFilter == null) {
+        final Date createdAt = findReservedOrderCreatedAt(customerId);
+        if (createdAt == null) {
             return -1;
         }
+        return (int) sumReservedQuantityInQueueUntil(customerId < Customer.PREMIUM_ID_MAX, createdAt);
+    }
 
-        // if customerId < Customer.PREMIUM_ID_MAX, premium customer, we deal with them first
-        int totalQuantity = 0;
-        if (customerId < Customer.PREMIUM_ID_MAX) {
-            for (final Order order : findByFilterWithPremiumCustomer(dataFilter, true).getRows()) {
-                totalQuantity += order.calculateTotalQuantity();
-            }
-        } else {
-            for (final Order order : findByFilterWithPremiumCustomer(dataFilter, false).getRows()) {
-                totalQuantity += order.calculateTotalQuantity();
-            }
-            for (final Order order : findByFilterWithNonPremiumCustomer(dataFilter).getRows()) {
-                totalQuantity += order.calculateTotalQuantity();
-            }
+    /**
+     * Count the RESERVED orders which are ahead of (or at the same time as) an order in the queue.
+     * Only the count is returned by the database, no order is loaded.
+     *
+     * @param premiumCustomer
+     *            whether or not the order belongs to a premium customer.
+     * @param createdAt
+     *            the createdAt timestamp of the order.
+     * @return the number of orders ahead in the queue, including the order itself.
+     */
+    public long countReservedOrdersInQueueUntil(final boolean premiumCustomer, final Date createdAt) {
+        return em.createQuery("Select count(o) From Order o " + queueAheadClause(premiumCustomer), Long.class)
+                .setParameter("premiumIdMax", Customer.PREMIUM_ID_MAX)
+                .setParameter("createdAt", createdAt)
+                .getSingleResult();
+    }
+
+    /**
+     * Sum the item quantity of the RESERVED orders which are ahead of (or at the same time as) an order
+     * in the queue. Only the sum is returned by the database, no order is loaded.
+     *
+     * @param premiumCustomer
+     *            whether or not the order belongs to a premium customer.
+     * @param createdAt
+     *            the createdAt timestamp of the order.
+     * @return the total quantity of the orders ahead in the queue, including the order itself.
+     */
+    public long sumReservedQuantityInQueueUntil(final boolean premiumCustomer, final Date createdAt) {
+        final Number sum = (Number) em
+                .createQuery("Select coalesce(sum(i.quantity), 0) From Order o Join o.items i "
+                        + queueAheadClause(premiumCustomer))
+                .setParameter("premiumIdMax", Customer.PREMIUM_ID_MAX)
+                .setParameter("createdAt", createdAt)
+                .getSingleResult();
+        return sum.longValue();
+    }
+
+    // premium customers only wait for the premium orders before them, non-premium customers wait
+    // for all the premium orders plus the non-premium orders before them.
+    private String queueAheadClause(final boolean premiumCustomer) {
+        if (premiumCustomer) {
+            return "WHERE o.currentStatus = " + RESERVED_STATUS_LITERAL
+                    + " And o.customer.id < :premiumIdMax And o.createdAt <= :createdAt";
         }
-        return totalQuantity;
+        return "WHERE o.currentStatus = " + RESERVED_STATUS_LITERAL
+                + " And (o.customer.id < :premiumIdMax Or o.createdAt <= :createdAt)";
     }
 
-    // initialise the order filter to be used by order position and estimated time.
-    private OrderFilter initialiseOrderFilter(final Long customerId) {
-        final OrderFilter orderFilter = createReservedOrderFilter();
-        orderFilter.setCustomerId(customerId);
-        final PaginatedData<Order> data = findByFilter(orderFilter);
+    // the createdAt of the RESERVED order of the customer, null if the customer has no order in the queue
+    private Date findReservedOrderCreatedAt(final Long customerId) {
+        final List<Date> createdAt = em
+                .createQuery("Select o.createdAt From Order o"
+                        + " Where o.customer.id = :customerId And o.currentStatus = :status", Date.class)
+                .setParameter("customerId", customerId)
+                .setParameter("status", OrderStatus.RESERVED)
+                .setMaxResults(1)
+                .getResultList();
+        return createdAt.isEmpty() ? null : createdAt.get(0);
+    }
 
-        // if there is no data, it means there is no order in db for such customer
-        // whose current status is reserved, so we just return null filter
-        if (data.getNumberOfRows() == 0) {
-            return null;
-        } else {
-            final Date orderDate = data.getRow(0).getCreatedAt(); // there should only be 1 row
-            final OrderFilter dateFilter = createReservedOrderFilter();
-            dateFilter.setEndDate(orderDate);
-            return dateFilter;
+    /**
+     * Find several orders by their IDs in one query, e.g. the orders of a delivery batch, their
+     * customer and items are fetched by the same query, not their history entries.
+     *
+     * @param ids
+     *            the order IDs.
+     * @return the orders found, in no particular order.
+     */
+    public List<Order> findByIds(final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findByIdsWithFetchPlan(ids, FetchPlan.QUANTITIES);
+    }
+
+    /**
+     * Find the current status of several orders in one query.
+     * Only the IDs and the statuses are returned by the database, no order is loaded.
+     *
+     * @param ids
+     *            the order IDs.
+     * @return the current status by order ID, the IDs which could not be found are not in the map.
+     */
+    public Map<Long, OrderStatus> findStatusesByIds(final Collection<Long> ids) {
+        final Map<Long, OrderStatus> statuses = new HashMap<>();
+        if (ids.isEmpty()) {
+            return statuses;
+        }
+        final List<Object[]> rows = em
+                .createQuery("Select o.id, o.currentStatus From Order o Where o.id In :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        for (final Object[] row : rows) {
+            statuses.put((Long) row[0], (OrderStatus) row[1]);
+        }
+        return statuses;
+    }
+
+    /**
+     * Change the status of several orders at once, the changes must have been validated already
+     * against the current statuses of the orders. The orders are updated with one bulk update by
+     * current and new status, which only updates the orders still in their current status, so an
+     * order changed by another transaction since it was validated is left as it is. Their history
+     * entries are added with one batch of inserts. An order back to a status it already had, e.g.
+     * PENDING then RESERVED again, keeps its first history entry of that status, as updateStatus
+     * does. The orders of the persistence context are not refreshed.
+     *
+     * @param newStatuses
+     *            the new status by order ID.
+     * @param currentStatuses
+     *            the status by order ID the changes have been validated against.
+     * @return the IDs of the orders whose status has been changed.
+     */
+    public Set<Long> updateStatuses(final Map<Long, OrderStatus> newStatuses,
+            final Map<Long, OrderStatus> currentStatuses) {
+        if (newStatuses.isEmpty()) {
+            return new HashSet<>();
         }
+        final Map<OrderStatus, Map<OrderStatus, List<Long>>> idsByChange = new EnumMap<>(OrderStatus.class);
+        newStatuses.forEach((id, status) -> idsByChange
+                .computeIfAbsent(currentStatuses.get(id), k -> new EnumMap<>(OrderStatus.class))
+                .computeIfAbsent(status, k -> new ArrayList<>()).add(id));
+
+        final Map<Long, OrderStatus> updatedStatuses = new HashMap<>();
+        final Set<Long> historyToLookUp = new HashSet<>();
+        idsByChange.forEach((currentStatus, idsByNewStatus) -> idsByNewStatus.forEach((newStatus, ids) -> {
+            final int updatedCount = em
+                    .createQuery("Update Order o Set o.currentStatus = :status"
+                            + " Where o.id In :ids And o.currentStatus = :currentStatus")
+                    .setParameter("status", newStatus)
+                    .setParameter("ids", ids)
+                    .setParameter("currentStatus", currentStatus)
+                    .executeUpdate();
+            if (updatedCount == ids.size()) {
+                ids.forEach(id -> updatedStatuses.put(id, newStatus));
+            } else {
+                // some orders have been changed meanwhile, an order now in the new status may have
+                // been changed by another transaction as well, so its history is looked up
+                logger.info("{} of {} orders still {} changed to {}", updatedCount, ids.size(), currentStatus,
+                        newStatus);
+                findStatusesByIds(ids).forEach((id, status) -> {
+                    if (status == newStatus) {
+                        updatedStatuses.put(id, newStatus);
+                        historyToLookUp.add(id);
+                    }
+                });
+            }
+        }));
+        insertHistoryEntries(updatedStatuses, historyToLookUp);
+        invalidateCounts();
+        return new HashSet<>(updatedStatuses.keySet());
+    }
+
+    // the history entries are an element collection, JPQL cannot insert them so they are inserted
+    // with a JDBC batch on the connection of the persistence context
+    private void insertHistoryEntries(final Map<Long, OrderStatus> newStatuses, final Set<Long> historyToLookUp) {
+        final Map<Long, OrderStatus> newEntries = withoutRecordedHistoryEntries(newStatuses, historyToLookUp);
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        final Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_HISTORY_ENTRY_SQL)) {
+                for (final Map.Entry<Long, OrderStatus> newStatus : newEntries.entrySet()) {
+                    statement.setLong(1, newStatus.getKey());
+                    statement.setString(2, newStatus.getValue().name());
+                    statement.setTimestamp(3, createdAt);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        // the persistence provider does not see the statements of the connection
+        StatementStatistics.recordStatement(INSERT_HISTORY_ENTRY_SQL);
+    }
+
+    // (order_id, status) is the primary key of the history, so the entries already recorded are
+    // left out. DELIVERED and CANCELLED are final, an order cannot have had them already, so only
+    // the changes back to RESERVED or PENDING and the orders also changed by another transaction
+    // are looked up
+    private Map<Long, OrderStatus> withoutRecordedHistoryEntries(final Map<Long, OrderStatus> newStatuses,
+            final Set<Long> historyToLookUp) {
+        final Map<Long, OrderStatus> newEntries = new HashMap<>(newStatuses);
+        final Map<Long, OrderStatus> revisitedStatuses = new HashMap<>();
+        newStatuses.forEach((id, status) -> {
+            if (status == OrderStatus.RESERVED || status == OrderStatus.PENDING || historyToLookUp.contains(id)) {
+                revisitedStatuses.put(id, status);
+            }
+        });
+        if (revisitedStatuses.isEmpty()) {
+            return newEntries;
+        }
+        final List<Object[]> rows = em
+                .createQuery("Select o.id, h.status From Order o Join o.historyEntries h"
+                        + " Where o.id In :ids And h.status In :statuses", Object[].class)
+                .setParameter("ids", revisitedStatuses.keySet())
+                .setParameter("statuses", new HashSet<>(revisitedStatuses.values()))
+                .getResultList();
+        for (final Object[] row : rows) {
+            if (row[1] == revisitedStatuses.get(row[0])) {
+                newEntries.remove(row[0]);
+            }
+        }
+        return newEntries;
     }
 
     /**
@@ -255,15 +442,74 @@ public class OrderRepository extends GenericRepository<Order> {
     }
 
     /**
-     * Find all orders that are reserved in the queue.
+     * Find all orders that are reserved in the queue, with their items.
      *
      * @return all orders that are reserved in the queue.
      */
     public List<Order> findAllReservedOrders() {
         final OrderFilter orderFilter = createReservedOrderFilter();
+        // the queue is computed from the quantities
+        orderFilter.setFetchPlan(FetchPlan.QUANTITIES);
         return findByFilter(orderFilter).getRows();
     }
 
+    /**
+     * Find the queue statistics (position and estimated wait time) of all the orders that
+     * are reserved in the queue.
+     *
+     * The reserved orders are loaded with their total quantity in one query ordered by createdAt,
+     * then the positions and wait times are accumulated in a single pass, premium customers first.
+     * It follows the same rules as {@link #checkOrderPositionInQueueByCustomerId(Long)} and
+     * {@link #checkOrderWaitTimeInQueueByCustomerId(Long)}, orders created at the same time are counted
+     * together.
+     *
+     * @return the queue statistics of the reserved orders, in the queue order.
+     */
+    public List<OrderQueueStats> findAllReservedOrdersQueueStats() {
+        @SuppressWarnings("unchecked")
+        final List<Object[]> rows = em.createQuery(
+                "Select c.id, c.name, o.createdAt, sum(i.quantity) From Order o Join o.customer c Join o.items i"
+                        + " Where o.currentStatus = " + RESERVED_STATUS_LITERAL
+                        + " Group By o.id, c.id, c.name, o.createdAt Order By o.createdAt, o.id")
+                .getResultList();
+
+        final List<Object[]> premiumRows = new ArrayList<>();
+        final List<Object[]> nonPremiumRows = new ArrayList<>();
+        for (final Object[] row : rows) {
+            if ((Long) row[0] < Customer.PREMIUM_ID_MAX) {
+                premiumRows.add(row);
+            } else {
+                nonPremiumRows.add(row);
+            }
+        }
+
+        final List<OrderQueueStats> queueStats = new ArrayList<>(rows.size());
+        final int[] totals = new int[2]; // position and wait time carried over between the tiers
+        accumulateQueueStats(premiumRows, totals, queueStats);
+        accumulateQueueStats(nonPremiumRows, totals, queueStats);
+        return queueStats;
+    }
+
+    // the rows are sorted by createdAt, the orders created at the same time share the same stats
+    private void accumulateQueueStats(final List<Object[]> rows, final int[] totals,
+            final List<OrderQueueStats> queueStats) {
+        int groupStart = 0;
+        while (groupStart < rows.size()) {
+            final Date createdAt = (Date) rows.get(groupStart)[2];
+            int groupEnd = groupStart;
+            while (groupEnd < rows.size() && ((Date) rows.get(groupEnd)[2]).compareTo(createdAt) == 0) {
+                totals[0]++;
+                totals[1] += ((Number) rows.get(groupEnd)[3]).intValue();
+                groupEnd++;
+            }
+            for (int i = groupStart; i < groupEnd; i++) {
+                final Object[] row = rows.get(i);
+                queueStats.add(new OrderQueueStats((Long) row[0], (String) row[1], totals[0], totals[1]));
+            }
+            groupStart = groupEnd;
+        }
+    }
+
     // And order is considered in the queue to be dealt with if its status is RESERVED.
     private OrderFilter createReservedOrderFilter() {
         final OrderFilter orderFilter = new OrderFilter();
@@ -0,0 +1,126 @@
+package com.storehouse.app.order.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics of the delivery batches by packing strategy, so the strategies can be compared.
+ * The fill ratio is the total load of the batches over their total capacity. They are exported on
+ * the metrics endpoint of the REST API.
+ *
+ * @author ejiafzh
+ *
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BatchPackingMetrics {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, StrategyMetrics> metricsByStrategy = new ConcurrentHashMap<>();
+
+    /**
+     * Record a delivery batch.
+     *
+     * @param strategyName
+     *            the name of the packing strategy which built the batch.
+     * @param orderCount
+     *            the number of orders in the batch.
+     * @param load
+     *            the total quantity of the orders in the batch.
+     * @param maxLoad
+     *            the capacity of the batch.
+     */
+    public void recordBatch(final String strategyName, final int orderCount, final int load, final int maxLoad) {
+        if (orderCount == 0) {
+            return;
+        }
+        final StrategyMetrics metrics = metricsByStrategy.computeIfAbsent(strategyName, k -> new StrategyMetrics());
+        metrics.batches.increment();
+        metrics.orders.add(orderCount);
+        // a large order alone can exceed the capacity, the batch is then full
+        metrics.load.add(Math.min(load, maxLoad));
+        metrics.capacity.add(maxLoad);
+        logger.info("Batch packed by {} with {} orders, load {}/{}", strategyName, orderCount, load, maxLoad);
+    }
+
+    /**
+     * Get the names of the strategies which built at least one batch.
+     *
+     * @return the names of the strategies, sorted.
+     */
+    public List<String> getStrategyNames() {
+        final List<String> strategyNames = new ArrayList<>(metricsByStrategy.keySet());
+        Collections.sort(strategyNames);
+        return strategyNames;
+    }
+
+    /**
+     * Get the number of batches built by a strategy.
+     *
+     * @param strategyName
+     *            the name of the packing strategy.
+     * @return the number of batches.
+     */
+    public long getBatchCount(final String strategyName) {
+        final StrategyMetrics metrics = metricsByStrategy.get(strategyName);
+        return metrics == null ? 0 : metrics.batches.sum();
+    }
+
+    /**
+     * Get the number of orders delivered in the batches built by a strategy.
+     *
+     * @param strategyName
+     *            the name of the packing strategy.
+     * @return the number of orders.
+     */
+    public long getOrderCount(final String strategyName) {
+        final StrategyMetrics metrics = metricsByStrategy.get(strategyName);
+        return metrics == null ? 0 : metrics.orders.sum();
+    }
+
+    /**
+     * Get the average number of orders in the batches built by a strategy.
+     *
+     * @param strategyName
+     *            the name of the packing strategy.
+     * @return the average batch size, 0 if there was no batch.
+     */
+    public double getAverageBatchSize(final String strategyName) {
+        final long batchCount = getBatchCount(strategyName);
+        return batchCount == 0 ? 0 : (double) getOrderCount(strategyName) / batchCount;
+    }
+
+    /**
+     * Get the fill ratio of the batches built by a strategy.
+     *
+     * @param strategyName
+     *            the name of the packing strategy.
+     * @return the fill ratio between 0 and 1, 0 if there was no batch.
+     */
+    public double getFillRatio(final String strategyName) {
+        final StrategyMetrics metrics = metricsByStrategy.get(strategyName);
+        if (metrics == null) {
+            return 0;
+        }
+        final long capacity = metrics.capacity.sum();
+        return capacity == 0 ? 0 : (double) metrics.load.sum() / capacity;
+    }
+
+    private static final class StrategyMetrics {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder load = new LongAdder();
+        private final LongAdder capacity = new LongAdder();
+    }
+}
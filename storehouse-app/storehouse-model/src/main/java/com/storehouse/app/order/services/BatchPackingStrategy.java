@@ -0,0 +1,46 @@
+package com.storehouse.app.order.services;
+
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Strategy to choose which RESERVED orders of the queue go into the next delivery batch.
+ *
+ * The strategy used by a deployment is selected with the system property
+ * {@value #STRATEGY_PROPERTY} (greedy, lookahead or knapsack) and the number of orders it may
+ * look at with {@value #LOOK_AHEAD_PROPERTY}.
+ *
+ * @author ejiafzh
+ *
+ */
+public interface BatchPackingStrategy {
+    String STRATEGY_PROPERTY = "storehouse.packing.strategy";
+    String LOOK_AHEAD_PROPERTY = "storehouse.packing.lookahead";
+
+    /**
+     * Get the name of the strategy, used to report its metrics.
+     *
+     * @return the name of the strategy.
+     */
+    String getName();
+
+    /**
+     * Get the maximum number of RESERVED orders, from the head of the queue, the strategy
+     * needs to look at.
+     *
+     * @return the number of orders to look at.
+     */
+    int getLookAhead();
+
+    /**
+     * Choose the orders of the next delivery batch.
+     *
+     * @param candidates
+     *            the events of the RESERVED orders from the head of the queue, in the queue order.
+     * @param maxLoad
+     *            the maximum load of a delivery batch.
+     * @return the chosen orders in the queue order, empty if there is no candidate.
+     */
+    List<OrderEvent> pack(List<OrderEvent> candidates, int maxLoad);
+}
@@ -4,8 +4,12 @@ import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderQueueStats;
+import com.storehouse.app.order.model.OrderStatusChange;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.Local;
 
@@ -36,6 +40,24 @@ public interface OrderServices {
      */
     Order findById(Long id);
 
+    /**
+     * Find several orders by their IDs at once.
+     *
+     * @param ids
+     *            the order IDs.
+     * @return the orders found, the IDs which could not be found are ignored.
+     */
+    List<Order> findByIds(Collection<Long> ids);
+
+    /**
+     * Find the current status of several orders at once.
+     *
+     * @param ids
+     *            the order IDs.
+     * @return the current status by order ID, the IDs which could not be found are not in the map.
+     */
+    Map<Long, OrderStatus> findStatusesByIds(Collection<Long> ids);
+
     /**
      * Update the order status.
      *
@@ -46,6 +68,17 @@ public interface OrderServices {
      */
     void updateStatus(Long id, OrderStatus newStatus);
 
+    /**
+     * Update the status of several orders in one transaction, e.g. a whole delivery batch.
+     * The changes are validated together against the current status of the orders, the valid ones
+     * are applied and the others are left out, an order can only be changed once per call.
+     *
+     * @param changes
+     *            the status changes.
+     * @return the same changes with their result.
+     */
+    List<OrderStatusChange> updateStatuses(List<OrderStatusChange> changes);
+
     /**
      * Find all the orders.
      *
@@ -106,4 +139,14 @@ public interface OrderServices {
      * @return a list of reserved orders.
      */
     List<Order> findAllReservedOrders();
+
+    /**
+     * Find the queue statistics (position and estimated wait time) of all the orders whose
+     * order status is RESERVED. The statistics are computed in one pass over the queue, so it
+     * is the same as calling {@link #checkOrderPositionInQueueByCustomerId(Long)} and
+     * {@link #checkOrderWaitTimeInQueueByCustomerId(Long)} for every reserved order.
+     *
+     * @return a list of the queue statistics, in the queue order.
+     */
+    List<OrderQueueStats> findAllReservedOrdersQueueStats();
 }
@@ -0,0 +1,67 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.order.services.BatchPackingStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the packing strategies, it guards the head of the queue from starvation:
+ * the order at the head of the queue is always in the next batch, and if it does not leave
+ * any room for another order it goes alone.
+ *
+ * @author ejiafzh
+ *
+ */
+public abstract class AbstractBatchPackingStrategy implements BatchPackingStrategy {
+    private final int lookAhead;
+
+    /**
+     * Constructor with the number of orders the strategy may look at.
+     *
+     * @param lookAhead
+     *            the number of orders to look at, at least 1.
+     */
+    protected AbstractBatchPackingStrategy(final int lookAhead) {
+        this.lookAhead = Math.max(1, lookAhead);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OrderEvent> pack(final List<OrderEvent> candidates, final int maxLoad) {
+        final List<OrderEvent> batch = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return batch;
+        }
+        final OrderEvent head = candidates.get(0);
+        batch.add(head);
+        final int remainingLoad = maxLoad - head.getQuantity();
+        if (remainingLoad > 0) {
+            final int end = Math.min(candidates.size(), lookAhead);
+            batch.addAll(packAfterHead(candidates.subList(1, end), remainingLoad));
+        }
+        return batch;
+    }
+
+    /**
+     * Choose the orders which go in the batch with the head of the queue.
+     *
+     * @param candidates
+     *            the orders after the head of the queue, in the queue order.
+     * @param remainingLoad
+     *            the load left in the batch once the head is added.
+     * @return the chosen orders in the queue order.
+     */
+    protected abstract List<OrderEvent> packAfterHead(List<OrderEvent> candidates, int remainingLoad);
+}
@@ -0,0 +1,67 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.services.BatchPackingStrategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory of the packing strategy configured for the deployment.
+ *
+ * @author ejiafzh
+ *
+ */
+public final class BatchPackingStrategyFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchPackingStrategyFactory.class);
+
+    public static final int DEFAULT_LOOK_AHEAD = 2 * Order.MAX_LOAD;
+
+    private BatchPackingStrategyFactory() {
+    }
+
+    /**
+     * Create the packing strategy configured by the system properties
+     * {@value BatchPackingStrategy#STRATEGY_PROPERTY} and {@value BatchPackingStrategy#LOOK_AHEAD_PROPERTY}.
+     * The greedy strategy is used by default.
+     *
+     * @return the packing strategy.
+     */
+    public static BatchPackingStrategy fromSystemProperties() {
+        final String name = System.getProperty(BatchPackingStrategy.STRATEGY_PROPERTY,
+                GreedyBatchPackingStrategy.NAME);
+        int lookAhead = DEFAULT_LOOK_AHEAD;
+        final String lookAheadProperty = System.getProperty(BatchPackingStrategy.LOOK_AHEAD_PROPERTY);
+        if (lookAheadProperty != null) {
+            try {
+                lookAhead = Integer.parseInt(lookAheadProperty.trim());
+            } catch (final NumberFormatException ex) {
+                LOGGER.warn("Invalid packing look ahead {}, using {}", lookAheadProperty, DEFAULT_LOOK_AHEAD);
+            }
+        }
+        return create(name, lookAhead);
+    }
+
+    /**
+     * Create a packing strategy by its name.
+     *
+     * @param name
+     *            the name of the strategy, greedy, lookahead or knapsack.
+     * @param lookAhead
+     *            the number of orders the strategy may look at, the greedy strategy does not use it.
+     * @return the packing strategy, the greedy one if the name is unknown.
+     */
+    public static BatchPackingStrategy create(final String name, final int lookAhead) {
+        switch (name.trim().toLowerCase()) {
+            case LookAheadBatchPackingStrategy.NAME:
+                return new LookAheadBatchPackingStrategy(lookAhead);
+            case KnapsackBatchPackingStrategy.NAME:
+                return new KnapsackBatchPackingStrategy(lookAhead);
+            case GreedyBatchPackingStrategy.NAME:
+                return new GreedyBatchPackingStrategy();
+            default:
+                LOGGER.warn("Unknown packing strategy {}, using {}", name, GreedyBatchPackingStrategy.NAME);
+                return new GreedyBatchPackingStrategy();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A planned delivery batch: the events of the orders chosen from the queue and the IDs of the
+ * JMS messages to be consumed, i.e. the messages of these orders plus the ones of the orders
+ * which are not RESERVED any more.
+ *
+ * @author ejiafzh
+ *
+ */
+public class DeliveryBatch {
+    private final List<String> messageIds;
+    private final List<OrderEvent> events;
+    private final long plannedAt;
+
+    /**
+     * Constructs a delivery batch planned now.
+     *
+     * @param messageIds
+     *            the IDs of the messages to be consumed.
+     * @param events
+     *            the events of the orders of the batch.
+     */
+    public DeliveryBatch(final List<String> messageIds, final List<OrderEvent> events) {
+        this.messageIds = Collections.unmodifiableList(messageIds);
+        this.events = Collections.unmodifiableList(events);
+        this.plannedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the IDs of the messages to be consumed.
+     *
+     * @return the IDs of the messages to be consumed.
+     */
+    public List<String> getMessageIds() {
+        return messageIds;
+    }
+
+    /**
+     * Get the events of the orders of the batch, in the queue order.
+     *
+     * @return the events of the orders of the batch.
+     */
+    public List<OrderEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Check whether or not the batch was planned more than the given time ago.
+     *
+     * @param maxAgeMillis
+     *            the maximum age of the batch in milliseconds.
+     * @return whether or not the batch is older than the given age.
+     */
+    public boolean isOlderThan(final long maxAgeMillis) {
+        return System.currentTimeMillis() - plannedAt > maxAgeMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "DeliveryBatch [messageIds=" + messageIds + ", events=" + events.size() + ", plannedAt=" + plannedAt
+                + "]";
+    }
+}
@@ -0,0 +1,138 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.common.utils.TransactionUtils;
+import com.storehouse.app.order.model.Order;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the next delivery batch planned in the background, so the consumption of the orders
+ * does not need to browse the queue.
+ *
+ * The queue is only browsed while planning (a message driven bean would consume the messages),
+ * the batch is planned periodically and again right after a batch is handed over. A staged batch
+ * which is missing or too old is planned on the spot, and a premium order drops the staged batch as
+ * it goes before the orders of that batch.
+ *
+ * The messages of a taken batch, staged or planned on the spot, stay in the queue until the consuming
+ * transaction is committed, so they are left out of the plans until then, and a plan which was
+ * running while a batch was taken or dropped is not staged as it may have browsed the orders of that
+ * batch, or missed the premium order.
+ *
+ * @author ejiafzh
+ *
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DeliveryBatchPlanner {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    // the orders placed since are not in the plan, an old plan is not trusted
+    static final long MAX_BATCH_AGE_MS = 30000L;
+
+    @Inject
+    OrderEventReceiver orderEventReceiver;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final AtomicReference<DeliveryBatch> stagedBatch = new AtomicReference<>();
+    private final AtomicBoolean planning = new AtomicBoolean();
+    // incremented whenever a batch is taken or dropped
+    private final AtomicLong batchVersion = new AtomicLong();
+    // the messages of the batches being consumed
+    private final Set<String> takenMessageIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Plan the next delivery batch in the background.
+     */
+    @Asynchronous
+    public void planNextBatchAsync() {
+        planNextBatch();
+    }
+
+    /**
+     * Plan the next delivery batch and stage it, it is skipped if a planning is in progress.
+     */
+    @Schedule(second = "*/15", minute = "*", hour = "*", persistent = false)
+    public void planNextBatch() {
+        if (!planning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long versionBefore = batchVersion.get();
+            final DeliveryBatch batch = orderEventReceiver.planBatch(new HashSet<>(takenMessageIds));
+            stagedBatch.set(batch);
+            // checked once staged, so a batch taken or dropped while staging is not missed either
+            if (batchVersion.get() == versionBefore) {
+                logger.debug("Delivery batch staged: {}", batch);
+            } else {
+                stagedBatch.compareAndSet(batch, null);
+                logger.debug("A batch was taken or dropped while planning, the delivery batch is not staged: {}",
+                        batch);
+            }
+        } catch (final JMSException | RuntimeException ex) {
+            logger.error("Failed to plan the next delivery batch", ex);
+        } finally {
+            planning.set(false);
+        }
+    }
+
+    /**
+     * Take the staged delivery batch and consume it from the queue.
+     * If there is no recent staged batch, the batch is planned now.
+     *
+     * @return a list of the orders to be delivered.
+     * @throws JMSException
+     *             if any JMS exception occurs.
+     */
+    public List<Order> takeStagedBatch() throws JMSException {
+        batchVersion.incrementAndGet();
+        DeliveryBatch batch = stagedBatch.getAndSet(null);
+        if (batch == null || batch.getEvents().isEmpty() || batch.isOlderThan(MAX_BATCH_AGE_MS)) {
+            logger.info("No delivery batch staged, planning it now");
+            batch = orderEventReceiver.planBatch(new HashSet<>(takenMessageIds));
+        }
+        final List<String> messageIds = batch.getMessageIds();
+        takenMessageIds.addAll(messageIds);
+        // committed, the messages are gone; rolled back, they may be planned again
+        TransactionUtils.runAfterCompletion(transactionRegistry, () -> takenMessageIds.removeAll(messageIds));
+        return orderEventReceiver.consumeBatch(batch);
+    }
+
+    /**
+     * Drop the staged delivery batch, e.g. a premium order has been placed and goes before the orders
+     * of that batch. The batch is dropped again once the transaction placing the order is committed,
+     * as its message is only in the queue from then on and a plan running meanwhile would miss it.
+     */
+    public void dropStagedBatch() {
+        dropBatch();
+        TransactionUtils.runAfterCommit(transactionRegistry, this::dropBatch);
+    }
+
+    private void dropBatch() {
+        batchVersion.incrementAndGet();
+        if (stagedBatch.getAndSet(null) != null) {
+            logger.debug("Staged delivery batch dropped");
+        }
+    }
+}
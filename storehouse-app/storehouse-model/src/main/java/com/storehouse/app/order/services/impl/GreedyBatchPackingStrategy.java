@@ -0,0 +1,51 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packing in strict queue order: the orders are added until the first one which does not fit.
+ * This is the original behaviour of the order consumption.
+ *
+ * @author ejiafzh
+ *
+ */
+public class GreedyBatchPackingStrategy extends AbstractBatchPackingStrategy {
+    public static final String NAME = "greedy";
+
+    /**
+     * Each order has at least one item, so no more than {@link Order#MAX_LOAD} orders can fit.
+     */
+    public GreedyBatchPackingStrategy() {
+        super(Order.MAX_LOAD);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<OrderEvent> packAfterHead(final List<OrderEvent> candidates, final int remainingLoad) {
+        final List<OrderEvent> batch = new ArrayList<>();
+        int load = remainingLoad;
+        for (final OrderEvent order : candidates) {
+            final int quantity = order.getQuantity();
+            if (quantity > load) {
+                break;
+            }
+            batch.add(order);
+            load -= quantity;
+        }
+        return batch;
+    }
+}
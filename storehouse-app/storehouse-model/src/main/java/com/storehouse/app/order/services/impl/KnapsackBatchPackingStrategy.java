@@ -0,0 +1,70 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optimal packing of the next orders of the queue: a 0/1 knapsack, solved by dynamic programming,
+ * chooses the orders filling the most of the batch. Among the best fillings the earliest orders of
+ * the queue are preferred. The cost is O(lookAhead * MAX_LOAD).
+ *
+ * @author ejiafzh
+ *
+ */
+public class KnapsackBatchPackingStrategy extends AbstractBatchPackingStrategy {
+    public static final String NAME = "knapsack";
+
+    /**
+     * Constructor with the number of orders to choose from.
+     *
+     * @param lookAhead
+     *            the number of orders to look at.
+     */
+    public KnapsackBatchPackingStrategy(final int lookAhead) {
+        super(lookAhead);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<OrderEvent> packAfterHead(final List<OrderEvent> candidates, final int remainingLoad) {
+        final int count = candidates.size();
+        final int[] quantities = new int[count];
+        for (int i = 0; i < count; i++) {
+            quantities[i] = candidates.get(i).getQuantity();
+        }
+
+        // best[i][load] is the best filling using the orders from i to the end with the given load
+        final int[][] best = new int[count + 1][remainingLoad + 1];
+        for (int i = count - 1; i >= 0; i--) {
+            for (int load = 0; load <= remainingLoad; load++) {
+                best[i][load] = best[i + 1][load];
+                if (quantities[i] <= load) {
+                    best[i][load] = Math.max(best[i][load], quantities[i] + best[i + 1][load - quantities[i]]);
+                }
+            }
+        }
+
+        // walk the queue from the head and take an order whenever it keeps the best filling
+        final List<OrderEvent> batch = new ArrayList<>();
+        int load = remainingLoad;
+        for (int i = 0; i < count && load > 0; i++) {
+            if (quantities[i] <= load && quantities[i] + best[i + 1][load - quantities[i]] == best[i][load]) {
+                batch.add(candidates.get(i));
+                load -= quantities[i];
+            }
+        }
+        return batch;
+    }
+}
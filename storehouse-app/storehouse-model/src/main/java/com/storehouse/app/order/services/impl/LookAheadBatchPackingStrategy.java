@@ -0,0 +1,56 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * First-fit packing within a window of the next orders of the queue: an order which does not fit
+ * is skipped and the next ones are still tried, so a large order does not leave the rest of the
+ * batch empty. The orders are tried in the queue order, premium customers first.
+ *
+ * @author ejiafzh
+ *
+ */
+public class LookAheadBatchPackingStrategy extends AbstractBatchPackingStrategy {
+    public static final String NAME = "lookahead";
+
+    /**
+     * Constructor with the size of the window.
+     *
+     * @param lookAhead
+     *            the number of orders to look at.
+     */
+    public LookAheadBatchPackingStrategy(final int lookAhead) {
+        super(lookAhead);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<OrderEvent> packAfterHead(final List<OrderEvent> candidates, final int remainingLoad) {
+        final List<OrderEvent> batch = new ArrayList<>();
+        int load = remainingLoad;
+        for (final OrderEvent order : candidates) {
+            if (load == 0) {
+                break;
+            }
+            final int quantity = order.getQuantity();
+            if (quantity <= load) {
+                batch.add(order);
+                load -= quantity;
+            }
+        }
+        return batch;
+    }
+}
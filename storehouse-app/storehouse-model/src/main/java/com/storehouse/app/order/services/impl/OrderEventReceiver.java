@@ -2,19 +2,26 @@ package com.storehouse.app.order.services.impl;
 
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.order.services.BatchPackingMetrics;
+import com.storehouse.app.order.services.BatchPackingStrategy;
 import com.storehouse.app.order.services.OrderServices;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
 import javax.jms.JMSException;
-import javax.jms.ObjectMessage;
+import javax.jms.Message;
 import javax.jms.Queue;
 import javax.jms.QueueBrowser;
 
@@ -26,6 +33,11 @@ import org.slf4j.LoggerFactory;
  * Whenever orders are consumed, this receiver will be invoked to take orders from
  * the queue.
  *
+ * The queue is browsed first, the packing strategy of the deployment chooses the orders of
+ * the delivery batch among the RESERVED ones, then the chosen messages and the messages of the
+ * orders which are not RESERVED any more are consumed by their message ID. The planning and the
+ * consumption can happen at different times, see {@link DeliveryBatchPlanner}.
+ *
  * @author ejiafzh
  *
  */
@@ -33,9 +45,19 @@ import org.slf4j.LoggerFactory;
 public class OrderEventReceiver {
     private Logger logger = LoggerFactory.getLogger(getClass());
 
+    // a delivery cannot hold more orders than its maximum load, unless some of them are cancelled
+    private static final int BROWSE_WINDOW_SIZE = Order.MAX_LOAD;
+
+    // the chosen messages have been browsed already, we only wait for them to be delivered,
+    // this is the time given to the whole batch
+    private static final long RECEIVE_TIMEOUT_MS = 1000L;
+
     @Inject
     private OrderServices orderServices;
 
+    @Inject
+    private BatchPackingMetrics batchPackingMetrics;
+
     // configures our JMS queue
     @Resource(mappedName = "java:/jms/queue/Orders")
     private Queue ordersQueue;
@@ -43,83 +65,166 @@ public class OrderEventReceiver {
     @Inject
     private JMSContext jmsContext;
 
+    private BatchPackingStrategy packingStrategy;
+
     /**
-     * Receive an order from the queue and process them.
+     * Create the packing strategy configured for the deployment.
+     */
+    @PostConstruct
+    public void init() {
+        packingStrategy = BatchPackingStrategyFactory.fromSystemProperties();
+        logger.info("Orders are packed with the {} strategy", packingStrategy.getName());
+    }
+
+    /**
+     * Plan the next delivery batch, the queue is only browsed and nothing is consumed.
      *
+     * @param excludedMessageIds
+     *            the IDs of the messages which are left out, e.g. the ones being consumed.
+     * @return the planned delivery batch.
+     * @throws JMSException
+     *             if any JMS exception occurs.
+     */
+    public DeliveryBatch planBatch(final Set<String> excludedMessageIds) throws JMSException {
+        final Map<Long, String> messageIdsByOrderId = new HashMap<>();
+        final List<String> messageIdsToConsume = new ArrayList<>();
+
+        final List<OrderEvent> candidates = browseCandidates(createQueueBrowser(), excludedMessageIds,
+                messageIdsByOrderId, messageIdsToConsume);
+        final List<OrderEvent> batch = packingStrategy.pack(candidates, Order.MAX_LOAD);
+        for (final OrderEvent event : batch) {
+            messageIdsToConsume.add(messageIdsByOrderId.get(event.getOrderId()));
+        }
+        return new DeliveryBatch(messageIdsToConsume, batch);
+    }
+
+    /**
+     * Consume the messages of a planned delivery batch.
+     * The orders which are not RESERVED any more, or whose message has been consumed in the meantime,
+     * are left out of the batch.
+     *
+     * @param batch
+     *            the planned delivery batch.
      * @return a list of the orders to be delivered.
      * @throws JMSException
      *             if any JMS exception occurs.
      */
-    public List<Order> receiveOrder() throws JMSException {
+    public List<Order> consumeBatch(final DeliveryBatch batch) throws JMSException {
+        final List<String> messageIdsToConsume = batch.getMessageIds();
+        logger.info("We will consume {} orders from the queue", messageIdsToConsume.size());
         final List<Order> consumedOrders = new ArrayList<>();
-
-        final Enumeration<ObjectMessage> messages = createQueueBrowser();
-        final int orderCountToConsume = checkOrderCountToConsume(messages);
-
-        logger.info("We will consume {} orders from the queue", orderCountToConsume);
-        final JMSConsumer jmsConsumer = jmsContext.createConsumer(ordersQueue);
-        consumeOrder(consumedOrders, orderCountToConsume, jmsConsumer);
+        if (!messageIdsToConsume.isEmpty()) {
+            try (JMSConsumer jmsConsumer = jmsContext.createConsumer(ordersQueue,
+                    createMessageIdSelector(messageIdsToConsume))) {
+                consumeOrder(consumedOrders, messageIdsToConsume.size(), jmsConsumer);
+            }
+        }
+        recordBatch(consumedOrders);
         return consumedOrders;
     }
 
-    // consume order from the queue
+    // consume order from the queue, the statuses could have changed since the queue was browsed
+    // (e.g. cancelled), so the orders are loaded again all at once
     private void consumeOrder(final List<Order> consumedOrders, final int orderCountToConsume,
-            final JMSConsumer jmsConsumer) {
+            final JMSConsumer jmsConsumer) throws JMSException {
+        final List<OrderEvent> receivedEvents = new ArrayList<>(orderCountToConsume);
+        final long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT_MS;
         for (int i = 0; i < orderCountToConsume; i++) {
-            consumeAndAddToList(consumedOrders, jmsConsumer);
+            final Message message = jmsConsumer.receive(Math.max(deadline - System.currentTimeMillis(), 1L));
+            if (message == null) {
+                // the message has been consumed by somebody else in the meantime, or it is locked
+                // for a moment, the other messages of the selector are still received
+                continue;
+            }
+            receivedEvents.add(OrderEvent.fromMessage(message));
+        }
+
+        final Map<Long, Order> ordersById = new HashMap<>();
+        for (final Order order : orderServices.findByIds(getIds(receivedEvents))) {
+            ordersById.put(order.getId(), order);
+        }
+        for (final OrderEvent event : receivedEvents) {
+            final Order order = ordersById.get(event.getOrderId());
+            if (order == null || order.getCurrentStatus() != OrderStatus.RESERVED) {
+                // this could mean the order has been cancelled.
+                continue;
+            }
+            logger.debug("Order received: {}", event);
+            consumedOrders.add(order);
+        }
+    }
+
+    // browse the RESERVED orders the packing strategy may choose from. The messages are browsed
+    // by window and the statuses of a window are checked in the database with a single query, the
+    // messages of the orders which are not RESERVED any more are to be consumed and dumped.
+    private List<OrderEvent> browseCandidates(final Enumeration<Message> messages,
+            final Set<String> excludedMessageIds, final Map<Long, String> messageIdsByOrderId,
+            final List<String> deadMessageIds) throws JMSException {
+        final int lookAhead = packingStrategy.getLookAhead();
+        final List<OrderEvent> candidates = new ArrayList<>();
+        final List<Message> window = new ArrayList<>(BROWSE_WINDOW_SIZE);
+        final List<OrderEvent> windowEvents = new ArrayList<>(BROWSE_WINDOW_SIZE);
+        while (messages.hasMoreElements() && candidates.size() < lookAhead) {
+            window.clear();
+            windowEvents.clear();
+            while (messages.hasMoreElements() && window.size() < BROWSE_WINDOW_SIZE) {
+                final Message message = messages.nextElement();
+                if (excludedMessageIds.contains(message.getJMSMessageID())) {
+                    continue;
+                }
+                window.add(message);
+                windowEvents.add(OrderEvent.fromMessage(message));
+            }
+
+            final Map<Long, OrderStatus> statuses = orderServices.findStatusesByIds(getIds(windowEvents));
+            for (int i = 0; i < window.size(); i++) {
+                final OrderEvent eventToCheck = windowEvents.get(i);
+                if (statuses.get(eventToCheck.getOrderId()) != OrderStatus.RESERVED) {
+                    // this could mean the order has been cancelled.
+                    logger.info("Order {} status is not RESERVED, skip it", eventToCheck.getOrderId());
+                    deadMessageIds.add(window.get(i).getJMSMessageID());
+                } else if (candidates.size() < lookAhead) {
+                    candidates.add(eventToCheck);
+                    messageIdsByOrderId.put(eventToCheck.getOrderId(), window.get(i).getJMSMessageID());
+                }
+            }
         }
+        return candidates;
     }
 
-    // consume the item from the queue and add to list
-    private void consumeAndAddToList(final List<Order> consumedOrders, final JMSConsumer jmsConsumer) {
-        final Order order = jmsConsumer.receiveBody(Order.class, 0);
+    private void recordBatch(final List<Order> batch) {
+        int load = 0;
+        for (final Order order : batch) {
+            load += order.calculateTotalQuantity();
+        }
+        batchPackingMetrics.recordBatch(packingStrategy.getName(), batch.size(), load, Order.MAX_LOAD);
+    }
 
-        final Order dbOrder = orderServices.findById(order.getId());
-        if (dbOrder.getCurrentStatus() != OrderStatus.RESERVED) {
-            // this could mean the order has been cancelled.
-            return;
+    private List<Long> getIds(final List<OrderEvent> events) {
+        final List<Long> ids = new ArrayList<>(events.size());
+        for (final OrderEvent event : events) {
+            ids.add(event.getOrderId());
         }
-        logger.debug("Order received: {}", order);
-        consumedOrders.add(order);
+        return ids;
     }
 
-    // check order count to be consumed
-    private int checkOrderCountToConsume(final Enumeration<ObjectMessage> messages) throws JMSException {
-        int currentCapacity = 0;
-        int orderCountToConsume = 0;
-        while (messages.hasMoreElements()) {
-            final ObjectMessage message = messages.nextElement();
-            final Order orderToCheck = (Order) message.getObject();
-
-            // we need to perform a check in the database and see its current state
-            // if it is canceled, we will consume and simply dump it.
-            final Order dbOrder = orderServices.findById(orderToCheck.getId());
-            if (dbOrder.getCurrentStatus() != OrderStatus.RESERVED) {
-                // this could mean the order has been cancelled.
-                // we simply ignore it and continue the next item
-                logger.info("Order {} status is not RESERVED, skip it", orderToCheck.getId());
-                orderCountToConsume++;
-                continue;
-            }
-            if (currentCapacity == 0 && orderToCheck.calculateTotalQuantity() >= Order.MAX_LOAD) {
-                // means next is a large order
-                orderCountToConsume = 1;
-                break;
-            } else if (currentCapacity + orderToCheck.calculateTotalQuantity() <= Order.MAX_LOAD) {
-                currentCapacity += orderToCheck.calculateTotalQuantity();
-                orderCountToConsume++;
-            } else {
-                break;
+    // selector matching the given messages only
+    private String createMessageIdSelector(final List<String> messageIds) {
+        final StringBuilder selector = new StringBuilder("JMSMessageID IN (");
+        for (int i = 0; i < messageIds.size(); i++) {
+            if (i > 0) {
+                selector.append(", ");
             }
+            selector.append('\'').append(messageIds.get(i).replace("'", "''")).append('\'');
         }
-        return orderCountToConsume;
+        return selector.append(')').toString();
     }
 
     // we need to browse the queue first to check how many items to retrieve
     @SuppressWarnings("unchecked")
-    private Enumeration<ObjectMessage> createQueueBrowser() throws JMSException {
+    private Enumeration<Message> createQueueBrowser() throws JMSException {
         final QueueBrowser queueBrowser = jmsContext.createBrowser(ordersQueue);
-        final Enumeration<ObjectMessage> messages = queueBrowser.getEnumeration();
+        final Enumeration<Message> messages = queueBrowser.getEnumeration();
         return messages;
     }
 }
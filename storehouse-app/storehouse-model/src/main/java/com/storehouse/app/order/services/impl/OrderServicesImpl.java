@@ -7,9 +7,14 @@ import com.storehouse.app.common.exception.OrderStatusCannotBeChangedException;
 import com.storehouse.app.common.exception.UserNotAuthorizedException;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.OrderFilter;
+import com.storehouse.app.common.security.TokenCaller;
 import com.storehouse.app.common.utils.ValidationUtils;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.order.model.OrderQueueStats;
+import com.storehouse.app.order.model.OrderStatusChange;
+import com.storehouse.app.order.model.OrderStatusChange.Result;
 import com.storehouse.app.order.repository.OrderRepository;
 import com.storehouse.app.order.services.OrderServices;
 import com.storehouse.app.user.model.Customer;
@@ -17,13 +22,22 @@ import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.model.User.Roles;
 import com.storehouse.app.user.services.UserServices;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.jms.JMSConnectionFactory;
+import javax.jms.JMSConsumer;
 import javax.jms.JMSContext;
 import javax.jms.JMSProducer;
 import javax.jms.Queue;
@@ -48,6 +62,12 @@ public class OrderServicesImpl implements OrderServices {
     @Inject
     UserServices userServices;
 
+    @Inject
+    ReservationIndex reservationIndex;
+
+    @Inject
+    DeliveryBatchPlanner deliveryBatchPlanner;
+
     @Inject
     Validator validator;
 
@@ -56,13 +76,31 @@ public class OrderServicesImpl implements OrderServices {
     @Resource
     SessionContext sessionContext;
 
+    // the caller when it is authenticated by a token instead of the security domain
+    @Inject
+    TokenCaller tokenCaller;
+
     // configures our JMS queue
     @Resource(mappedName = "java:/jms/queue/Orders")
-    private Queue ordersQueue;
+    Queue ordersQueue;
 
     @Inject
     @JMSConnectionFactory("java:jboss/DefaultJMSConnectionFactory")
-    private JMSContext jmsContext;
+    JMSContext jmsContext;
+
+    private String getCallerName() {
+        if (tokenCaller.isAuthenticated()) {
+            return tokenCaller.getName();
+        }
+        return sessionContext.getCallerPrincipal().getName();
+    }
+
+    private boolean isCallerInRole(final Roles role) {
+        if (tokenCaller.isAuthenticated()) {
+            return tokenCaller.isInRole(role.name());
+        }
+        return sessionContext.isCallerInRole(role.name());
+    }
 
     /**
      * A customer must login first with his/her email as principle to place a
@@ -73,7 +111,7 @@ public class OrderServicesImpl implements OrderServices {
      *            to be placed.
      */
     private void setCustomerOnOrder(final Order order) {
-        final User user = userServices.findByEmail(sessionContext.getCallerPrincipal().getName());
+        final User user = userServices.findByEmail(getCallerName());
         validateOrderClientId(order, user);
         validateOneOrderPerClient(order.getCustomer().getId());
         order.setCustomer((Customer) user);
@@ -132,6 +170,11 @@ public class OrderServicesImpl implements OrderServices {
         // sends order event to the queue
         final Order addedOrder = orderRepository.add(order);
         sendEvent(addedOrder);
+        reservationIndex.add(addedOrder);
+        if (order.getCustomer().isPremiumCustomer()) {
+            // the staged delivery batch was planned without this order, which goes before its orders
+            deliveryBatchPlanner.dropStagedBatch();
+        }
 
         return addedOrder;
     }
@@ -148,6 +191,22 @@ public class OrderServicesImpl implements OrderServices {
         return order;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Order> findByIds(final Collection<Long> ids) {
+        return orderRepository.findByIds(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Long, OrderStatus> findStatusesByIds(final Collection<Long> ids) {
+        return orderRepository.findStatusesByIds(ids);
+    }
+
     private void addNewStatusToHistory(final OrderStatus newStatus, final Order order) {
         try {
             order.addHistoryEntry(newStatus);
@@ -162,28 +221,106 @@ public class OrderServicesImpl implements OrderServices {
     @Override
     public void updateStatus(final Long id, final OrderStatus newStatus) {
         final Order order = findById(id);
+        final OrderStatus previousStatus = order.getCurrentStatus();
 
-        // only employee can make this order delivered
-        if (newStatus == OrderStatus.DELIVERED) {
-            if (!sessionContext.isCallerInRole(Roles.EMPLOYEE.name())) {
-                throw new UserNotAuthorizedException();
-            }
-        }
-
-        // only the customer who made this order can cancel this order
-        if (newStatus == OrderStatus.CANCELLED) {
-            if (sessionContext.isCallerInRole(Roles.CUSTOMER.name())) {
-                if (!order.getCustomer().getEmail().equals(sessionContext.getCallerPrincipal().getName())) {
-                    throw new UserNotAuthorizedException();
-                }
-            }
-            // if it is an employee or admin, it is OK to cancel order
+        if (!isStatusChangeAuthorized(order, newStatus, isCallerInRole(Roles.EMPLOYEE),
+                isCallerInRole(Roles.CUSTOMER) ? getCallerName() : null)) {
+            throw new UserNotAuthorizedException();
         }
 
         addNewStatusToHistory(newStatus, order);
 
         order.setCurrentStatus(newStatus);
         orderRepository.update(order);
+
+        // cancelled, consumed or delivered, the order is not in the queue any more
+        if (newStatus == OrderStatus.RESERVED) {
+            reservationIndex.add(order);
+        } else {
+            reservationIndex.remove(order);
+        }
+        if (previousStatus == OrderStatus.RESERVED
+                && (newStatus == OrderStatus.CANCELLED || newStatus == OrderStatus.DELIVERED)) {
+            purgeEvent(order);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The orders are loaded with one query and updated with a bulk update by current and new
+     * status, their history entries are inserted in one batch. An order changed by another
+     * transaction since it was loaded is not updated and its change is NOT_ALLOWED.
+     */
+    @Override
+    public List<OrderStatusChange> updateStatuses(final List<OrderStatusChange> changes) {
+        final Set<Long> ids = new HashSet<>();
+        for (final OrderStatusChange change : changes) {
+            ids.add(change.getOrderId());
+        }
+        final Map<Long, Order> ordersById = new HashMap<>();
+        for (final Order order : orderRepository.findByIds(ids)) {
+            ordersById.put(order.getId(), order);
+        }
+
+        final boolean employee = isCallerInRole(Roles.EMPLOYEE);
+        final String customerName = isCallerInRole(Roles.CUSTOMER) ? getCallerName() : null;
+        final Map<Long, OrderStatus> newStatuses = new LinkedHashMap<>();
+        final Map<Long, OrderStatus> currentStatuses = new HashMap<>();
+        final Set<Long> changedIds = new HashSet<>();
+        for (final OrderStatusChange change : changes) {
+            final Order order = ordersById.get(change.getOrderId());
+            if (!changedIds.add(change.getOrderId())) {
+                change.setResult(Result.NOT_ALLOWED);
+            } else if (order == null) {
+                change.setResult(Result.NOT_FOUND);
+            } else if (!isStatusChangeAuthorized(order, change.getNewStatus(), employee, customerName)) {
+                change.setResult(Result.FORBIDDEN);
+            } else if (!order.getCurrentStatus().canChangeTo(change.getNewStatus())) {
+                change.setResult(Result.NOT_ALLOWED);
+            } else {
+                change.setResult(Result.UPDATED);
+                newStatuses.put(order.getId(), change.getNewStatus());
+                currentStatuses.put(order.getId(), order.getCurrentStatus());
+            }
+        }
+        final Set<Long> updatedIds = orderRepository.updateStatuses(newStatuses, currentStatuses);
+        for (final OrderStatusChange change : changes) {
+            if (change.getResult() == Result.UPDATED && !updatedIds.contains(change.getOrderId())) {
+                change.setResult(Result.NOT_ALLOWED);
+            }
+        }
+        newStatuses.keySet().retainAll(updatedIds);
+
+        // the orders loaded above still have their previous status
+        final List<Long> leftQueueIds = new ArrayList<>();
+        newStatuses.forEach((id, newStatus) -> {
+            final Order order = ordersById.get(id);
+            if (newStatus == OrderStatus.RESERVED) {
+                reservationIndex.add(order);
+            } else {
+                reservationIndex.remove(order);
+            }
+            if (order.getCurrentStatus() == OrderStatus.RESERVED
+                    && (newStatus == OrderStatus.CANCELLED || newStatus == OrderStatus.DELIVERED)) {
+                leftQueueIds.add(id);
+            }
+        });
+        purgeEvents(leftQueueIds);
+        logger.info("{} of {} order status changes applied", newStatuses.size(), changes.size());
+        return changes;
+    }
+
+    // the rules of updateStatus and updateStatuses: only an employee delivers, a customer only
+    // cancels its own orders, an employee or an admin cancels any order
+    private boolean isStatusChangeAuthorized(final Order order, final OrderStatus newStatus, final boolean employee,
+            final String customerName) {
+        if (newStatus == OrderStatus.DELIVERED) {
+            return employee;
+        }
+        if (newStatus == OrderStatus.CANCELLED && customerName != null) {
+            return order.getCustomer().getEmail().equals(customerName);
+        }
+        return true;
     }
 
     /**
@@ -215,6 +352,11 @@ public class OrderServicesImpl implements OrderServices {
      */
     @Override
     public Integer checkOrderPositionInQueueByCustomerId(final Long customerId) {
+        final Integer position = reservationIndex.findPosition(customerId);
+        if (position != null) {
+            return position;
+        }
+        // not in the index, e.g. placed on another node, we ask the database
         return orderRepository.checkOrderPositionInQueueByCustomerId(customerId);
     }
 
@@ -223,6 +365,10 @@ public class OrderServicesImpl implements OrderServices {
      */
     @Override
     public Integer checkOrderWaitTimeInQueueByCustomerId(final Long customerId) {
+        final Integer waitTime = reservationIndex.findWaitTime(customerId);
+        if (waitTime != null) {
+            return waitTime;
+        }
         return orderRepository.checkOrderWaitTimeInQueueByCustomerId(customerId);
     }
 
@@ -231,12 +377,23 @@ public class OrderServicesImpl implements OrderServices {
      */
     @Override
     public List<Order> findAllReservedOrders() {
-        if (sessionContext.isCallerInRole(Roles.CUSTOMER.name())) {
+        if (isCallerInRole(Roles.CUSTOMER)) {
             throw new UserNotAuthorizedException();
         }
         return orderRepository.findAllReservedOrders();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OrderQueueStats> findAllReservedOrdersQueueStats() {
+        if (isCallerInRole(Roles.CUSTOMER)) {
+            throw new UserNotAuthorizedException();
+        }
+        return orderRepository.findAllReservedOrdersQueueStats();
+    }
+
     /**
      * Send an event to the queue.
      *
@@ -249,7 +406,51 @@ public class OrderServicesImpl implements OrderServices {
             final JMSProducer producer = jmsContext.createProducer();
             final Customer customer = order.getCustomer();
             setQueuePriority(producer, customer);
-            producer.send(ordersQueue, order);
+            // only the event is sent, not the order entity
+            OrderEvent.fromOrder(order).setOn(producer).send(ordersQueue, jmsContext.createMessage());
+        }
+    }
+
+    /**
+     * Remove the event of an order which left the queue without being consumed (e.g. cancelled),
+     * so the consumption never sees it.
+     *
+     * @param order
+     *            the order whose event is removed.
+     */
+    private void purgeEvent(final Order order) {
+        purgeEvents(Collections.singletonList(order.getId()));
+    }
+
+    /**
+     * Remove the events of orders which left the queue without being consumed. The messages are
+     * received with a selector on their orderId property, in the same transaction as the status
+     * changes.
+     *
+     * @param orderIds
+     *            the IDs of the orders whose events are removed.
+     */
+    private void purgeEvents(final List<Long> orderIds) {
+        if (jmsContext == null || orderIds.isEmpty()) {
+            return;
+        }
+        final StringBuilder selector = new StringBuilder();
+        for (final Long orderId : orderIds) {
+            if (selector.length() > 0) {
+                selector.append(" OR ");
+            }
+            selector.append(OrderEvent.ORDER_ID).append(" = ").append(orderId);
+        }
+        try (JMSConsumer consumer = jmsContext.createConsumer(ordersQueue, selector.toString())) {
+            int purged = 0;
+            // receiveNoWait asks the server, a message may be missing if it is being consumed
+            while (purged < orderIds.size() && consumer.receiveNoWait() != null) {
+                purged++;
+            }
+            if (purged < orderIds.size()) {
+                logger.info("{} of the events of the orders {} not in the orders queue", orderIds.size() - purged,
+                        orderIds);
+            }
         }
     }
 
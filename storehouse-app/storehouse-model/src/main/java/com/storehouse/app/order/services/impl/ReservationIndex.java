@@ -0,0 +1,437 @@
+package com.storehouse.app.order.services.impl;
+
+import com.storehouse.app.common.utils.TransactionUtils;
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.repository.OrderRepository;
+import com.storehouse.app.user.model.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the RESERVED orders in the queue.
+ *
+ * The queue is ordered by (premium tier, createdAt), the premium customers are always
+ * before the non-premium customers. Each tier keeps its orders in slots sorted by createdAt
+ * and two Fenwick trees holding the prefix sums of the order count and the order quantity,
+ * so the position and the estimated wait time of a customer are both answered in O(log n)
+ * without loading any entity from the database.
+ *
+ * The index is kept in sync by the order services on add, cancel and consume, the changes are
+ * applied once their transaction is committed so a rollback never shows in the index. It is also
+ * rebuilt from the database periodically, in case a change was made on another node.
+ *
+ * @author ejiafzh
+ *
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ReservationIndex {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+
+    private Index index = new Index();
+    // the changes applied while a rebuild loads the orders, null when there is no rebuild
+    private List<Consumer<Index>> changesDuringRebuild;
+
+    /**
+     * Load all the RESERVED orders when the application starts.
+     */
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from the RESERVED orders in the database.
+     * The orders are loaded before taking the lock, so the readers are only blocked while the new
+     * index is swapped in. The changes applied during the load are replayed on the new index, as
+     * the load may have read the database before they were committed.
+     */
+    @Schedule(minute = "*/5", hour = "*", persistent = false)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Index newIndex = null;
+            try {
+                newIndex = loadReservedOrders();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (newIndex != null) {
+                        // a change is idempotent, replaying one the load has already seen is harmless
+                        for (final Consumer<Index> change : changesDuringRebuild) {
+                            change.accept(newIndex);
+                        }
+                        index = newIndex;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            logger.info("Reservation index rebuilt with {} reserved orders", newIndex.size());
+        }
+    }
+
+    private Index loadReservedOrders() {
+        final Index newIndex = new Index();
+        orderRepository.findAllReservedOrders().stream().map(Entry::new)
+                .sorted(Comparator.comparingLong((final Entry e) -> e.createdAt).thenComparingLong(e -> e.orderId))
+                .forEach(newIndex::add);
+        return newIndex;
+    }
+
+    /**
+     * Add a RESERVED order into the index once the current transaction is committed.
+     * If the customer was already indexed with another order, the old one is replaced.
+     *
+     * @param order
+     *            the order to be added, it must be persisted already.
+     */
+    public void add(final Order order) {
+        if (!isIndexable(order)) {
+            return;
+        }
+        // read now, the order may not be readable any more after the transaction
+        final Entry entry = new Entry(order);
+        TransactionUtils.runAfterCommit(transactionRegistry, () -> apply(i -> i.add(entry.copy())));
+    }
+
+    /**
+     * Remove an order from the index once the current transaction is committed, this is the case
+     * when the order is not RESERVED any more (e.g. cancelled or consumed).
+     *
+     * @param order
+     *            the order to be removed.
+     */
+    public void remove(final Order order) {
+        if (!isIndexable(order)) {
+            return;
+        }
+        final long orderId = order.getId();
+        final long customerId = order.getCustomer().getId();
+        TransactionUtils.runAfterCommit(transactionRegistry, () -> apply(i -> i.remove(orderId, customerId)));
+    }
+
+    private void apply(final Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the position in the queue for the RESERVED order of the customer.
+     *
+     * @param customerId
+     *            the customer ID.
+     * @return the position in the queue, null if the customer is not in the index.
+     */
+    public Integer findPosition(final Long customerId) {
+        lock.readLock().lock();
+        try {
+            final Entry entry = index.entriesByCustomerId.get(customerId);
+            if (entry == null) {
+                return null;
+            }
+            long position = index.tierOf(entry).countUpTo(entry.createdAt);
+            if (!entry.premium) {
+                position += index.premiumTier.getLiveCount();
+            }
+            return (int) position;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the estimated wait time in the queue for the RESERVED order of the customer.
+     * It is the total quantity of the orders before the customer plus its own quantity.
+     *
+     * @param customerId
+     *            the customer ID.
+     * @return the estimated wait time, null if the customer is not in the index.
+     */
+    public Integer findWaitTime(final Long customerId) {
+        lock.readLock().lock();
+        try {
+            final Entry entry = index.entriesByCustomerId.get(customerId);
+            if (entry == null) {
+                return null;
+            }
+            long waitTime = index.tierOf(entry).quantityUpTo(entry.createdAt);
+            if (!entry.premium) {
+                waitTime += index.premiumTier.getLiveQuantity();
+            }
+            return (int) waitTime;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of orders in the index.
+     *
+     * @return the number of orders in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isIndexable(final Order order) {
+        return order.getId() != null && order.getCustomer() != null && order.getCustomer().getId() != null;
+    }
+
+    /**
+     * The indexed orders by customer and their tiers, the whole index is swapped by a rebuild.
+     */
+    private static final class Index {
+        private final Tier premiumTier = new Tier();
+        private final Tier regularTier = new Tier();
+        private final Map<Long, Entry> entriesByCustomerId = new HashMap<>();
+
+        private void add(final Entry entry) {
+            final Entry previous = entriesByCustomerId.put(entry.customerId, entry);
+            if (previous != null) {
+                tierOf(previous).remove(previous);
+            }
+            tierOf(entry).append(entry);
+        }
+
+        private void remove(final long orderId, final long customerId) {
+            final Entry entry = entriesByCustomerId.get(customerId);
+            if (entry != null && entry.orderId == orderId) {
+                entriesByCustomerId.remove(customerId);
+                tierOf(entry).remove(entry);
+            }
+        }
+
+        private int size() {
+            return entriesByCustomerId.size();
+        }
+
+        private Tier tierOf(final Entry entry) {
+            return entry.premium ? premiumTier : regularTier;
+        }
+    }
+
+    /**
+     * An indexed order, we only keep what is needed to compute the queue statistics.
+     */
+    private static final class Entry {
+        private final long orderId;
+        private final long customerId;
+        private final boolean premium;
+        private final long createdAt;
+        private final int quantity;
+        private int slot = -1;
+
+        private Entry(final Order order) {
+            this.orderId = order.getId();
+            this.customerId = order.getCustomer().getId();
+            this.premium = customerId < Customer.PREMIUM_ID_MAX;
+            this.createdAt = order.getCreatedAt().getTime();
+            this.quantity = order.calculateTotalQuantity();
+        }
+
+        private Entry(final Entry entry) {
+            this.orderId = entry.orderId;
+            this.customerId = entry.customerId;
+            this.premium = entry.premium;
+            this.createdAt = entry.createdAt;
+            this.quantity = entry.quantity;
+        }
+
+        // an entry holds its slot, so every index gets its own copy
+        private Entry copy() {
+            return new Entry(this);
+        }
+    }
+
+    /**
+     * The orders of one tier, sorted by createdAt in slots.
+     *
+     * Removing an order just clears its slot. New orders are appended at the end as they are
+     * normally the latest ones, an order older than the last slot or too many cleared slots
+     * triggers the compaction of the tier in O(n).
+     */
+    private static final class Tier {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private Entry[] slots = new Entry[INITIAL_CAPACITY];
+        private long[] countTree = new long[INITIAL_CAPACITY + 1]; // Fenwick trees are 1-based
+        private long[] quantityTree = new long[INITIAL_CAPACITY + 1];
+        private int size; // number of used slots, including the cleared ones
+        private int liveCount;
+        private long liveQuantity;
+
+        private void append(final Entry entry) {
+            if (size > 0 && slots[size - 1].createdAt > entry.createdAt) {
+                compact(entry);
+                return;
+            }
+            if (size == slots.length) {
+                if (liveCount < size / 2) {
+                    compact(entry);
+                    return;
+                }
+                resize(slots.length * 2);
+            }
+            entry.slot = size;
+            slots[size++] = entry;
+            update(entry.slot, 1, entry.quantity);
+        }
+
+        private void remove(final Entry entry) {
+            if (entry.slot >= 0) {
+                update(entry.slot, -1, -entry.quantity);
+                entry.slot = -1;
+            }
+        }
+
+        private long countUpTo(final long createdAt) {
+            return prefixSum(countTree, upperBound(createdAt));
+        }
+
+        private long quantityUpTo(final long createdAt) {
+            return prefixSum(quantityTree, upperBound(createdAt));
+        }
+
+        private long getLiveCount() {
+            return liveCount;
+        }
+
+        private long getLiveQuantity() {
+            return liveQuantity;
+        }
+
+        // number of slots whose createdAt is before or equal to the given createdAt,
+        // the cleared slots keep their entry so the slots stay sorted
+        private int upperBound(final long createdAt) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (slots[middle].createdAt <= createdAt) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void update(final int slot, final int count, final int quantity) {
+            for (int i = slot + 1; i < countTree.length; i += i & -i) {
+                countTree[i] += count;
+                quantityTree[i] += quantity;
+            }
+            liveCount += count;
+            liveQuantity += quantity;
+        }
+
+        private static long prefixSum(final long[] tree, final int length) {
+            long sum = 0;
+            for (int i = length; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        // keep the live entries only and insert the new entry in its sorted place
+        private void compact(final Entry newEntry) {
+            final Entry[] live = new Entry[liveCount + 1];
+            int index = 0;
+            for (int i = 0; i < size; i++) {
+                if (slots[i].slot >= 0) {
+                    live[index++] = slots[i];
+                }
+            }
+            live[index] = newEntry;
+            Arrays.sort(live, Comparator.comparingLong((final Entry e) -> e.createdAt)
+                    .thenComparingLong(e -> e.orderId));
+
+            slots = new Entry[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(live.length) * 2)];
+            size = live.length;
+            for (int i = 0; i < live.length; i++) {
+                live[i].slot = i;
+                slots[i] = live[i];
+            }
+            rebuildTrees();
+        }
+
+        private void resize(final int capacity) {
+            slots = Arrays.copyOf(slots, capacity);
+            rebuildTrees();
+        }
+
+        // builds both Fenwick trees from the slots in O(n)
+        private void rebuildTrees() {
+            countTree = new long[slots.length + 1];
+            quantityTree = new long[slots.length + 1];
+            liveCount = 0;
+            liveQuantity = 0;
+            for (int i = 0; i < size; i++) {
+                if (slots[i].slot >= 0) {
+                    countTree[i + 1] = 1;
+                    quantityTree[i + 1] = slots[i].quantity;
+                    liveCount++;
+                    liveQuantity += slots[i].quantity;
+                }
+            }
+            for (int i = 1; i < countTree.length; i++) {
+                final int parent = i + (i & -i);
+                if (parent < countTree.length) {
+                    countTree[parent] += countTree[i];
+                    quantityTree[parent] += quantityTree[i];
+                }
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorColumn;
@@ -15,6 +16,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
@@ -25,6 +27,8 @@ import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Email;
 
 /**
@@ -34,16 +38,24 @@ import org.hibernate.validator.constraints.Email;
  *
  * Administrator must be set directly into the database. (not through the Java API here)
  *
+ * The users are read far more often than they are written, they and their roles are kept in the
+ * second-level cache (the user region of the persistence unit).
+ *
  * @author ejiafzh
  *
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL, region = User.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type")
-@Table(name = "storehouse_user")
+@Table(name = "storehouse_user", indexes = @Index(name = "ix_user_name_id", columnList = "name, id"))
 public abstract class User implements Serializable {
     private static final long serialVersionUID = 1050881026659874901L;
 
+    public static final String CACHE_REGION = "user";
+    public static final String ROLES_CACHE_REGION = "user.roles";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -73,6 +85,7 @@ public abstract class User implements Serializable {
     @CollectionTable(name = "storehouse_user_role", joinColumns = @JoinColumn(name = "user_id"), uniqueConstraints = @UniqueConstraint(columnNames = {
             "user_id", "role" }))
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.TRANSACTIONAL, region = User.ROLES_CACHE_REGION)
     @Column(name = "role")
     @Enumerated(EnumType.STRING)
     private List<Roles> roles;
@@ -85,6 +98,9 @@ public abstract class User implements Serializable {
     @Enumerated(EnumType.STRING)
     private UserType userType; // this field is managed by JPA
 
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion; // the tokens issued before the last credentials change are rejected
+
     /**
      * Return a list of roles for a given user.
      */
@@ -235,6 +251,32 @@ public abstract class User implements Serializable {
         this.userType = userType;
     }
 
+    /**
+     * Get the version of the credentials (password, roles and email) the tokens are issued for.
+     *
+     * @return the token version.
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * Set the version of the credentials the tokens are issued for.
+     *
+     * @param tokenVersion
+     *            the token version.
+     */
+    public void setTokenVersion(final int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
+    /**
+     * Revoke the tokens issued so far, e.g. because the password or the roles have changed.
+     */
+    public void revokeTokens() {
+        this.tokenVersion++;
+    }
+
     /**
      * {@inheritDoc}
      */
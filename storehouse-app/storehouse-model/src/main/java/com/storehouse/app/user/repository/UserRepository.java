@@ -5,8 +5,12 @@ import com.storehouse.app.common.model.filter.UserFilter;
 import com.storehouse.app.common.repository.GenericRepository;
 import com.storehouse.app.user.model.User;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
@@ -21,6 +25,9 @@ import javax.persistence.PersistenceContext;
  */
 @Stateless
 public class UserRepository extends GenericRepository<User> {
+    private static final Set<String> SORTABLE_FIELDS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("id", "createdAt", "name", "email", "userType")));
+
     @PersistenceContext
     EntityManager em;
 
@@ -40,6 +47,14 @@ public class UserRepository extends GenericRepository<User> {
         return User.class;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Set<String> getSortableFields() {
+        return SORTABLE_FIELDS;
+    }
+
     /**
      * We consider a user exists if the email is already registered.
      *
@@ -53,6 +68,7 @@ public class UserRepository extends GenericRepository<User> {
 
     /**
      * Find the user by its email.
+     * The result is cached, the users are rarely written so it is seldom dropped.
      * 
      * @param email
      *            user email
@@ -64,7 +80,7 @@ public class UserRepository extends GenericRepository<User> {
             try {
                 found = (User) getEntityManager().createQuery(
                         "Select u from " + getPersistentClass().getSimpleName() + " u where u.email = :email")
-                        .setParameter("email", email).getSingleResult();
+                        .setParameter("email", email).setHint(CACHEABLE_HINT, true).getSingleResult();
             } catch (final NoResultException nex) {
                 found = null;
             }
@@ -80,14 +96,14 @@ public class UserRepository extends GenericRepository<User> {
      * @return the paginated data.
      */
     public PaginatedData<User> findByFilter(final UserFilter filter) {
-        final StringBuilder clause = new StringBuilder("WHERE a.id is not null");
+        final StringBuilder clause = new StringBuilder();
         final Map<String, Object> queryParameters = new HashMap<>();
         if (filter.getName() != null) {
-            clause.append(" And UPPER(a.name) Like UPPER(:name)");
+            appendPredicate(clause, "UPPER(a.name) Like UPPER(:name)");
             queryParameters.put("name", "%" + filter.getName() + "%");
         }
         if (filter.getUserType() != null) {
-            clause.append(" And a.userType = :userType");
+            appendPredicate(clause, "a.userType = :userType");
             queryParameters.put("userType", filter.getUserType());
         }
 
@@ -0,0 +1,199 @@
+package com.storehouse.app.user.services.impl;
+
+import com.storehouse.app.user.model.Customer;
+import com.storehouse.app.user.model.Employee;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+import com.storehouse.app.user.model.User.UserType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+/**
+ * A bounded LRU cache of the users by email, i.e. by principal name, so placing an order or
+ * logging in does not load the user and its roles from the database every time.
+ *
+ * The cache holds a snapshot of the user (id, type, roles, password hash, token version, name and
+ * creation date) and gives a new detached copy on every hit. It is invalidated when the user is
+ * updated on this node, the entries also expire after a while so an update made on another node is
+ * seen eventually.
+ *
+ * The user entity and the findByEmail query are in the second-level cache as well, but it cannot
+ * serve this lookup on its own: any user added or updated invalidates all the cached findByEmail
+ * queries, e.g. every customer registering, and a hit still loads the user and its roles into a
+ * persistence context. This cache drops only the user that has changed and is read for every
+ * token, order placed and login, so its hit rate is exported on /api/metrics.
+ *
+ * @author ejiafzh
+ *
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PrincipalCache {
+    public static final String SIZE_PROPERTY = "storehouse.principal.cache.size";
+
+    static final int DEFAULT_SIZE = 1000;
+    static final long TIME_TO_LIVE_MS = 300000L;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private int maxSize;
+    private Map<String, CachedPrincipal> principals;
+
+    /**
+     * Create the cache with the size configured for the deployment.
+     */
+    @PostConstruct
+    public void init() {
+        maxSize = Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE);
+        // access order, the eldest entry is the least recently used one
+        principals = new LinkedHashMap<String, CachedPrincipal>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a copy of the cached user.
+     *
+     * @param email
+     *            the email of the user.
+     * @return a copy of the cached user, null if it is not cached or has expired.
+     */
+    public User get(final String email) {
+        final CachedPrincipal principal;
+        synchronized (principals) {
+            principal = principals.get(email);
+            if (principal != null && principal.isExpired(System.currentTimeMillis())) {
+                principals.remove(email);
+                misses.increment();
+                return null;
+            }
+        }
+        if (principal == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return principal.toUser();
+    }
+
+    /**
+     * Cache a user loaded from the database.
+     *
+     * @param user
+     *            the user.
+     */
+    public void put(final User user) {
+        final CachedPrincipal principal = new CachedPrincipal(user, System.currentTimeMillis() + TIME_TO_LIVE_MS);
+        synchronized (principals) {
+            principals.put(user.getEmail(), principal);
+        }
+    }
+
+    /**
+     * Drop a user from the cache, e.g. because it has been updated.
+     *
+     * @param email
+     *            the email of the user.
+     */
+    public void invalidate(final String email) {
+        synchronized (principals) {
+            principals.remove(email);
+        }
+    }
+
+    /**
+     * Get the number of the cached users.
+     *
+     * @return the number of the cached users.
+     */
+    public int size() {
+        synchronized (principals) {
+            return principals.size();
+        }
+    }
+
+    /**
+     * Get the number of the lookups served by the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of the lookups which went to the database.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the ratio of the lookups served by the cache.
+     *
+     * @return the hit rate between 0 and 1, 0 if there has been no lookup.
+     */
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    private static class CachedPrincipal {
+        private final Long id;
+        private final UserType userType;
+        private final List<Roles> roles;
+        private final String password;
+        private final int tokenVersion;
+        private final String email;
+        private final String name;
+        private final Long createdAt;
+        private final long expiresAt;
+
+        CachedPrincipal(final User user, final long expiresAt) {
+            this.id = user.getId();
+            this.userType = user.getUserType();
+            this.roles = new ArrayList<>(user.getRoles());
+            this.password = user.getPassword();
+            this.tokenVersion = user.getTokenVersion();
+            this.email = user.getEmail();
+            this.name = user.getName();
+            this.createdAt = user.getCreatedAt() == null ? null : user.getCreatedAt().getTime();
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+
+        User toUser() {
+            final User user = userType == UserType.EMPLOYEE ? new Employee() : new Customer();
+            user.setId(id);
+            user.setRoles(new ArrayList<>(roles));
+            user.setPassword(password);
+            user.setTokenVersion(tokenVersion);
+            user.setEmail(email);
+            user.setName(name);
+            user.setCreatedAt(createdAt == null ? null : new Date(createdAt));
+            return user;
+        }
+    }
+}
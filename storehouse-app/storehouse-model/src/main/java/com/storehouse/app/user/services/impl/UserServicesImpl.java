@@ -5,15 +5,19 @@ import com.storehouse.app.common.exception.UserNotFoundException;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.UserFilter;
 import com.storehouse.app.common.utils.PasswordUtils;
+import com.storehouse.app.common.utils.TransactionUtils;
 import com.storehouse.app.common.utils.ValidationUtils;
 import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.repository.UserRepository;
 import com.storehouse.app.user.services.UserServices;
 
+import java.util.HashSet;
 import java.util.List;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.validation.Validator;
 
 import org.slf4j.Logger;
@@ -35,6 +39,12 @@ public class UserServicesImpl implements UserServices {
     @Inject
     Validator validator;
 
+    @Inject
+    PrincipalCache principalCache;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
     /**
      * {@inheritDoc}
      */
@@ -70,8 +80,18 @@ public class UserServicesImpl implements UserServices {
         // restore the password from db in case it is changed.
         final User foundUser = userRepository.findById(user.getId());
         user.setPassword(foundUser.getPassword());
+        user.setTokenVersion(foundUser.getTokenVersion());
+        if (!user.getEmail().equals(foundUser.getEmail())
+                || !new HashSet<>(user.getRoles()).equals(new HashSet<>(foundUser.getRoles()))) {
+            user.revokeTokens();
+        }
 
-        return userRepository.update(user);
+        // the email could be changed as well, so drop both the old and the new one
+        final String oldEmail = foundUser.getEmail();
+        final String newEmail = user.getEmail();
+        final User updatedUser = userRepository.update(user);
+        invalidatePrincipalsAfterCompletion(oldEmail, newEmail);
+        return updatedUser;
     }
 
     /**
@@ -112,18 +132,37 @@ public class UserServicesImpl implements UserServices {
             throw new UserNotFoundException();
         }
         foundUser.setPassword(PasswordUtils.encryptPassword(password));
+        foundUser.revokeTokens();
         userRepository.update(foundUser);
+        invalidatePrincipalsAfterCompletion(foundUser.getEmail());
+    }
+
+    // a lookup before the commit would cache the old user again, so drop it once the update is
+    // committed, or rolled back to be on the safe side
+    private void invalidatePrincipalsAfterCompletion(final String... emails) {
+        TransactionUtils.runAfterCompletion(transactionRegistry, () -> {
+            for (final String email : emails) {
+                principalCache.invalidate(email);
+            }
+        });
     }
 
     /**
-     * {@inheritDoc}
+     * The user is looked up in the principal cache first, as it is called for each order placed and
+     * each login.
      */
     @Override
     public User findByEmail(final String email) {
+        final User cachedUser = principalCache.get(email);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+
         final User user = userRepository.findByEmail(email);
         if (user == null) {
             throw new UserNotFoundException();
         }
+        principalCache.put(user);
         return user;
     }
 
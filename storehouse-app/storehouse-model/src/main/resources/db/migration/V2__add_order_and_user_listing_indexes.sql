@@ -0,0 +1,32 @@
+/**
+ * Indexes of the queue and listing hot paths.
+ * The partial index only holds the RESERVED orders, i.e. the orders in the queue, so it stays small
+ * while the DELIVERED and CANCELLED orders keep growing.
+ */
+
+/**
+ * Queue position, wait time and queue statistics: RESERVED orders created up to a date,
+ * split into premium and non-premium customers by the customer id.
+ */
+create index ix_order_reserved_created_at on storehouse_order (created_at, customer_id)
+    where current_status = 'RESERVED';
+
+/**
+ * Listing orders by status ordered by creation date (cancel by client id, consumption checks).
+ */
+create index ix_order_status_created_at on storehouse_order (current_status, created_at);
+
+/**
+ * One order per client check and listing the orders of a customer, also backs the foreign key.
+ */
+create index ix_order_customer_status on storehouse_order (customer_id, current_status);
+
+/**
+ * Default listing of the orders and keyset pagination, ordered by creation date then id.
+ */
+create index ix_order_created_at_id on storehouse_order (created_at, id);
+
+/**
+ * Default listing of the users and keyset pagination, ordered by name then id.
+ */
+create index ix_user_name_id on storehouse_user (name, id);
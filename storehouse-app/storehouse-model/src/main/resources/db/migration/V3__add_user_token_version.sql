@@ -0,0 +1,5 @@
+/**
+ * Version of the credentials of the user, the authentication tokens carry it and are rejected once
+ * the password, the roles or the email have changed.
+ */
+alter table storehouse_user add column token_version int not null default 0;
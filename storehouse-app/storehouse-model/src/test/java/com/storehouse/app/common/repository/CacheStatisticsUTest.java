@@ -0,0 +1,81 @@
+package com.storehouse.app.common.repository;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.repository.CacheStatistics.RegionStatistics;
+import com.storehouse.app.commontests.utils.TestBaseRepository;
+
+import java.util.List;
+
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheStatisticsUTest extends TestBaseRepository {
+    private CacheStatistics cacheStatistics;
+
+    @Override
+    @Before
+    public void initTestCase() {
+        super.initTestCase();
+        cacheStatistics = new CacheStatistics();
+        cacheStatistics.em = em;
+    }
+
+    @Override
+    @After
+    public void closeEntityManager() {
+        super.closeEntityManager();
+    }
+
+    @Test
+    public void noRegionWithoutCache() {
+        // the second-level cache and its statistics are off in the unit tests
+        assertThat(cacheStatistics.getRegionStatistics().isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    public void regionsSortedByName() {
+        final Statistics statistics = mock(Statistics.class);
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(
+                new String[] { "storehouse.user", "storehouse.order", "storehouse.unknown" });
+        final SecondLevelCacheStatistics orderRegion = mockRegion(3, 1, 4, 4);
+        final SecondLevelCacheStatistics userRegion = mockRegion(0, 0, 0, 0);
+        when(statistics.getSecondLevelCacheStatistics("storehouse.order")).thenReturn(orderRegion);
+        when(statistics.getSecondLevelCacheStatistics("storehouse.user")).thenReturn(userRegion);
+
+        final List<RegionStatistics> regions = CacheStatistics.ProviderStatistics.getRegionStatistics(statistics);
+        assertThat(regions.size(), is(equalTo(2)));
+        assertThat(regions.get(0).getName(), is(equalTo("storehouse.order")));
+        assertThat(regions.get(0).getHitCount(), is(equalTo(3L)));
+        assertThat(regions.get(0).getMissCount(), is(equalTo(1L)));
+        assertThat(regions.get(0).getPutCount(), is(equalTo(4L)));
+        assertThat(regions.get(0).getEntryCount(), is(equalTo(4L)));
+        assertThat(regions.get(0).getHitRate(), is(equalTo(0.75D)));
+        assertThat(regions.get(1).getName(), is(equalTo("storehouse.user")));
+        assertThat(regions.get(1).getHitRate(), is(equalTo(0D)));
+    }
+
+    @Test
+    public void noRegionWhenStatisticsDisabled() {
+        final Statistics statistics = mock(Statistics.class);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] { "storehouse.user" });
+
+        assertThat(CacheStatistics.ProviderStatistics.getRegionStatistics(statistics).isEmpty(), is(equalTo(true)));
+    }
+
+    private SecondLevelCacheStatistics mockRegion(final long hits, final long misses, final long puts,
+            final long entries) {
+        final SecondLevelCacheStatistics region = mock(SecondLevelCacheStatistics.class);
+        when(region.getHitCount()).thenReturn(hits);
+        when(region.getMissCount()).thenReturn(misses);
+        when(region.getPutCount()).thenReturn(puts);
+        when(region.getElementCountInMemory()).thenReturn(entries);
+        return region;
+    }
+}
@@ -0,0 +1,71 @@
+package com.storehouse.app.common.repository;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CountCacheUTest {
+    private static final Map<String, Object> NO_PARAMETERS = Collections.emptyMap();
+
+    private CountCache countCache;
+
+    @Before
+    public void initTestCase() {
+        countCache = new CountCache(CountCache.DEFAULT_TIME_TO_LIVE_MS);
+    }
+
+    @Test
+    public void samePredicateIsServedFromTheCache() {
+        countCache.put("Order", "Where a.currentStatus = :status", Collections.singletonMap("status", "RESERVED"), 3);
+
+        assertThat(countCache.get("Order", "Where a.currentStatus = :status",
+                Collections.singletonMap("status", "RESERVED")), is(equalTo(3)));
+        assertThat(countCache.get("Order", "Where a.currentStatus = :status",
+                Collections.singletonMap("status", "DELIVERED")), is(nullValue()));
+    }
+
+    @Test
+    public void expiredCountIsNotServed() {
+        countCache = new CountCache(0L);
+        countCache.put("Order", "", NO_PARAMETERS, 3);
+
+        assertThat(countCache.get("Order", "", NO_PARAMETERS), is(nullValue()));
+    }
+
+    @Test
+    public void invalidateDropsTheCountsOfTheEntityOnly() {
+        countCache.put("Order", "", NO_PARAMETERS, 3);
+        countCache.put("Order", "Where a.id > 1", NO_PARAMETERS, 2);
+        countCache.put("User", "", NO_PARAMETERS, 5);
+
+        countCache.invalidate("Order");
+
+        assertThat(countCache.get("Order", "", NO_PARAMETERS), is(nullValue()));
+        assertThat(countCache.get("Order", "Where a.id > 1", NO_PARAMETERS), is(nullValue()));
+        assertThat(countCache.get("User", "", NO_PARAMETERS), is(equalTo(5)));
+    }
+
+    @Test
+    public void fullCacheEvictsTheOldestCountsOnly() throws InterruptedException {
+        countCache.put("Order", "Where a.id > -1", NO_PARAMETERS, 1);
+        // the counts put afterwards expire later
+        Thread.sleep(5);
+        for (int i = 1; i < CountCache.MAX_ENTRIES; i++) {
+            countCache.put("Order", "Where a.id > " + i, NO_PARAMETERS, i);
+        }
+        assertThat(countCache.size(), is(equalTo(CountCache.MAX_ENTRIES)));
+
+        countCache.put("User", "", NO_PARAMETERS, 5);
+
+        assertThat(countCache.size() < CountCache.MAX_ENTRIES, is(equalTo(true)));
+        assertThat(countCache.get("Order", "Where a.id > -1", NO_PARAMETERS), is(nullValue()));
+        assertThat(countCache.get("Order", "Where a.id > " + (CountCache.MAX_ENTRIES - 1), NO_PARAMETERS),
+                is(equalTo(CountCache.MAX_ENTRIES - 1)));
+        assertThat(countCache.get("User", "", NO_PARAMETERS), is(equalTo(5)));
+    }
+}
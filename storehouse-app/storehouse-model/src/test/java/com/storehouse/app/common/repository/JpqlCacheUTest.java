@@ -0,0 +1,32 @@
+package com.storehouse.app.common.repository;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class JpqlCacheUTest {
+
+    @Test
+    public void sameShapeIsBuiltOnce() {
+        final AtomicInteger builds = new AtomicInteger();
+        final String shape = "select|Order|WHERE a.id is not null|Order by a.createdAt DESC|" + getClass();
+
+        final String first = JpqlCache.get(shape, () -> "Select a From Order a " + builds.incrementAndGet());
+        final String second = JpqlCache.get(shape, () -> "Select a From Order a " + builds.incrementAndGet());
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(builds.get(), is(equalTo(1)));
+    }
+
+    @Test
+    public void otherShapeIsBuiltAgain() {
+        final String ascending = JpqlCache.get("findAll|Order|id ASC|" + getClass(), () -> "ascending");
+        final String descending = JpqlCache.get("findAll|Order|id DESC|" + getClass(), () -> "descending");
+
+        assertThat(ascending, is(equalTo("ascending")));
+        assertThat(descending, is(equalTo("descending")));
+    }
+}
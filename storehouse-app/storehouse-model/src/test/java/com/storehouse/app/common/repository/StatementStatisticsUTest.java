@@ -0,0 +1,72 @@
+package com.storehouse.app.common.repository;
+
+import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.commontests.utils.TestBaseRepository;
+import com.storehouse.app.user.model.User;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementStatisticsUTest extends TestBaseRepository {
+
+    @Override
+    @Before
+    public void initTestCase() {
+        super.initTestCase();
+    }
+
+    @Override
+    @After
+    public void closeEntityManager() {
+        StatementStatistics.end();
+        super.closeEntityManager();
+    }
+
+    @Test
+    public void statementsOutsideAUnitOfWorkAreNotRecorded() {
+        StatementStatistics.recordStatement("select 1");
+
+        assertThat(StatementStatistics.end(), is(nullValue()));
+    }
+
+    @Test
+    public void repeatedStatementIsSuspected() {
+        StatementStatistics.begin();
+        StatementStatistics.recordStatement("select * from orders");
+        for (int i = 0; i < 3; i++) {
+            StatementStatistics.recordStatement("select * from order_items where order_id=?");
+            StatementStatistics.recordExecution(10);
+        }
+
+        final StatementStatistics statistics = StatementStatistics.end();
+        assertThat(statistics.getStatementCount(), is(equalTo(4)));
+        assertThat(statistics.getExecutionNanos(), is(equalTo(30L)));
+        assertThat(statistics.getMostRepeatedCount(), is(equalTo(3)));
+        assertThat(statistics.getMostRepeatedStatement(), is(equalTo("select * from order_items where order_id=?")));
+        assertThat(statistics.isNPlusOneSuspected(3), is(equalTo(true)));
+        assertThat(statistics.isNPlusOneSuspected(4), is(equalTo(false)));
+    }
+
+    @Test
+    public void statementsOfThePersistenceUnitAreRecorded() {
+        dbTxExecutor.executeCommand(() -> {
+            allUsers().forEach(em::persist);
+            return null;
+        });
+        em.clear();
+
+        StatementStatistics.begin();
+        final List<User> users = em.createQuery("SELECT e FROM User e", User.class).getResultList();
+        final StatementStatistics statistics = StatementStatistics.end();
+
+        assertThat(users.size(), is(equalTo(allUsers().size())));
+        assertThat(statistics.getStatementCount() >= 1, is(equalTo(true)));
+        assertThat(statistics.getExecutionNanos() > 0, is(equalTo(true)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.storehouse.app.common.security;
+
+import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.exception.UserNotAuthorizedException;
+import com.storehouse.app.common.exception.UserNotFoundException;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+import com.storehouse.app.user.services.UserServices;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuthenticationTokenServicesUTest {
+    private AuthenticationTokenServices tokenServices;
+    private UserServices userServices;
+
+    @Before
+    public void initTestCase() {
+        userServices = mock(UserServices.class);
+        when(userServices.findByEmail(admin().getEmail())).thenReturn(admin());
+        when(userServices.findByEmail(johnDoe().getEmail())).thenReturn(johnDoe());
+
+        tokenServices = new AuthenticationTokenServices();
+        tokenServices.init();
+        tokenServices.userServices = userServices;
+    }
+
+    @Test
+    public void validateIssuedToken() {
+        final AuthenticationToken token = tokenServices.validateToken(tokenServices.issueToken(admin()));
+
+        assertThat(token.getEmail(), is(equalTo(admin().getEmail())));
+        assertThat(token.getRoles(), is(equalTo(Arrays.asList(Roles.EMPLOYEE, Roles.ADMIN))));
+        assertThat(token.hasRole(Roles.ADMIN.name()), is(equalTo(true)));
+        assertThat(token.hasRole(Roles.CUSTOMER.name()), is(equalTo(false)));
+        assertThat(token.getExpiresAt() > System.currentTimeMillis(), is(equalTo(true)));
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateTokenWithChangedClaims() {
+        final String customerToken = tokenServices.issueToken(johnDoe());
+        final String employeeToken = tokenServices.issueToken(admin());
+
+        // the claims of the employee with the signature of the customer
+        tokenServices.validateToken(employeeToken.split("\\.")[0] + "." + customerToken.split("\\.")[1]);
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateTokenSignedWithAnotherSecret() {
+        final AuthenticationTokenServices otherNode = new AuthenticationTokenServices();
+        otherNode.init();
+
+        tokenServices.validateToken(otherNode.issueToken(johnDoe()));
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateExpiredToken() {
+        tokenServices.timeToLiveMillis = -1L;
+
+        tokenServices.validateToken(tokenServices.issueToken(johnDoe()));
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateMalformedToken() {
+        tokenServices.validateToken("not a token");
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateTokenIssuedBeforeTheCredentialsChanged() {
+        final String token = tokenServices.issueToken(johnDoe());
+
+        final User userWithNewPassword = johnDoe();
+        userWithNewPassword.revokeTokens();
+        when(userServices.findByEmail(johnDoe().getEmail())).thenReturn(userWithNewPassword);
+
+        tokenServices.validateToken(token);
+    }
+
+    @Test
+    public void validateTokenIssuedAfterTheCredentialsChanged() {
+        final User userWithNewPassword = johnDoe();
+        userWithNewPassword.revokeTokens();
+        when(userServices.findByEmail(johnDoe().getEmail())).thenReturn(userWithNewPassword);
+
+        final AuthenticationToken token = tokenServices.validateToken(tokenServices.issueToken(userWithNewPassword));
+        assertThat(token.getEmail(), is(equalTo(johnDoe().getEmail())));
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void validateTokenOfDeletedUser() {
+        final String token = tokenServices.issueToken(johnDoe());
+        when(userServices.findByEmail(johnDoe().getEmail())).thenThrow(new UserNotFoundException());
+
+        tokenServices.validateToken(token);
+    }
+}
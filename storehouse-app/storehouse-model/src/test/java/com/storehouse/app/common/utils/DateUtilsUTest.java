@@ -0,0 +1,47 @@
+package com.storehouse.app.common.utils;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class DateUtilsUTest {
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    @Test
+    public void getAsDateTimeAsSimpleDateFormat() throws Exception {
+        assertThat(DateUtils.getAsDateTime("2017-10-10T10:00:05Z"),
+                is(equalTo(new SimpleDateFormat(DATE_FORMAT).parse("2017-10-10T10:00:05Z"))));
+    }
+
+    @Test
+    public void formatDateTimeAsSimpleDateFormat() {
+        final Date date = new Date(1507629605123L);
+        assertThat(DateUtils.formatDateTime(date), is(equalTo(new SimpleDateFormat(DATE_FORMAT).format(date))));
+    }
+
+    @Test
+    public void formatAndParseDateTime() {
+        assertThat(DateUtils.formatDateTime(DateUtils.getAsDateTime("1999-01-02T03:04:05Z")),
+                is(equalTo("1999-01-02T03:04:05Z")));
+    }
+
+    @Test
+    public void formatAndParseDateTimeWithFiveDigitYear() {
+        assertThat(DateUtils.formatDateTime(DateUtils.getAsDateTime("+10000-01-02T03:04:05Z")),
+                is(equalTo("+10000-01-02T03:04:05Z")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getAsDateTimeWithInvalidLayout() {
+        DateUtils.getAsDateTime("10/10/2017 10:00");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getAsDateTimeWithInvalidMonth() {
+        DateUtils.getAsDateTime("2017-13-10T10:00:00Z");
+    }
+}
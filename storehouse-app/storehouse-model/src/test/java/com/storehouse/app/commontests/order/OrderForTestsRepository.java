@@ -6,8 +6,10 @@ import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
 import com.storehouse.app.common.utils.DateUtils;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderEvent;
 import com.storehouse.app.user.model.Customer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -83,6 +85,22 @@ public class OrderForTestsRepository {
         return order;
     }
 
+    public static List<OrderEvent> eventsWithQuantities(final int... quantities) {
+        final List<OrderEvent> events = new ArrayList<>();
+        long id = 1L;
+        for (final int quantity : quantities) {
+            events.add(new OrderEvent(id, id, quantity, true, id));
+            id++;
+        }
+        return events;
+    }
+
+    public static List<Integer> quantitiesOf(final List<OrderEvent> events) {
+        final List<Integer> quantities = new ArrayList<>();
+        events.forEach(event -> quantities.add(event.getQuantity()));
+        return quantities;
+    }
+
     public static List<Order> allOrders() {
         return Arrays.asList(orderDelivered(), orderReservedJohnDoe());
     }
@@ -0,0 +1,58 @@
+package com.storehouse.app.order.model;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.utils.DateUtils;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+
+import org.junit.Test;
+
+public class OrderEventUTest {
+
+    private Order order() {
+        final Order order = orderCreatedAt(orderWithId(orderReservedEndaKenny(), 5L), "2017-10-17T10:00:00Z");
+        order.getCustomer().setId(1001L);
+        return order;
+    }
+
+    private void assertEvent(final OrderEvent event) {
+        assertThat(event.getOrderId(), is(equalTo(5L)));
+        assertThat(event.getCustomerId(), is(equalTo(1001L)));
+        assertThat(event.getQuantity(), is(equalTo(10)));
+        assertThat(event.isPremium(), is(equalTo(false)));
+        assertThat(event.getCreatedAt(), is(equalTo(DateUtils.getAsDateTime("2017-10-17T10:00:00Z").getTime())));
+    }
+
+    @Test
+    public void fromOrder() {
+        assertEvent(OrderEvent.fromOrder(order()));
+    }
+
+    @Test
+    public void fromMessageProperties() throws JMSException {
+        final OrderEvent event = OrderEvent.fromOrder(order());
+        final Message message = mock(Message.class);
+        when(message.propertyExists(OrderEvent.ORDER_ID)).thenReturn(true);
+        when(message.getLongProperty(OrderEvent.ORDER_ID)).thenReturn(event.getOrderId());
+        when(message.getLongProperty(OrderEvent.CUSTOMER_ID)).thenReturn(event.getCustomerId());
+        when(message.getIntProperty(OrderEvent.QUANTITY)).thenReturn(event.getQuantity());
+        when(message.getBooleanProperty(OrderEvent.PREMIUM)).thenReturn(event.isPremium());
+        when(message.getLongProperty(OrderEvent.CREATED_AT)).thenReturn(event.getCreatedAt());
+
+        assertEvent(OrderEvent.fromMessage(message));
+    }
+
+    @Test
+    public void fromMessageWithSerializedOrder() throws JMSException {
+        final ObjectMessage message = mock(ObjectMessage.class);
+        when(message.getObject()).thenReturn(order());
+
+        assertEvent(OrderEvent.fromMessage(message));
+    }
+}
@@ -0,0 +1,175 @@
+package com.storehouse.app.order.repository;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
+import com.storehouse.app.common.model.filter.KeysetCursor;
+import com.storehouse.app.common.model.filter.OrderFilter;
+import com.storehouse.app.common.model.filter.PaginationData;
+import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
+import com.storehouse.app.common.repository.StatementStatistics;
+import com.storehouse.app.commontests.utils.TestBaseRepository;
+import com.storehouse.app.order.model.Order.OrderStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the query plans of the SQL generated for the order hot paths use the indexes of the V2
+ * migration. The HSQL plans only tell which index is used for the rows lookup, the partial index of
+ * the RESERVED orders is PostgreSQL only, so its predicate is checked in the generated SQL instead.
+ */
+public class OrderQueryPlanUTest extends TestBaseRepository {
+    private static final String INDEX_MIGRATION = "db/migration/V2__add_order_and_user_listing_indexes.sql";
+    private static final Pattern CREATE_INDEX = Pattern
+            .compile("create index (\\w+) on \\w+ \\([^)]*\\)\\s*(where ([^;]+))?;");
+
+    private OrderRepository orderRepository;
+
+    @Override
+    @Before
+    public void initTestCase() {
+        super.initTestCase();
+        orderRepository = new OrderRepository();
+        orderRepository.em = em;
+    }
+
+    @Override
+    @After
+    public void closeEntityManager() {
+        super.closeEntityManager();
+    }
+
+    // the SQL of the only statement prepared by the repository call
+    private String generatedSql(final Runnable repositoryCall) {
+        StatementStatistics statistics = null;
+        StatementStatistics.begin();
+        try {
+            repositoryCall.run();
+        } finally {
+            statistics = StatementStatistics.end();
+        }
+        assertThat(statistics.getStatementCount(), is(equalTo(1)));
+        return statistics.getMostRepeatedStatement();
+    }
+
+    private String explain(final String sql) {
+        final StringBuilder sb = new StringBuilder();
+        // the parameters of the statement are not needed to explain it
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN PLAN FOR " + sql);
+                    ResultSet plan = statement.executeQuery()) {
+                while (plan.next()) {
+                    sb.append(plan.getString(1)).append('\n');
+                }
+            }
+        });
+        return sb.toString().toUpperCase();
+    }
+
+    private String readIndexMigration() throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(INDEX_MIGRATION);
+                Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    @Test
+    public void indexesOfTheMigrationAreInTheSchema() throws IOException {
+        final Set<String> schemaIndexes = new HashSet<>();
+        @SuppressWarnings("unchecked")
+        final List<Object> names = em.createNativeQuery("select index_name from information_schema.system_indexinfo")
+                .getResultList();
+        names.forEach(name -> schemaIndexes.add(name.toString().toLowerCase()));
+
+        final Matcher matcher = CREATE_INDEX.matcher(readIndexMigration());
+        int indexCount = 0;
+        while (matcher.find()) {
+            indexCount++;
+            // the partial index cannot be declared on the entity
+            if (matcher.group(2) == null) {
+                assertThat(matcher.group(1), schemaIndexes.contains(matcher.group(1)), is(equalTo(true)));
+            }
+        }
+        assertThat(indexCount, is(equalTo(5)));
+    }
+
+    @Test
+    public void reservedQueueQueriesMatchThePartialIndexPredicate() throws IOException {
+        final Matcher matcher = CREATE_INDEX.matcher(readIndexMigration());
+        String predicate = null;
+        while (matcher.find()) {
+            if ("ix_order_reserved_created_at".equals(matcher.group(1))) {
+                predicate = matcher.group(3).trim().replace(" ", "");
+            }
+        }
+        assertThat(predicate, is(equalTo("current_status='RESERVED'")));
+
+        final String countSql = generatedSql(() -> orderRepository.countReservedOrdersInQueueUntil(true, new Date()));
+        final String sumSql = generatedSql(() -> orderRepository.sumReservedQuantityInQueueUntil(false, new Date()));
+        final String statsSql = generatedSql(() -> orderRepository.findAllReservedOrdersQueueStats());
+        for (final String sql : new String[] { countSql, sumSql, statsSql }) {
+            // a literal, a bound status could not be matched with the predicate by a generic plan
+            assertThat(sql, containsString("." + predicate));
+        }
+    }
+
+    @Test
+    public void reservedOrdersInQueueUseStatusAndCreationIndex() {
+        final String plan = explain(
+                generatedSql(() -> orderRepository.countReservedOrdersInQueueUntil(true, new Date())));
+        assertThat(plan, containsString("INDEX=IX_ORDER_STATUS_CREATED_AT"));
+    }
+
+    @Test
+    public void ordersByStatusOrderedByCreationUseStatusAndCreationIndex() {
+        final OrderFilter filter = new OrderFilter();
+        filter.setStatus(OrderStatus.DELIVERED);
+        filter.setCountMode(CountMode.NONE);
+
+        final String plan = explain(generatedSql(() -> orderRepository.findByFilter(filter)));
+        assertThat(plan, containsString("INDEX=IX_ORDER_STATUS_CREATED_AT"));
+        // the rows are read in the index order, there is no sort
+        assertThat(plan, containsString("USES INDEX"));
+    }
+
+    @Test
+    public void ordersOfCustomerByStatusUseCustomerAndStatusIndex() {
+        final OrderFilter filter = new OrderFilter();
+        filter.setCustomerId(1L);
+        filter.setStatus(OrderStatus.RESERVED);
+        filter.setCountMode(CountMode.NONE);
+
+        final String plan = explain(generatedSql(() -> orderRepository.findByFilter(filter)));
+        assertThat(plan, containsString("INDEX=IX_ORDER_CUSTOMER_STATUS"));
+    }
+
+    @Test
+    public void ordersPageAfterKeysetUsesCreationAndIdIndex() {
+        final String cursor = new KeysetCursor("createdAt", OrderMode.DESCENDING, 10L,
+                String.valueOf(System.currentTimeMillis())).encode();
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 2, "createdAt", OrderMode.DESCENDING, cursor));
+        filter.setCountMode(CountMode.NONE);
+
+        final String plan = explain(generatedSql(() -> orderRepository.findByFilter(filter)));
+        assertThat(plan, containsString("INDEX=IX_ORDER_CREATED_AT_ID"));
+        assertThat(plan, containsString("USES INDEX"));
+    }
+}
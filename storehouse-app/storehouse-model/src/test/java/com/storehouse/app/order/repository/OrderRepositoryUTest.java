@@ -5,14 +5,29 @@ import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import com.storehouse.app.common.exception.FieldNotValidException;
 import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.common.model.filter.PaginationData;
 import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
+import com.storehouse.app.common.repository.StatementStatistics;
 import com.storehouse.app.common.utils.DateUtils;
 import com.storehouse.app.commontests.utils.TestBaseRepository;
 import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderHistoryEntry;
+import com.storehouse.app.order.model.OrderQueueStats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -199,6 +214,137 @@ public class OrderRepositoryUTest extends TestBaseRepository {
         assertThat(DateUtils.formatDateTime(orders.getRow(1).getCreatedAt()), is(equalTo("2017-10-16T10:00:00Z")));
     }
 
+    @Test
+    public void findByFilterWithKeysetPagination() {
+        loadForFindByFilter();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 2, "createdAt", OrderMode.DESCENDING, ""));
+
+        final PaginatedData<Order> firstPage = orderRepository.findByFilter(filter);
+        assertThat(firstPage.getNumberOfRows(), is(equalTo(3)));
+        assertThat(firstPage.getRows().size(), is(equalTo(2)));
+        assertThat(DateUtils.formatDateTime(firstPage.getRow(0).getCreatedAt()), is(equalTo("2017-10-18T10:00:00Z")));
+        assertThat(DateUtils.formatDateTime(firstPage.getRow(1).getCreatedAt()), is(equalTo("2017-10-17T10:00:00Z")));
+        assertThat(firstPage.getNextCursor(), is(notNullValue()));
+
+        filter.setPaginationData(new PaginationData(0, 2, "createdAt", OrderMode.DESCENDING,
+                firstPage.getNextCursor()));
+        final PaginatedData<Order> secondPage = orderRepository.findByFilter(filter);
+        assertThat(secondPage.getNumberOfRows(), is(equalTo(3)));
+        assertThat(secondPage.getRows().size(), is(equalTo(1)));
+        assertThat(DateUtils.formatDateTime(secondPage.getRow(0).getCreatedAt()), is(equalTo("2017-10-16T10:00:00Z")));
+        assertThat(secondPage.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    public void findByFilterWithKeysetPaginationTieOnSortField() {
+        loadForFindByFilter();
+        final Order sameTimeOrder = normalizeDependencies(orderDelivered(), em);
+        orderCreatedAt(sameTimeOrder, "2017-10-17T10:00:00Z");
+        dbTxExecutor.executeCommand(() -> orderRepository.add(sameTimeOrder));
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 1, "createdAt", OrderMode.ASCENDING, ""));
+
+        final Set<Long> seenIds = new HashSet<>();
+        PaginatedData<Order> page;
+        do {
+            page = orderRepository.findByFilter(filter);
+            assertThat(page.getRows().size(), is(equalTo(1)));
+            assertThat(seenIds.add(page.getRow(0).getId()), is(equalTo(true)));
+            filter.setPaginationData(new PaginationData(0, 1, "createdAt", OrderMode.ASCENDING,
+                    page.getNextCursor()));
+        } while (page.getNextCursor() != null);
+        assertThat(seenIds.size(), is(equalTo(4)));
+    }
+
+    @Test(expected = FieldNotValidException.class)
+    public void findByFilterWithKeysetPaginationCursorOfAnotherSort() {
+        loadForFindByFilter();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 1, "createdAt", OrderMode.DESCENDING, ""));
+        final String cursor = orderRepository.findByFilter(filter).getNextCursor();
+
+        filter.setPaginationData(new PaginationData(0, 1, "createdAt", OrderMode.ASCENDING, cursor));
+        orderRepository.findByFilter(filter);
+    }
+
+    @Test(expected = FieldNotValidException.class)
+    public void findByFilterWithKeysetPaginationInvalidCursor() {
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 1, "createdAt", OrderMode.DESCENDING, "not a cursor"));
+        orderRepository.findByFilter(filter);
+    }
+
+    @Test(expected = FieldNotValidException.class)
+    public void findByFilterSortingByFieldNotSortable() {
+        final OrderFilter filter = new OrderFilter();
+        filter.setPaginationData(new PaginationData(0, 10, "startDate", OrderMode.DESCENDING));
+        orderRepository.findByFilter(filter);
+    }
+
+    @Test
+    public void findByFilterWithoutCount() {
+        loadForFindByFilter();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setCountMode(CountMode.NONE);
+
+        final PaginatedData<Order> orders = orderRepository.findByFilter(filter);
+        assertThat(orders.getCountMode(), is(equalTo(CountMode.NONE)));
+        assertThat(orders.getNumberOfRows(), is(equalTo(PaginatedData.UNKNOWN_NUMBER_OF_ROWS)));
+        assertThat(orders.getRows().size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void findByFilterWithEstimatedCountReusesRecentCount() {
+        loadForFindByFilter();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setStatus(OrderStatus.DELIVERED);
+        assertThat(orderRepository.findByFilter(filter).getNumberOfRows(), is(equalTo(2)));
+
+        // written without the repository, as another node would
+        final Order order = normalizeDependencies(orderDelivered(), em);
+        dbTxExecutor.executeCommand(() -> {
+            em.persist(order);
+            return null;
+        });
+
+        filter.setCountMode(CountMode.ESTIMATED);
+        final PaginatedData<Order> estimated = orderRepository.findByFilter(filter);
+        assertThat(estimated.getCountMode(), is(equalTo(CountMode.ESTIMATED)));
+        assertThat(estimated.getNumberOfRows(), is(equalTo(2)));
+        assertThat(estimated.getRows().size(), is(equalTo(3)));
+
+        filter.setCountMode(CountMode.EXACT);
+        assertThat(orderRepository.findByFilter(filter).getNumberOfRows(), is(equalTo(3)));
+    }
+
+    @Test
+    public void findByFilterWithEstimatedCountAfterWrites() {
+        loadForFindByFilter();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setStatus(OrderStatus.DELIVERED);
+        filter.setCountMode(CountMode.ESTIMATED);
+        assertThat(orderRepository.findByFilter(filter).getNumberOfRows(), is(equalTo(2)));
+
+        final Order order = normalizeDependencies(orderDelivered(), em);
+        dbTxExecutor.executeCommand(() -> orderRepository.add(order));
+        assertThat(orderRepository.findByFilter(filter).getNumberOfRows(), is(equalTo(3)));
+
+        final Map<Long, OrderStatus> newStatuses = new HashMap<>();
+        newStatuses.put(order.getId(), OrderStatus.CANCELLED);
+        dbTxExecutor.executeCommand(() -> {
+            orderRepository.updateStatuses(newStatuses, Collections.singletonMap(order.getId(), OrderStatus.DELIVERED));
+            return null;
+        });
+        assertThat(orderRepository.findByFilter(filter).getNumberOfRows(), is(equalTo(2)));
+    }
+
     private void loadForAllReservedOrders() {
         final Order order1 = normalizeDependencies(orderReservedJohnDoe(), em);
         orderCreatedAt(order1, "2017-10-16T10:00:00Z");
@@ -236,4 +382,224 @@ public class OrderRepositoryUTest extends TestBaseRepository {
         logger.info("jiafanz: {}", waitTime);
         assertThat(waitTime, is(equalTo(17)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findByIds() {
+        loadForFindByFilter();
+        final List<Order> orders = orderRepository.findAll("createdAt");
+
+        final List<Order> found = orderRepository.findByIds(Arrays.asList(orders.get(0).getId(), 999L));
+        assertThat(found.size(), is(equalTo(1)));
+        assertThat(found.get(0).getId(), is(equalTo(orders.get(0).getId())));
+        assertThat(found.get(0).getItems().size(), is(equalTo(1)));
+        assertThat(isLoaded(found.get(0), "historyEntries"), is(equalTo(false)));
+        assertThat(orderRepository.findByIds(Arrays.asList()).isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    public void updateStatusesInBulk() {
+        loadForFindByFilter();
+        final List<Order> orders = orderRepository.findAll("createdAt");
+        final Long reservedId = orders.get(0).getId();
+        final Long deliveredId = orders.get(1).getId();
+        em.clear();
+
+        final Map<Long, OrderStatus> newStatuses = new HashMap<>();
+        newStatuses.put(reservedId, OrderStatus.PENDING);
+        StatementStatistics.begin();
+        final Set<Long> updatedIds = dbTxExecutor.executeCommand(
+                () -> orderRepository.updateStatuses(newStatuses,
+                        Collections.singletonMap(reservedId, OrderStatus.RESERVED)));
+        final StatementStatistics statistics = StatementStatistics.end();
+        em.clear();
+
+        // one bulk update, the history entries of the order, then one batch of inserts
+        assertThat(statistics.getStatementCount(), is(equalTo(3)));
+        assertThat(updatedIds, is(equalTo(Collections.singleton(reservedId))));
+        final Order updated = orderRepository.findById(reservedId);
+        assertThat(updated.getCurrentStatus(), is(equalTo(OrderStatus.PENDING)));
+        assertThat(updated.getHistoryEntries().size(), is(equalTo(2)));
+        assertThat(orderRepository.findById(deliveredId).getCurrentStatus(), is(equalTo(OrderStatus.DELIVERED)));
+    }
+
+    @Test
+    public void updateStatusesBackToAPreviousStatus() {
+        loadForFindByFilter();
+        final Long reservedId = orderRepository.findAll("createdAt").get(0).getId();
+        em.clear();
+
+        final OrderStatus[] statuses = { OrderStatus.RESERVED, OrderStatus.PENDING, OrderStatus.RESERVED,
+                OrderStatus.DELIVERED };
+        for (int i = 1; i < statuses.length; i++) {
+            final Map<Long, OrderStatus> currentStatuses = Collections.singletonMap(reservedId, statuses[i - 1]);
+            final Map<Long, OrderStatus> newStatuses = Collections.singletonMap(reservedId, statuses[i]);
+            dbTxExecutor.executeCommand(() -> orderRepository.updateStatuses(newStatuses, currentStatuses));
+        }
+        em.clear();
+
+        // RESERVED is recorded once, as the entity does, the schema of the tests has no primary
+        // key on the history so the rows are counted
+        final Order updated = orderRepository.findById(reservedId);
+        assertThat(updated.getCurrentStatus(), is(equalTo(OrderStatus.DELIVERED)));
+        assertThat(updated.getHistoryEntries().size(), is(equalTo(3)));
+        final Number historyRows = (Number) em
+                .createNativeQuery("select count(*) from storehouse_order_orderhistory where order_id = ?")
+                .setParameter(1, reservedId).getSingleResult();
+        assertThat(historyRows.intValue(), is(equalTo(3)));
+    }
+
+    @Test
+    public void updateStatusesToAFinalStatusDoesNotLookUpTheHistory() {
+        loadForFindByFilter();
+        final Long reservedId = orderRepository.findAll("createdAt").get(0).getId();
+        em.clear();
+
+        StatementStatistics.begin();
+        dbTxExecutor.executeCommand(() -> orderRepository.updateStatuses(
+                Collections.singletonMap(reservedId, OrderStatus.CANCELLED),
+                Collections.singletonMap(reservedId, OrderStatus.RESERVED)));
+        final StatementStatistics statistics = StatementStatistics.end();
+
+        // one bulk update and one batch of inserts
+        assertThat(statistics.getStatementCount(), is(equalTo(2)));
+    }
+
+    @Test
+    public void updateStatusesLeavesTheOrdersChangedMeanwhile() {
+        loadForFindByFilter();
+        final List<Order> orders = orderRepository.findAll("createdAt");
+        final Long reservedId = orders.get(0).getId();
+        final Long deliveredId = orders.get(1).getId();
+        em.clear();
+
+        // both validated as RESERVED, the second one has been delivered by another transaction since
+        final Map<Long, OrderStatus> newStatuses = new HashMap<>();
+        newStatuses.put(reservedId, OrderStatus.CANCELLED);
+        newStatuses.put(deliveredId, OrderStatus.CANCELLED);
+        final Map<Long, OrderStatus> currentStatuses = new HashMap<>();
+        currentStatuses.put(reservedId, OrderStatus.RESERVED);
+        currentStatuses.put(deliveredId, OrderStatus.RESERVED);
+        final Set<Long> updatedIds = dbTxExecutor
+                .executeCommand(() -> orderRepository.updateStatuses(newStatuses, currentStatuses));
+        em.clear();
+
+        assertThat(updatedIds, is(equalTo(Collections.singleton(reservedId))));
+        assertThat(orderRepository.findById(reservedId).getCurrentStatus(), is(equalTo(OrderStatus.CANCELLED)));
+        final Order delivered = orderRepository.findById(deliveredId);
+        assertThat(delivered.getCurrentStatus(), is(equalTo(OrderStatus.DELIVERED)));
+        assertThat(delivered.getHistoryEntries().contains(new OrderHistoryEntry(OrderStatus.CANCELLED)),
+                is(equalTo(false)));
+    }
+
+    @Test
+    public void findByIdLoadsItemsAndHistory() {
+        loadForFindByFilter();
+        final Long orderId = orderRepository.findAll("createdAt").get(0).getId();
+        em.clear();
+
+        final Order order = orderRepository.findById(orderId);
+        assertThat(isLoaded(order, "customer"), is(equalTo(true)));
+        assertThat(isLoaded(order, "items"), is(equalTo(true)));
+        assertThat(isLoaded(order, "historyEntries"), is(equalTo(true)));
+        assertThat(orderRepository.findById(null), is(nullValue()));
+    }
+
+    @Test
+    public void findByFilterSummaryDoesNotLoadCollections() {
+        loadForFindByFilter();
+        em.clear();
+
+        final PaginatedData<Order> orders = orderRepository.findByFilter(new OrderFilter());
+        assertThat(orders.getNumberOfRows(), is(equalTo(3)));
+        for (final Order order : orders.getRows()) {
+            assertThat(isLoaded(order, "customer"), is(equalTo(true)));
+            assertThat(isLoaded(order, "items"), is(equalTo(false)));
+            assertThat(isLoaded(order, "historyEntries"), is(equalTo(false)));
+        }
+    }
+
+    @Test
+    public void findByFilterWithQuantitiesFetchPlan() {
+        loadForFindByFilter();
+        em.clear();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setFetchPlan(FetchPlan.QUANTITIES);
+        final PaginatedData<Order> orders = orderRepository.findByFilter(filter);
+        assertThat(orders.getNumberOfRows(), is(equalTo(3)));
+        for (final Order order : orders.getRows()) {
+            assertThat(isLoaded(order, "items"), is(equalTo(true)));
+            assertThat(isLoaded(order, "historyEntries"), is(equalTo(false)));
+        }
+    }
+
+    @Test
+    public void findByFilterWithDetailFetchPlanLoadsThePageInOneMoreQuery() {
+        loadForFindByFilter();
+        em.clear();
+
+        final OrderFilter filter = new OrderFilter();
+        filter.setFetchPlan(FetchPlan.DETAIL);
+        filter.setCountMode(CountMode.NONE);
+        StatementStatistics.begin();
+        final PaginatedData<Order> orders = orderRepository.findByFilter(filter);
+        final StatementStatistics statistics = StatementStatistics.end();
+
+        assertThat(orders.getRows().size(), is(equalTo(3)));
+        for (final Order order : orders.getRows()) {
+            assertThat(isLoaded(order, "items"), is(equalTo(true)));
+            assertThat(isLoaded(order, "historyEntries"), is(equalTo(true)));
+        }
+        // no statement per order
+        assertThat(statistics.isNPlusOneSuspected(orders.getRows().size()), is(equalTo(false)));
+    }
+
+    private boolean isLoaded(final Order order, final String attribute) {
+        return emf.getPersistenceUnitUtil().isLoaded(order, attribute);
+    }
+
+    @Test
+    public void findStatusesByIds() {
+        loadForFindByFilter();
+        final List<Order> orders = orderRepository.findAll("createdAt");
+
+        final Map<Long, OrderStatus> statuses = orderRepository.findStatusesByIds(
+                Arrays.asList(orders.get(0).getId(), orders.get(1).getId(), 999L));
+        assertThat(statuses.size(), is(equalTo(2)));
+        assertThat(statuses.get(orders.get(0).getId()), is(equalTo(OrderStatus.RESERVED)));
+        assertThat(statuses.get(orders.get(1).getId()), is(equalTo(OrderStatus.DELIVERED)));
+        assertThat(orderRepository.findStatusesByIds(Arrays.asList()).isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    public void countAndSumReservedOrdersInQueue() {
+        loadForAllReservedOrders();
+        final Date createdAt = DateUtils.getAsDateTime("2017-10-17T10:00:00Z");
+
+        // all the test customers are premium, they are all ahead of a non-premium customer
+        assertThat(orderRepository.countReservedOrdersInQueueUntil(true, createdAt), is(equalTo(2L)));
+        assertThat(orderRepository.sumReservedQuantityInQueueUntil(true, createdAt), is(equalTo(12L)));
+        assertThat(orderRepository.countReservedOrdersInQueueUntil(false, createdAt), is(equalTo(3L)));
+        assertThat(orderRepository.sumReservedQuantityInQueueUntil(false, createdAt), is(equalTo(17L)));
+        assertThat(orderRepository.sumReservedQuantityInQueueUntil(true,
+                DateUtils.getAsDateTime("2017-10-15T10:00:00Z")), is(equalTo(0L)));
+    }
+
+    @Test
+    public void findAllReservedOrdersQueueStats() {
+        loadForAllReservedOrders();
+        final Order delivered = normalizeDependencies(orderDelivered(), em);
+        dbTxExecutor.executeCommand(() -> orderRepository.add(delivered));
+
+        final List<OrderQueueStats> queueStats = orderRepository.findAllReservedOrdersQueueStats();
+        assertThat(queueStats.size(), is(equalTo(3)));
+        for (final OrderQueueStats stats : queueStats) {
+            assertThat(stats.getPosition(),
+                    is(equalTo(orderRepository.checkOrderPositionInQueueByCustomerId(stats.getCustomerId()))));
+            assertThat(stats.getWaitTime(),
+                    is(equalTo(orderRepository.checkOrderWaitTimeInQueueByCustomerId(stats.getCustomerId()))));
+        }
+        assertThat(queueStats.get(2).getCustomerName(), is(equalTo("Donald Trump")));
+        assertThat(queueStats.get(2).getWaitTime(), is(equalTo(17)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.storehouse.app.order.services;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchPackingMetricsUTest {
+    private static final double DELTA = 0.0001;
+
+    private BatchPackingMetrics batchPackingMetrics;
+
+    @Before
+    public void initTestCase() {
+        batchPackingMetrics = new BatchPackingMetrics();
+    }
+
+    @Test
+    public void noBatchRecorded() {
+        assertThat(batchPackingMetrics.getStrategyNames().isEmpty(), is(equalTo(true)));
+        assertThat(batchPackingMetrics.getBatchCount("greedy"), is(equalTo(0L)));
+        assertThat(batchPackingMetrics.getAverageBatchSize("greedy"), is(equalTo(0D)));
+        assertThat(batchPackingMetrics.getFillRatio("greedy"), is(equalTo(0D)));
+    }
+
+    @Test
+    public void recordBatchesByStrategy() {
+        batchPackingMetrics.recordBatch("knapsack", 4, 50, 50);
+        batchPackingMetrics.recordBatch("greedy", 3, 40, 50);
+        batchPackingMetrics.recordBatch("greedy", 2, 30, 50);
+
+        assertThat(batchPackingMetrics.getStrategyNames(), is(equalTo(Arrays.asList("greedy", "knapsack"))));
+        assertThat(batchPackingMetrics.getBatchCount("greedy"), is(equalTo(2L)));
+        assertThat(batchPackingMetrics.getOrderCount("greedy"), is(equalTo(5L)));
+        assertEquals(2.5, batchPackingMetrics.getAverageBatchSize("greedy"), DELTA);
+        assertEquals(0.7, batchPackingMetrics.getFillRatio("greedy"), DELTA);
+        assertEquals(1.0, batchPackingMetrics.getFillRatio("knapsack"), DELTA);
+    }
+
+    @Test
+    public void emptyBatchIsNotRecorded() {
+        batchPackingMetrics.recordBatch("greedy", 0, 0, 50);
+
+        assertThat(batchPackingMetrics.getStrategyNames().isEmpty(), is(equalTo(true)));
+    }
+
+    @Test
+    public void loadAboveTheCapacityFillsTheBatch() {
+        // a large order alone
+        batchPackingMetrics.recordBatch("greedy", 1, 80, 50);
+
+        assertEquals(1.0, batchPackingMetrics.getFillRatio("greedy"), DELTA);
+    }
+}
@@ -0,0 +1,193 @@
+package com.storehouse.app.order.services.impl;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.order.model.Order;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.JMSException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class DeliveryBatchPlannerUTest {
+    private DeliveryBatchPlanner deliveryBatchPlanner;
+
+    @Mock
+    private OrderEventReceiver orderEventReceiver;
+
+    @Before
+    public void initTestCase() {
+        MockitoAnnotations.initMocks(this);
+        deliveryBatchPlanner = new DeliveryBatchPlanner();
+        deliveryBatchPlanner.orderEventReceiver = orderEventReceiver;
+    }
+
+    @Test
+    public void takeWithoutStagedBatchPlansItNow() throws JMSException {
+        final List<Order> orders = Arrays.asList(orderReservedJohnDoe());
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1"), eventsWithQuantities(10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch);
+        when(orderEventReceiver.consumeBatch(batch)).thenReturn(orders);
+
+        assertThat(deliveryBatchPlanner.takeStagedBatch(), is(equalTo(orders)));
+        verify(orderEventReceiver).planBatch(Collections.emptySet());
+    }
+
+    @Test
+    public void messagesOfABatchPlannedOnTheSpotNotPlannedUntilCommitted() throws JMSException {
+        final TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionKey()).thenReturn(new Object());
+        deliveryBatchPlanner.transactionRegistry = registry;
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch);
+
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver).consumeBatch(batch);
+        deliveryBatchPlanner.planNextBatch();
+        verify(orderEventReceiver).planBatch(new HashSet<>(Arrays.asList("ID:1", "ID:2")));
+
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+        deliveryBatchPlanner.planNextBatch();
+        verify(orderEventReceiver, times(2)).planBatch(Collections.emptySet());
+    }
+
+    @Test
+    public void takeStagedBatchOnlyOnce() throws JMSException {
+        final List<Order> orders = Arrays.asList(orderReservedJohnDoe(), orderReservedEndaKenny());
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch);
+        when(orderEventReceiver.consumeBatch(batch)).thenReturn(orders);
+
+        deliveryBatchPlanner.planNextBatch();
+        assertThat(deliveryBatchPlanner.takeStagedBatch(), is(equalTo(orders)));
+        verify(orderEventReceiver).planBatch(anySetOf(String.class));
+
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver, times(2)).planBatch(anySetOf(String.class));
+    }
+
+    @Test
+    public void messagesOfTheTakenBatchNotPlannedUntilCommitted() throws JMSException {
+        final TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionKey()).thenReturn(new Object());
+        deliveryBatchPlanner.transactionRegistry = registry;
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch);
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.takeStagedBatch();
+        deliveryBatchPlanner.planNextBatch();
+        verify(orderEventReceiver).planBatch(new HashSet<>(Arrays.asList("ID:1", "ID:2")));
+
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        deliveryBatchPlanner.planNextBatch();
+        verify(orderEventReceiver, times(2)).planBatch(Collections.emptySet());
+    }
+
+    @Test
+    public void planningWhileABatchIsTakenIsNotStaged() throws JMSException {
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        final DeliveryBatch batchPlannedOnTheSpot = new DeliveryBatch(Arrays.asList("ID:3"),
+                eventsWithQuantities(10));
+        final AtomicBoolean planning = new AtomicBoolean();
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenAnswer(invocation -> {
+            if (!planning.compareAndSet(false, true)) {
+                return batchPlannedOnTheSpot;
+            }
+            // the orders of the browsed messages are consumed by another request
+            deliveryBatchPlanner.takeStagedBatch();
+            return batch;
+        });
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver, times(2)).consumeBatch(batchPlannedOnTheSpot);
+        verify(orderEventReceiver, never()).consumeBatch(batch);
+    }
+
+    @Test
+    public void droppedBatchIsPlannedAgainOnTheSpot() throws JMSException {
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        final DeliveryBatch batchWithPremiumOrder = new DeliveryBatch(Arrays.asList("ID:3"),
+                eventsWithQuantities(10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch, batchWithPremiumOrder);
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.dropStagedBatch();
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver).consumeBatch(batchWithPremiumOrder);
+        verify(orderEventReceiver, never()).consumeBatch(batch);
+    }
+
+    @Test
+    public void batchPlannedBeforeThePremiumOrderIsCommittedIsDropped() throws JMSException {
+        final TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionKey()).thenReturn(new Object());
+        deliveryBatchPlanner.transactionRegistry = registry;
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        final DeliveryBatch batchWithPremiumOrder = new DeliveryBatch(Arrays.asList("ID:3"),
+                eventsWithQuantities(10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenReturn(batch, batch, batchWithPremiumOrder);
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.dropStagedBatch();
+        // planned while the transaction placing the premium order is not committed
+        deliveryBatchPlanner.planNextBatch();
+
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver).consumeBatch(batchWithPremiumOrder);
+        verify(orderEventReceiver, never()).consumeBatch(batch);
+    }
+
+    @Test
+    public void planningWhileTheBatchIsDroppedIsNotStaged() throws JMSException {
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1", "ID:2"), eventsWithQuantities(2, 10));
+        final DeliveryBatch batchWithPremiumOrder = new DeliveryBatch(Arrays.asList("ID:3"),
+                eventsWithQuantities(10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenAnswer(invocation -> {
+            // a premium order is placed while the queue is browsed
+            deliveryBatchPlanner.dropStagedBatch();
+            return batch;
+        }).thenReturn(batchWithPremiumOrder);
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver).consumeBatch(batchWithPremiumOrder);
+        verify(orderEventReceiver, never()).consumeBatch(batch);
+    }
+
+    @Test
+    public void failedPlanningDoesNotStageAnything() throws JMSException {
+        final DeliveryBatch batch = new DeliveryBatch(Arrays.asList("ID:1"), eventsWithQuantities(10));
+        when(orderEventReceiver.planBatch(anySetOf(String.class))).thenThrow(new JMSException("queue not available"))
+                .thenReturn(batch);
+
+        deliveryBatchPlanner.planNextBatch();
+        deliveryBatchPlanner.takeStagedBatch();
+        verify(orderEventReceiver, times(2)).planBatch(anySetOf(String.class));
+        verify(orderEventReceiver).consumeBatch(batch);
+    }
+}
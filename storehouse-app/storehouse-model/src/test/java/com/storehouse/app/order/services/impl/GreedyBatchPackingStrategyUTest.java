@@ -0,0 +1,37 @@
+package com.storehouse.app.order.services.impl;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.services.BatchPackingStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GreedyBatchPackingStrategyUTest {
+    private final BatchPackingStrategy packingStrategy = new GreedyBatchPackingStrategy();
+
+    private List<Integer> pack(final int... quantities) {
+        return quantitiesOf(packingStrategy.pack(eventsWithQuantities(quantities), Order.MAX_LOAD));
+    }
+
+    @Test
+    public void stopsAtTheFirstOrderWhichDoesNotFit() {
+        assertThat(pack(2, 10, 20, 5), is(equalTo(Arrays.asList(2, 10))));
+    }
+
+    @Test
+    public void largeOrderAtTheHeadGoesAlone() {
+        assertThat(pack(30, 1), is(equalTo(Arrays.asList(30))));
+    }
+
+    @Test
+    public void noCandidate() {
+        assertThat(packingStrategy.pack(new ArrayList<>(), Order.MAX_LOAD).isEmpty(), is(equalTo(true)));
+    }
+}
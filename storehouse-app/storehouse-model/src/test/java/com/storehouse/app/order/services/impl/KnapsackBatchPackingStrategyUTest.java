@@ -0,0 +1,49 @@
+package com.storehouse.app.order.services.impl;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.OrderEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class KnapsackBatchPackingStrategyUTest {
+
+    private List<Integer> pack(final int... quantities) {
+        return quantitiesOf(new KnapsackBatchPackingStrategy(10).pack(eventsWithQuantities(quantities),
+                Order.MAX_LOAD));
+    }
+
+    @Test
+    public void fillsTheBatchBetterThanFirstFit() {
+        final List<OrderEvent> candidates = eventsWithQuantities(10, 9, 8, 7);
+        assertThat(quantitiesOf(new LookAheadBatchPackingStrategy(10).pack(candidates, Order.MAX_LOAD)),
+                is(equalTo(Arrays.asList(10, 9))));
+        assertThat(pack(10, 9, 8, 7), is(equalTo(Arrays.asList(10, 8, 7))));
+    }
+
+    @Test
+    public void prefersTheEarliestOrdersAmongTheBestFillings() {
+        assertThat(pack(5, 10, 10, 5, 5), is(equalTo(Arrays.asList(5, 10, 10))));
+    }
+
+    @Test
+    public void headIsAlwaysInTheBatch() {
+        // 24 alone would fill the batch better, but the head of the queue must not starve
+        assertThat(pack(3, 24, 20), is(equalTo(Arrays.asList(3, 20))));
+    }
+
+    @Test
+    public void factoryCreatesTheStrategyByName() {
+        assertThat(BatchPackingStrategyFactory.create("knapsack", 40).getLookAhead(), is(equalTo(40)));
+        assertThat(BatchPackingStrategyFactory.create("LookAhead", 40).getName(),
+                is(equalTo(LookAheadBatchPackingStrategy.NAME)));
+        assertThat(BatchPackingStrategyFactory.create("unknown", 40).getName(),
+                is(equalTo(GreedyBatchPackingStrategy.NAME)));
+    }
+}
@@ -0,0 +1,35 @@
+package com.storehouse.app.order.services.impl;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.order.model.Order;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LookAheadBatchPackingStrategyUTest {
+
+    private List<Integer> pack(final int lookAhead, final int... quantities) {
+        return quantitiesOf(new LookAheadBatchPackingStrategy(lookAhead).pack(eventsWithQuantities(quantities),
+                Order.MAX_LOAD));
+    }
+
+    @Test
+    public void skipsTheOrdersWhichDoNotFit() {
+        assertThat(pack(10, 2, 10, 20, 5, 8), is(equalTo(Arrays.asList(2, 10, 5, 8))));
+    }
+
+    @Test
+    public void onlyLooksWithinTheWindow() {
+        assertThat(pack(2, 2, 30, 1), is(equalTo(Arrays.asList(2))));
+    }
+
+    @Test
+    public void largeOrderAtTheHeadGoesAlone() {
+        assertThat(pack(10, 25, 1), is(equalTo(Arrays.asList(25))));
+    }
+}
@@ -14,17 +14,28 @@ import com.storehouse.app.common.exception.OrderStatusCannotBeChangedException;
 import com.storehouse.app.common.exception.UserNotAuthorizedException;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.OrderFilter;
+import com.storehouse.app.common.security.AuthenticationToken;
+import com.storehouse.app.common.security.TokenCaller;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderEvent;
+import com.storehouse.app.order.model.OrderStatusChange;
+import com.storehouse.app.order.model.OrderStatusChange.Result;
 import com.storehouse.app.order.repository.OrderRepository;
 import com.storehouse.app.order.services.OrderServices;
+import com.storehouse.app.user.model.Customer;
 import com.storehouse.app.user.model.User.Roles;
 import com.storehouse.app.user.services.UserServices;
 
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.ejb.SessionContext;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.Queue;
 import javax.validation.Validation;
 import javax.validation.Validator;
 
@@ -49,10 +60,17 @@ public class OrderServicesUTest {
     @Mock
     private SessionContext sessionContext; // to check the user logged in the system
 
+    @Mock
+    private DeliveryBatchPlanner deliveryBatchPlanner;
+
     private static final String LOGGED_EMAIL = "anyemail@domain.com";
 
     private Validator validator;
 
+    private ReservationIndex reservationIndex;
+
+    private TokenCaller tokenCaller;
+
     @Before
     public void initTestCase() {
         orderServices = new OrderServicesImpl();
@@ -64,6 +82,12 @@ public class OrderServicesUTest {
         ((OrderServicesImpl) orderServices).orderRepository = orderRepository;
         ((OrderServicesImpl) orderServices).userServices = userServices;
         ((OrderServicesImpl) orderServices).sessionContext = sessionContext;
+        tokenCaller = new TokenCaller();
+        ((OrderServicesImpl) orderServices).tokenCaller = tokenCaller;
+
+        reservationIndex = new ReservationIndex();
+        ((OrderServicesImpl) orderServices).reservationIndex = reservationIndex;
+        ((OrderServicesImpl) orderServices).deliveryBatchPlanner = deliveryBatchPlanner;
 
         setUpLoggedEmail(LOGGED_EMAIL, Roles.ADMIN);
     }
@@ -128,6 +152,19 @@ public class OrderServicesUTest {
         logger.info("jiafanz: {}", addedOrder);
         assertThat(addedOrder, is(notNullValue()));
         assertThat(addedOrder.getId(), is(equalTo(1L)));
+        verify(deliveryBatchPlanner).dropStagedBatch();
+    }
+
+    @Test
+    public void addValidOrderOfANonPremiumCustomerKeepsTheStagedBatch() {
+        when(userServices.findByEmail(LOGGED_EMAIL)).thenReturn(userWithIdAndDate(johnDoe(), Customer.PREMIUM_ID_MAX));
+        when(orderRepository.add(orderEqual(orderReservedJohnDoe())))
+                .thenReturn(orderWithId(orderReservedJohnDoe(), 1L));
+
+        final Order order = orderReservedJohnDoe();
+        order.getCustomer().setId(Customer.PREMIUM_ID_MAX);
+        assertThat(orderServices.add(order), is(notNullValue()));
+        verify(deliveryBatchPlanner, never()).dropStagedBatch();
     }
 
     @Test(expected = OrderNotFoundException.class)
@@ -197,6 +234,103 @@ public class OrderServicesUTest {
         verify(orderRepository).update(orderEqual(expectedOrder));
     }
 
+    @Test
+    public void updateStatusCancelledPurgesTheOrderEvent() {
+        final JMSContext jmsContext = mock(JMSContext.class);
+        final JMSConsumer jmsConsumer = mock(JMSConsumer.class);
+        when(jmsContext.createConsumer((Queue) anyObject(), eq("orderId = 1"))).thenReturn(jmsConsumer);
+        ((OrderServicesImpl) orderServices).jmsContext = jmsContext;
+
+        when(orderRepository.findById(1L)).thenReturn(orderWithId(orderReservedJohnDoe(), 1L));
+        orderServices.updateStatus(1L, OrderStatus.CANCELLED);
+
+        verify(jmsConsumer).receiveNoWait();
+        verify(jmsConsumer).close();
+    }
+
+    @Test
+    public void updateStatusPendingDoesNotPurgeTheOrderEvent() {
+        final JMSContext jmsContext = mock(JMSContext.class);
+        ((OrderServicesImpl) orderServices).jmsContext = jmsContext;
+
+        when(orderRepository.findById(1L)).thenReturn(orderWithId(orderReservedJohnDoe(), 1L));
+        orderServices.updateStatus(1L, OrderStatus.PENDING);
+
+        verify(jmsContext, never()).createConsumer((Queue) anyObject(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void updateStatusesValidatedTogether() {
+        setUpLoggedEmail(LOGGED_EMAIL, Roles.EMPLOYEE);
+        final Order reserved = orderWithId(orderReservedJohnDoe(), 1L);
+        reserved.getCustomer().setId(1L);
+        reservationIndex.add(reserved);
+        final Order delivered = orderWithId(orderDelivered(), 2L);
+        when(orderRepository.findByIds(anyCollection())).thenReturn(Arrays.asList(reserved, delivered));
+        when(orderRepository.updateStatuses(anyMap(), anyMap())).thenReturn(Collections.singleton(1L));
+
+        final List<OrderStatusChange> changes = orderServices.updateStatuses(Arrays.asList(
+                new OrderStatusChange(1L, OrderStatus.DELIVERED),
+                new OrderStatusChange(2L, OrderStatus.CANCELLED),
+                new OrderStatusChange(3L, OrderStatus.DELIVERED),
+                new OrderStatusChange(1L, OrderStatus.CANCELLED)));
+
+        assertThat(changes.get(0).getResult(), is(equalTo(Result.UPDATED)));
+        assertThat(changes.get(1).getResult(), is(equalTo(Result.NOT_ALLOWED)));
+        assertThat(changes.get(2).getResult(), is(equalTo(Result.NOT_FOUND)));
+        // an order is changed once per call
+        assertThat(changes.get(3).getResult(), is(equalTo(Result.NOT_ALLOWED)));
+        verify(orderRepository).findByIds(anyCollection());
+        verify(orderRepository).updateStatuses(Collections.singletonMap(1L, OrderStatus.DELIVERED),
+                Collections.singletonMap(1L, OrderStatus.RESERVED));
+        verify(orderRepository, never()).update((Order) anyObject());
+        assertThat(reservationIndex.findPosition(1L), is(nullValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void updateStatusesAsCustomer() {
+        setUpLoggedEmail(orderReservedJohnDoe().getCustomer().getEmail(), Roles.CUSTOMER);
+        final JMSContext jmsContext = mock(JMSContext.class);
+        final JMSConsumer jmsConsumer = mock(JMSConsumer.class);
+        when(jmsContext.createConsumer((Queue) anyObject(), eq("orderId = 1"))).thenReturn(jmsConsumer);
+        ((OrderServicesImpl) orderServices).jmsContext = jmsContext;
+        when(orderRepository.findByIds(anyCollection())).thenReturn(Arrays.asList(
+                orderWithId(orderReservedJohnDoe(), 1L), orderWithId(orderReservedDonaldTrump(), 2L)));
+        when(orderRepository.updateStatuses(anyMap(), anyMap())).thenReturn(Collections.singleton(1L));
+
+        final List<OrderStatusChange> changes = orderServices.updateStatuses(Arrays.asList(
+                new OrderStatusChange(1L, OrderStatus.CANCELLED),
+                new OrderStatusChange(2L, OrderStatus.CANCELLED)));
+
+        assertThat(changes.get(0).getResult(), is(equalTo(Result.UPDATED)));
+        // not the order of the customer
+        assertThat(changes.get(1).getResult(), is(equalTo(Result.FORBIDDEN)));
+        verify(orderRepository).updateStatuses(Collections.singletonMap(1L, OrderStatus.CANCELLED),
+                Collections.singletonMap(1L, OrderStatus.RESERVED));
+        verify(jmsConsumer).receiveNoWait();
+        verify(jmsConsumer).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void updateStatusesOfOrdersChangedMeanwhile() {
+        setUpLoggedEmail(LOGGED_EMAIL, Roles.EMPLOYEE);
+        final Order reserved = orderWithId(orderReservedJohnDoe(), 1L);
+        reserved.getCustomer().setId(1L);
+        reservationIndex.add(reserved);
+        when(orderRepository.findByIds(anyCollection())).thenReturn(Arrays.asList(reserved));
+        // changed by another transaction since it was loaded
+        when(orderRepository.updateStatuses(anyMap(), anyMap())).thenReturn(Collections.emptySet());
+
+        final List<OrderStatusChange> changes = orderServices
+                .updateStatuses(Arrays.asList(new OrderStatusChange(1L, OrderStatus.DELIVERED)));
+
+        assertThat(changes.get(0).getResult(), is(equalTo(Result.NOT_ALLOWED)));
+        assertThat(reservationIndex.findPosition(1L), is(equalTo(1)));
+    }
+
     @Test
     public void findAllOrders() {
         when(orderRepository.findAll("createdAt")).thenReturn(allOrders());
@@ -228,4 +362,53 @@ public class OrderServicesUTest {
         final Integer waitTime = orderServices.checkOrderWaitTimeInQueueByCustomerId(1L);
         assertThat(waitTime, is(equalTo(10)));
     }
+
+    @Test
+    public void checkOrderPositionAndWaitTimeFromReservationIndex() {
+        final Order order = orderWithId(orderReservedJohnDoe(), 1L);
+        order.getCustomer().setId(1L);
+        reservationIndex.add(order);
+
+        assertThat(orderServices.checkOrderPositionInQueueByCustomerId(1L), is(equalTo(1)));
+        assertThat(orderServices.checkOrderWaitTimeInQueueByCustomerId(1L), is(equalTo(2)));
+        verify(orderRepository, never()).checkOrderPositionInQueueByCustomerId(1L);
+        verify(orderRepository, never()).checkOrderWaitTimeInQueueByCustomerId(1L);
+    }
+
+    @Test
+    public void updateStatusRemovesOrderFromReservationIndex() {
+        setUpLoggedEmail(LOGGED_EMAIL, Roles.EMPLOYEE);
+        final Order order = orderWithId(orderReservedJohnDoe(), 1L);
+        order.getCustomer().setId(1L);
+        reservationIndex.add(order);
+        when(orderRepository.findById(1L)).thenReturn(order);
+
+        orderServices.updateStatus(1L, OrderStatus.DELIVERED);
+        assertThat(reservationIndex.findPosition(1L), is(nullValue()));
+    }
+
+    @Test(expected = UserNotAuthorizedException.class)
+    public void findAllReservedOrdersQueueStatsAsCustomer() {
+        setUpLoggedEmail(LOGGED_EMAIL, Roles.CUSTOMER);
+        orderServices.findAllReservedOrdersQueueStats();
+    }
+
+    // the security domain does not know the callers authenticated by a token
+    @Test(expected = UserNotAuthorizedException.class)
+    public void findAllReservedOrdersQueueStatsAsCustomerAuthenticatedByToken() {
+        reset(sessionContext);
+        tokenCaller.authenticate(new AuthenticationToken(LOGGED_EMAIL, Arrays.asList(Roles.CUSTOMER),
+                System.currentTimeMillis() + 60000L));
+        orderServices.findAllReservedOrdersQueueStats();
+    }
+
+    @Test
+    public void findAllReservedOrdersQueueStatsAsEmployeeAuthenticatedByToken() {
+        reset(sessionContext);
+        tokenCaller.authenticate(new AuthenticationToken(LOGGED_EMAIL, Arrays.asList(Roles.EMPLOYEE),
+                System.currentTimeMillis() + 60000L));
+        orderServices.findAllReservedOrdersQueueStats();
+        verify(orderRepository).findAllReservedOrdersQueueStats();
+        verifyZeroInteractions(sessionContext);
+    }
 }
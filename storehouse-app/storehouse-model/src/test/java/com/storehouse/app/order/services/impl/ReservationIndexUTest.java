@@ -0,0 +1,214 @@
+package com.storehouse.app.order.services.impl;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.repository.OrderRepository;
+import com.storehouse.app.user.model.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ReservationIndexUTest {
+    private ReservationIndex reservationIndex;
+
+    @Before
+    public void initTestCase() {
+        reservationIndex = new ReservationIndex();
+    }
+
+    private Order reservedOrder(final Order order, final Long orderId, final Long customerId, final String createdAt) {
+        orderWithId(order, orderId);
+        order.getCustomer().setId(customerId);
+        return orderCreatedAt(order, createdAt);
+    }
+
+    private void loadJohnEndaAndDonald() {
+        reservationIndex.add(reservedOrder(orderReservedJohnDoe(), 1L, 1L, "2017-10-16T10:00:00Z"));
+        reservationIndex.add(reservedOrder(orderReservedEndaKenny(), 2L, 1001L, "2017-10-17T10:00:00Z"));
+        reservationIndex.add(reservedOrder(orderReservedDonaldTrump(), 3L, 2L, "2017-10-18T10:00:00Z"));
+    }
+
+    @Test
+    public void customerNotInIndex() {
+        loadJohnEndaAndDonald();
+        assertThat(reservationIndex.findPosition(999L), is(nullValue()));
+        assertThat(reservationIndex.findWaitTime(999L), is(nullValue()));
+    }
+
+    @Test
+    public void premiumCustomersAreBeforeNonPremiumCustomers() {
+        loadJohnEndaAndDonald();
+
+        assertThat(reservationIndex.findPosition(1L), is(equalTo(1)));
+        assertThat(reservationIndex.findWaitTime(1L), is(equalTo(2)));
+        assertThat(reservationIndex.findPosition(2L), is(equalTo(2)));
+        assertThat(reservationIndex.findWaitTime(2L), is(equalTo(7)));
+        assertThat(reservationIndex.findPosition(1001L), is(equalTo(3)));
+        assertThat(reservationIndex.findWaitTime(1001L), is(equalTo(17)));
+    }
+
+    @Test
+    public void removeOrderFromIndex() {
+        loadJohnEndaAndDonald();
+        reservationIndex.remove(reservedOrder(orderReservedDonaldTrump(), 3L, 2L, "2017-10-18T10:00:00Z"));
+
+        assertThat(reservationIndex.size(), is(equalTo(2)));
+        assertThat(reservationIndex.findPosition(2L), is(nullValue()));
+        assertThat(reservationIndex.findPosition(1001L), is(equalTo(2)));
+        assertThat(reservationIndex.findWaitTime(1001L), is(equalTo(12)));
+    }
+
+    @Test
+    public void removeOrderNotInIndexIsIgnored() {
+        loadJohnEndaAndDonald();
+        // same customer, but a different order
+        reservationIndex.remove(reservedOrder(orderReservedDonaldTrump(), 99L, 2L, "2017-10-18T10:00:00Z"));
+
+        assertThat(reservationIndex.size(), is(equalTo(3)));
+        assertThat(reservationIndex.findPosition(2L), is(equalTo(2)));
+    }
+
+    @Test
+    public void addOrderOlderThanTheLastOne() {
+        loadJohnEndaAndDonald();
+        reservationIndex.add(reservedOrder(orderReservedDonaldTrump(), 4L, 3L, "2017-10-15T10:00:00Z"));
+
+        assertThat(reservationIndex.findPosition(3L), is(equalTo(1)));
+        assertThat(reservationIndex.findPosition(1L), is(equalTo(2)));
+        assertThat(reservationIndex.findWaitTime(1L), is(equalTo(7)));
+        assertThat(reservationIndex.findPosition(1001L), is(equalTo(4)));
+        assertThat(reservationIndex.findWaitTime(1001L), is(equalTo(22)));
+    }
+
+    @Test
+    public void ordersCreatedAtTheSameTimeAreCountedTogether() {
+        reservationIndex.add(reservedOrder(orderReservedJohnDoe(), 1L, 1L, "2017-10-16T10:00:00Z"));
+        reservationIndex.add(reservedOrder(orderReservedDonaldTrump(), 2L, 2L, "2017-10-16T10:00:00Z"));
+
+        assertThat(reservationIndex.findPosition(1L), is(equalTo(2)));
+        assertThat(reservationIndex.findPosition(2L), is(equalTo(2)));
+        assertThat(reservationIndex.findWaitTime(1L), is(equalTo(7)));
+    }
+
+    @Test
+    public void changesAppliedOnceTheTransactionIsCommitted() {
+        final TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionKey()).thenReturn(new Object());
+        reservationIndex.transactionRegistry = registry;
+
+        reservationIndex.add(reservedOrder(orderReservedJohnDoe(), 1L, 1L, "2017-10-16T10:00:00Z"));
+        reservationIndex.add(reservedOrder(orderReservedDonaldTrump(), 2L, 2L, "2017-10-17T10:00:00Z"));
+        final ArgumentCaptor<Synchronization> synchronizations = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry, times(2)).registerInterposedSynchronization(synchronizations.capture());
+        assertThat(reservationIndex.size(), is(equalTo(0)));
+
+        synchronizations.getAllValues().get(0).afterCompletion(Status.STATUS_COMMITTED);
+        synchronizations.getAllValues().get(1).afterCompletion(Status.STATUS_ROLLEDBACK);
+        assertThat(reservationIndex.size(), is(equalTo(1)));
+        assertThat(reservationIndex.findPosition(1L), is(equalTo(1)));
+        assertThat(reservationIndex.findPosition(2L), is(nullValue()));
+    }
+
+    @Test
+    public void rebuildKeepsTheChangesMadeDuringTheLoad() {
+        final OrderRepository orderRepository = mock(OrderRepository.class);
+        reservationIndex.orderRepository = orderRepository;
+        final Order john = reservedOrder(orderReservedJohnDoe(), 1L, 1L, "2017-10-16T10:00:00Z");
+        final Order donald = reservedOrder(orderReservedDonaldTrump(), 2L, 2L, "2017-10-17T10:00:00Z");
+        final Order enda = reservedOrder(orderReservedEndaKenny(), 3L, 1001L, "2017-10-18T10:00:00Z");
+        // john is consumed and enda placed while the load reads the database
+        when(orderRepository.findAllReservedOrders()).thenAnswer(invocation -> {
+            reservationIndex.remove(john);
+            reservationIndex.add(enda);
+            return Arrays.asList(john, donald);
+        });
+
+        reservationIndex.rebuild();
+
+        assertThat(reservationIndex.size(), is(equalTo(2)));
+        assertThat(reservationIndex.findPosition(1L), is(nullValue()));
+        assertThat(reservationIndex.findPosition(2L), is(equalTo(1)));
+        assertThat(reservationIndex.findPosition(1001L), is(equalTo(2)));
+    }
+
+    @Test
+    public void failedRebuildKeepsTheIndex() {
+        final OrderRepository orderRepository = mock(OrderRepository.class);
+        reservationIndex.orderRepository = orderRepository;
+        loadJohnEndaAndDonald();
+        when(orderRepository.findAllReservedOrders()).thenThrow(new IllegalStateException());
+
+        try {
+            reservationIndex.rebuild();
+            fail("An exception should have been thrown");
+        } catch (final IllegalStateException e) {
+            assertThat(reservationIndex.size(), is(equalTo(3)));
+        }
+        reservationIndex.remove(reservedOrder(orderReservedDonaldTrump(), 3L, 2L, "2017-10-18T10:00:00Z"));
+        assertThat(reservationIndex.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void randomOperationsMatchAFullScan() {
+        final Random random = new Random(42L);
+        final List<Order> reserved = new ArrayList<>();
+        long nextOrderId = 1L;
+
+        for (int i = 0; i < 2000; i++) {
+            if (reserved.isEmpty() || random.nextInt(3) > 0) {
+                final Order order = new Order();
+                order.setId(nextOrderId++);
+                final Customer customer = new Customer();
+                // a few customers only, so the existing orders are replaced too
+                customer.setId(random.nextBoolean() ? (long) random.nextInt(50) : 1000L + random.nextInt(50));
+                order.setCustomer(customer);
+                order.addItem(1 + random.nextInt(25));
+                // mostly increasing dates, with a few older ones
+                order.setCreatedAt(new Date(i * 1000L - (random.nextInt(10) == 0 ? random.nextInt(100000) : 0)));
+                reserved.removeIf(e -> e.getCustomer().getId().equals(customer.getId()));
+                reserved.add(order);
+                reservationIndex.add(order);
+            } else {
+                reservationIndex.remove(reserved.remove(random.nextInt(reserved.size())));
+            }
+
+            final Order toCheck = reserved.get(random.nextInt(reserved.size()));
+            assertThat(reservationIndex.findPosition(toCheck.getCustomer().getId()),
+                    is(equalTo(countAhead(reserved, toCheck, false))));
+            assertThat(reservationIndex.findWaitTime(toCheck.getCustomer().getId()),
+                    is(equalTo(countAhead(reserved, toCheck, true))));
+        }
+        assertThat(reservationIndex.size(), is(equalTo(reserved.size())));
+    }
+
+    // the same rules as the OrderRepository queries
+    private int countAhead(final List<Order> reserved, final Order order, final boolean sumQuantity) {
+        final boolean premium = order.getCustomer().isPremiumCustomer();
+        int total = 0;
+        for (final Order other : reserved) {
+            final boolean otherPremium = other.getCustomer().isPremiumCustomer();
+            final boolean ahead = premium
+                    ? otherPremium && !other.getCreatedAt().after(order.getCreatedAt())
+                    : otherPremium || !other.getCreatedAt().after(order.getCreatedAt());
+            if (ahead) {
+                total += sumQuantity ? other.calculateTotalQuantity() : 1;
+            }
+        }
+        return total;
+    }
+}
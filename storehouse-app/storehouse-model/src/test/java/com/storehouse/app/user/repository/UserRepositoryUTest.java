@@ -4,6 +4,7 @@ import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import com.storehouse.app.common.exception.FieldNotValidException;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.PaginationData;
 import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
@@ -188,4 +189,18 @@ public class UserRepositoryUTest extends TestBaseRepository {
         assertThat(result.getRows().size(), is(equalTo(1)));
         assertThat(result.getRow(0).getName(), is(equalTo(johnDoe().getName())));
     }
+
+    @Test(expected = FieldNotValidException.class)
+    public void findByFilterSortingByFieldNotSortable() {
+        loadDataForFindByFilter();
+
+        final UserFilter filter = new UserFilter();
+        filter.setPaginationData(new PaginationData(0, 2, "password", OrderMode.DESCENDING));
+        userRepository.findByFilter(filter);
+    }
+
+    @Test(expected = FieldNotValidException.class)
+    public void findAllSortingByInjectedField() {
+        userRepository.findAll("name, (Select 1 From User u)");
+    }
 }
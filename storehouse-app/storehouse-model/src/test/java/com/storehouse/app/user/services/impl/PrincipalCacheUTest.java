@@ -0,0 +1,78 @@
+package com.storehouse.app.user.services.impl;
+
+import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import com.storehouse.app.user.model.Employee;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrincipalCacheUTest {
+    private PrincipalCache principalCache;
+
+    @Before
+    public void initTestCase() {
+        System.setProperty(PrincipalCache.SIZE_PROPERTY, "2");
+        principalCache = new PrincipalCache();
+        principalCache.init();
+    }
+
+    @After
+    public void closeTestCase() {
+        System.clearProperty(PrincipalCache.SIZE_PROPERTY);
+    }
+
+    @Test
+    public void getNotCachedUser() {
+        assertThat(principalCache.get(marySimpson().getEmail()), is(nullValue()));
+        assertThat(principalCache.getMissCount(), is(equalTo(1L)));
+        assertThat(principalCache.getHitRate(), is(equalTo(0D)));
+    }
+
+    @Test
+    public void getCachedUserGivesACopy() {
+        final User user = userWithIdAndDate(admin(), 1L);
+        principalCache.put(user);
+
+        final User cachedUser = principalCache.get(user.getEmail());
+        assertThat(cachedUser, is(not(sameInstance(user))));
+        assertThat(cachedUser instanceof Employee, is(equalTo(true)));
+        assertThat(cachedUser.getId(), is(equalTo(1L)));
+        assertThat(cachedUser.getName(), is(equalTo(user.getName())));
+        assertThat(cachedUser.getPassword(), is(equalTo(user.getPassword())));
+        assertThat(cachedUser.getRoles(), is(equalTo(user.getRoles())));
+        assertThat(cachedUser.getCreatedAt(), is(equalTo(user.getCreatedAt())));
+
+        // changing the copy does not change the cached user
+        cachedUser.getRoles().add(Roles.CUSTOMER);
+        assertThat(principalCache.get(user.getEmail()).getRoles(), is(equalTo(user.getRoles())));
+        assertThat(principalCache.getHitRate(), is(equalTo(1D)));
+    }
+
+    @Test
+    public void leastRecentlyUsedUserIsEvicted() {
+        principalCache.put(userWithIdAndDate(marySimpson(), 1L));
+        principalCache.put(userWithIdAndDate(johnDoe(), 2L));
+        principalCache.get(marySimpson().getEmail());
+        principalCache.put(userWithIdAndDate(endaKenny(), 3L));
+
+        assertThat(principalCache.size(), is(equalTo(2)));
+        assertThat(principalCache.get(johnDoe().getEmail()), is(nullValue()));
+        assertThat(principalCache.get(marySimpson().getEmail()), is(notNullValue()));
+        assertThat(principalCache.get(endaKenny().getEmail()), is(notNullValue()));
+    }
+
+    @Test
+    public void invalidateUser() {
+        principalCache.put(userWithIdAndDate(marySimpson(), 1L));
+        principalCache.invalidate(marySimpson().getEmail());
+
+        assertThat(principalCache.get(marySimpson().getEmail()), is(nullValue()));
+        assertThat(principalCache.size(), is(equalTo(0)));
+    }
+}
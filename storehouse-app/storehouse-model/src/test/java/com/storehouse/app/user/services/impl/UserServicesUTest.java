@@ -14,17 +14,22 @@ import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.filter.UserFilter;
 import com.storehouse.app.common.utils.PasswordUtils;
 import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
 import com.storehouse.app.user.repository.UserRepository;
 import com.storehouse.app.user.services.UserServices;
 
 import java.util.Arrays;
 import java.util.List;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.validation.Validation;
 import javax.validation.Validator;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +40,7 @@ public class UserServicesUTest {
     private UserRepository userRepository;
 
     private Validator validator;
+    private PrincipalCache principalCache;
 
     @Before
     public void initTestCase() {
@@ -45,6 +51,10 @@ public class UserServicesUTest {
         ((UserServicesImpl) userServices).validator = validator;
         ((UserServicesImpl) userServices).userRepository = userRepository;
 
+        principalCache = new PrincipalCache();
+        principalCache.init();
+        ((UserServicesImpl) userServices).principalCache = principalCache;
+
     }
 
     private void addUserWithInvalidField(final User user, final String expectedInvalidField) {
@@ -159,6 +169,34 @@ public class UserServicesUTest {
         verify(userRepository).update(userEqual(userWithIdAndDate(marySimpson(), 1L)));
     }
 
+    @Test
+    public void updateUserKeepsTheTokens() {
+        final User foundUser = userWithIdAndDate(marySimpson(), 1L);
+        foundUser.setTokenVersion(3);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(foundUser);
+
+        final User user = userWithIdAndDate(marySimpson(), 1L);
+        user.setName("Mary Simpson Jr");
+        userServices.update(user);
+
+        assertThat(user.getTokenVersion(), is(equalTo(3)));
+    }
+
+    @Test
+    public void updateUserRolesRevokesTheTokens() {
+        final User foundUser = userWithIdAndDate(marySimpson(), 1L);
+        foundUser.setTokenVersion(3);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(foundUser);
+
+        final User user = userWithIdAndDate(marySimpson(), 1L);
+        user.setRoles(Arrays.asList(Roles.CUSTOMER, Roles.ADMIN));
+        userServices.update(user);
+
+        assertThat(user.getTokenVersion(), is(equalTo(4)));
+    }
+
     @Test(expected = UserNotFoundException.class)
     public void findUserByIdWithNull() {
         when(userRepository.findById(1L)).thenReturn(null);
@@ -200,6 +238,16 @@ public class UserServicesUTest {
         verify(userRepository).update(userEqual(expectedUser));
     }
 
+    @Test
+    public void updatePasswordRevokesTheTokens() {
+        final User user = userWithIdAndDate(marySimpson(), 1L);
+        when(userRepository.findById(1L)).thenReturn(user);
+
+        userServices.updatePassword(1L, "new_password_1234");
+
+        assertThat(user.getTokenVersion(), is(equalTo(1)));
+    }
+
     @Test(expected = UserNotFoundException.class)
     public void findUserByEmailNotFound() {
         when(userRepository.findByEmail(marySimpson().getEmail())).thenReturn(null);
@@ -214,6 +262,63 @@ public class UserServicesUTest {
         assertThat(user.getName(), is(equalTo(marySimpson().getName())));
     }
 
+    @Test
+    public void findUserByEmailTwiceHitsTheCache() {
+        when(userRepository.findByEmail(marySimpson().getEmail())).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.findByEmail(marySimpson().getEmail());
+        final User user = userServices.findByEmail(marySimpson().getEmail());
+
+        assertThat(user.getId(), is(equalTo(1L)));
+        assertThat(user.getName(), is(equalTo(marySimpson().getName())));
+        verify(userRepository, times(1)).findByEmail(marySimpson().getEmail());
+        assertThat(principalCache.getHitCount(), is(equalTo(1L)));
+        assertThat(principalCache.getMissCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void updateUserInvalidatesTheCache() {
+        when(userRepository.findByEmail(marySimpson().getEmail())).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.findByEmail(marySimpson().getEmail());
+
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.update(userWithIdAndDate(marySimpson(), 1L));
+        userServices.findByEmail(marySimpson().getEmail());
+
+        verify(userRepository, times(2)).findByEmail(marySimpson().getEmail());
+    }
+
+    @Test
+    public void updatePasswordInvalidatesTheCache() {
+        when(userRepository.findByEmail(marySimpson().getEmail())).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.findByEmail(marySimpson().getEmail());
+
+        when(userRepository.findById(1L)).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.updatePassword(1L, "new_password_1234");
+        userServices.findByEmail(marySimpson().getEmail());
+
+        verify(userRepository, times(2)).findByEmail(marySimpson().getEmail());
+    }
+
+    @Test
+    public void updatePasswordInvalidatesTheCacheOnceCompleted() {
+        final TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionKey()).thenReturn(new Object());
+        ((UserServicesImpl) userServices).transactionRegistry = registry;
+        when(userRepository.findByEmail(marySimpson().getEmail())).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.findByEmail(marySimpson().getEmail());
+
+        when(userRepository.findById(1L)).thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        userServices.updatePassword(1L, "new_password_1234");
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronization.capture());
+        // not committed yet, the user is still cached
+        assertThat(principalCache.size(), is(equalTo(1)));
+
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        assertThat(principalCache.size(), is(equalTo(0)));
+    }
+
     @Test(expected = UserNotFoundException.class)
     public void findUserByEmailAndPasswordNotFound() {
         final User user = marySimpson();
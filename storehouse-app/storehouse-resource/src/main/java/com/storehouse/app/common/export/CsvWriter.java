@@ -0,0 +1,74 @@
+package com.storehouse.app.common.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes comma separated values, one row after the other, as described in RFC 4180.
+ *
+ * The exports are opened in spreadsheets, so a text value starting like a formula (=, +, -, @, a
+ * tab or a carriage return), e.g. a user name, is prefixed with a quote to be shown as text instead
+ * of being evaluated. The numbers are written as they are.
+ *
+ * @author ejiafzh
+ *
+ */
+public class CsvWriter {
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final Writer writer;
+    private boolean firstValueOfRow = true;
+
+    /**
+     * Constructs a csv writer.
+     *
+     * @param writer
+     *            the writer to write the rows into.
+     */
+    public CsvWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write the next value of the row, the value is quoted if it contains a separator, a quote or
+     * a line break, and a text value starting like a formula is prefixed with a quote.
+     *
+     * @param value
+     *            the value, written as an empty field if it is null.
+     * @return this writer.
+     * @throws IOException
+     *             if the value cannot be written.
+     */
+    public CsvWriter value(final Object value) throws IOException {
+        if (!firstValueOfRow) {
+            writer.write(',');
+        }
+        firstValueOfRow = false;
+        if (value == null) {
+            return this;
+        }
+        String text = value.toString();
+        if (!(value instanceof Number) && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+        } else {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+        return this;
+    }
+
+    /**
+     * End the current row.
+     *
+     * @throws IOException
+     *             if the line break cannot be written.
+     */
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+        firstValueOfRow = true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.storehouse.app.common.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts the entities to csv rows.
+ *
+ * @author ejiafzh
+ *
+ * @param <T>
+ */
+public interface EntityCsvConverter<T> {
+
+    /**
+     * Get the names of the columns, in the order the values are written.
+     *
+     * @return the names of the columns.
+     */
+    List<String> getCsvHeader();
+
+    /**
+     * Write the values of the entity as one row.
+     *
+     * @param entity
+     *            the entity to be written.
+     * @param writer
+     *            the csv writer.
+     * @throws IOException
+     *             if the row cannot be written.
+     */
+    void writeCsvRow(final T entity, final CsvWriter writer) throws IOException;
+}
@@ -0,0 +1,121 @@
+package com.storehouse.app.common.export;
+
+import com.storehouse.app.common.exception.FieldNotValidException;
+import com.storehouse.app.common.json.EntityJsonConverter;
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
+import com.storehouse.app.common.model.filter.PaginationData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Streams all the entities of a filter into the response, batch after batch.
+ *
+ * The batches are the pages of the keyset pagination: each one is loaded by its own service call,
+ * so the persistence context and the transaction end with the batch, and it is written and
+ * flushed before the next one is loaded. The memory used does not depend on the number of the
+ * entities exported, and the response is sent chunked as it is written.
+ *
+ * @author ejiafzh
+ *
+ * @param <T>
+ */
+public class EntityExportOutput<T> implements StreamingOutput {
+    public static final int BATCH_SIZE = 500;
+
+    private final ExportFormat format;
+    private final EntityJsonConverter<T> jsonConverter;
+    private final EntityCsvConverter<T> csvConverter;
+    private final Function<String, PaginatedData<T>> batchLoader;
+    private final PaginatedData<T> firstBatch;
+
+    /**
+     * Constructs the export and loads its first batch, so an invalid filter is reported before the
+     * response is started.
+     *
+     * @param format
+     *            the export format.
+     * @param jsonConverter
+     *            the json converter of the entities, used for NDJSON.
+     * @param csvConverter
+     *            the csv converter of the entities, used for CSV.
+     * @param batchLoader
+     *            loads the batch of the keyset pagination cursor, see getBatchFilter.
+     * @throws FieldNotValidException
+     *             if the filter is not valid, e.g. its sort field.
+     */
+    public EntityExportOutput(final ExportFormat format, final EntityJsonConverter<T> jsonConverter,
+            final EntityCsvConverter<T> csvConverter, final Function<String, PaginatedData<T>> batchLoader) {
+        this.format = format;
+        this.jsonConverter = jsonConverter;
+        this.csvConverter = csvConverter;
+        this.batchLoader = batchLoader;
+        this.firstBatch = batchLoader.apply("");
+    }
+
+    /**
+     * Set the filter to the batch of the keyset pagination cursor, keeping its sort. The rows of a
+     * batch are not counted.
+     *
+     * @param filter
+     *            the filter extracted from the request.
+     * @param cursor
+     *            the keyset pagination cursor, empty for the first batch.
+     * @return the filter.
+     */
+    public static <F extends GenericFilter> F getBatchFilter(final F filter, final String cursor) {
+        final PaginationData paginationData = filter.getPaginationData();
+        filter.setPaginationData(new PaginationData(0, BATCH_SIZE, paginationData.getOrderField(),
+                paginationData.getOrderMode(), cursor));
+        filter.setCountMode(CountMode.NONE);
+        return filter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final OutputStream output) throws IOException, WebApplicationException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        final com.google.gson.stream.JsonWriter jsonWriter = JsonWriter.newJsonWriter(writer);
+        // one json document per line
+        jsonWriter.setLenient(true);
+        final CsvWriter csvWriter = new CsvWriter(writer);
+
+        if (format == ExportFormat.CSV) {
+            for (final String column : csvConverter.getCsvHeader()) {
+                csvWriter.value(column);
+            }
+            csvWriter.endRow();
+        }
+
+        PaginatedData<T> batch = firstBatch;
+        while (true) {
+            for (final T entity : batch.getRows()) {
+                if (format == ExportFormat.CSV) {
+                    csvConverter.writeCsvRow(entity, csvWriter);
+                    csvWriter.endRow();
+                } else {
+                    jsonConverter.writeListEntry(entity, jsonWriter);
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            if (batch.getNextCursor() == null) {
+                break;
+            }
+            batch = batchLoader.apply(batch.getNextCursor());
+        }
+    }
+}
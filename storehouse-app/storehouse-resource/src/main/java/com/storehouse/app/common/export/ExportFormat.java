@@ -0,0 +1,51 @@
+package com.storehouse.app.common.export;
+
+import com.storehouse.app.common.exception.FieldNotValidException;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * The formats of the entity exports: one json object per line or comma separated values.
+ *
+ * @author ejiafzh
+ *
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson"), CSV("text/csv");
+
+    private final MediaType mediaType;
+
+    private ExportFormat(final String mediaType) {
+        this.mediaType = MediaType.valueOf(mediaType);
+    }
+
+    /**
+     * Get the media type of the export.
+     *
+     * @return the media type of the export.
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Get the export format from the format parameter of the request, e.g. format=csv.
+     *
+     * @param format
+     *            the format parameter, NDJSON if there is none.
+     * @return the export format.
+     * @throws FieldNotValidException
+     *             if the format is not supported.
+     */
+    public static ExportFormat fromParameter(final String format) {
+        if (format == null) {
+            return NDJSON;
+        }
+        for (final ExportFormat exportFormat : values()) {
+            if (exportFormat.name().equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new FieldNotValidException("format", format, "The export format is not supported");
+    }
+}
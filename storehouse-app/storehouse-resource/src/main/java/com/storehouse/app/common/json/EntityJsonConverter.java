@@ -2,7 +2,9 @@ package com.storehouse.app.common.json;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -39,4 +41,49 @@ public interface EntityJsonConverter<T> {
         }
         return jsonArray;
     }
+
+    /**
+     * Write the entity straight into the json writer, in the same shape as convertToJsonElement.
+     *
+     * @param entity
+     *            the entity to be written.
+     * @param writer
+     *            the json writer.
+     * @throws IOException
+     *             if the json cannot be written.
+     */
+    void write(final T entity, final JsonWriter writer) throws IOException;
+
+    /**
+     * Write the entity as an entry of a list, e.g. without its details. The whole entity by default.
+     *
+     * @param entity
+     *            the entity to be written.
+     * @param writer
+     *            the json writer.
+     * @throws IOException
+     *             if the json cannot be written.
+     */
+    default void writeListEntry(final T entity, final JsonWriter writer) throws IOException {
+        write(entity, writer);
+    }
+
+    /**
+     * Write the entities as a json array, in the same shape as convertToJsonElement, one entity
+     * after the other without building the array first.
+     *
+     * @param entities
+     *            the entities to be written.
+     * @param writer
+     *            the json writer.
+     * @throws IOException
+     *             if the json cannot be written.
+     */
+    default void write(final List<T> entities, final JsonWriter writer) throws IOException {
+        writer.beginArray();
+        for (final T entity : entities) {
+            writeListEntry(entity, writer);
+        }
+        writer.endArray();
+    }
 }
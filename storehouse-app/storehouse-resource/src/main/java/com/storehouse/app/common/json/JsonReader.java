@@ -1,6 +1,5 @@
 package com.storehouse.app.common.json;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -56,7 +55,7 @@ public class JsonReader {
             throw new InvalidJsonException("Json String cannot be null");
         }
         try {
-            return new Gson().fromJson(json, jsonClass);
+            return JsonWriter.GSON.fromJson(json, jsonClass);
         } catch (final JsonSyntaxException ex) {
             throw new InvalidJsonException(ex);
         }
@@ -0,0 +1,24 @@
+package com.storehouse.app.common.json;
+
+import java.io.IOException;
+
+/**
+ * A json result which writes itself token by token, instead of being built as a JsonElement tree
+ * before it is written.
+ *
+ * @author ejiafzh
+ *
+ */
+@FunctionalInterface
+public interface JsonStreamable {
+
+    /**
+     * Write the json into the writer.
+     *
+     * @param writer
+     *            the json writer.
+     * @throws IOException
+     *             if the json cannot be written.
+     */
+    void write(com.google.gson.stream.JsonWriter writer) throws IOException;
+}
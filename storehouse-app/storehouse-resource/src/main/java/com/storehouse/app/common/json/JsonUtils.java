@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 
 /**
  * Json Utility class to formalize the final Json result.
@@ -30,24 +31,36 @@ final public class JsonUtils {
     }
 
     /**
-     * Get a json result for paginated data.
+     * Get a json result for paginated data, which writes the entries straight into the response
+     * as they are converted.
      *
      * @param data
      *            a paginated data.
      * @param converter
      *            the json converter
-     * @return a returned json element for collection.
+     * @return a returned json for collection.
      */
-    public static <T> JsonElement getJsonElementWithPagingAndEntries(final PaginatedData<T> data,
+    public static <T> JsonStreamable getJsonWithPagingAndEntries(final PaginatedData<T> data,
             final EntityJsonConverter<T> converter) {
-        final JsonObject jsonObject = new JsonObject();
+        return writer -> {
+            writer.beginObject();
 
-        final JsonObject jsonPaging = new JsonObject();
-        jsonPaging.addProperty("totalRecords", data.getNumberOfRows());
+            writer.name("paging").beginObject();
+            if (data.getCountMode() != CountMode.NONE) {
+                writer.name("totalRecords").value(data.getNumberOfRows());
+            }
+            if (data.getCountMode() != CountMode.EXACT) {
+                writer.name("countMode").value(data.getCountMode().name().toLowerCase());
+            }
+            if (data.getNextCursor() != null) {
+                writer.name("nextCursor").value(data.getNextCursor());
+            }
+            writer.endObject();
 
-        jsonObject.add("paging", jsonPaging);
-        jsonObject.add("entries", converter.convertToJsonElement(data.getRows()));
-        return jsonObject;
+            writer.name("entries");
+            converter.write(data.getRows(), writer);
+            writer.endObject();
+        };
     }
 
     /**
@@ -1,6 +1,12 @@
 package com.storehouse.app.common.json;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 
 /**
  * Json utility from object to json string.
@@ -9,6 +15,9 @@ import com.google.gson.Gson;
  *
  */
 public final class JsonWriter {
+    // Gson is thread-safe, one preconfigured instance serves all the reads and writes
+    static final Gson GSON = new GsonBuilder().create();
+
     private JsonWriter() {
     }
 
@@ -23,6 +32,50 @@ public final class JsonWriter {
         if (object == null) {
             return "";
         }
-        return new Gson().toJson(object);
+        final StringWriter writer = new StringWriter();
+        writeTo(object, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes from object to Json straight into the writer, without building the Json string first.
+     *
+     * A JsonStreamable object writes itself token by token, any other object is written by Gson.
+     *
+     * @param object
+     *            object to write, nothing is written if it is null.
+     * @param writer
+     *            the writer to write into.
+     */
+    public static void writeTo(final Object object, final Writer writer) {
+        if (object == null) {
+            return;
+        }
+        if (!(object instanceof JsonStreamable)) {
+            GSON.toJson(object, writer);
+            return;
+        }
+        try {
+            final com.google.gson.stream.JsonWriter jsonWriter = newJsonWriter(writer);
+            ((JsonStreamable) object).write(jsonWriter);
+            jsonWriter.flush();
+        } catch (final IOException ex) {
+            throw new JsonIOException(ex);
+        }
+    }
+
+    /**
+     * Create a json writer configured as GSON writes, i.e. the null values are left out and html is
+     * escaped.
+     *
+     * @param writer
+     *            the writer to write into.
+     * @return the json writer.
+     */
+    public static com.google.gson.stream.JsonWriter newJsonWriter(final Writer writer) {
+        final com.google.gson.stream.JsonWriter jsonWriter = new com.google.gson.stream.JsonWriter(writer);
+        jsonWriter.setSerializeNulls(false);
+        jsonWriter.setHtmlSafe(true);
+        return jsonWriter;
     }
 }
@@ -3,6 +3,8 @@ package com.storehouse.app.common.json;
 import com.google.gson.JsonObject;
 import com.storehouse.app.common.model.OperationResult;
 
+import java.io.Writer;
+
 /**
  * OPerational Result used by the resource layer.
  *
@@ -25,6 +27,18 @@ final public class OperationResultJsonWriter {
         return JsonWriter.writeToString(getJsonObject(operationResult));
     }
 
+    /**
+     * Write the json of an operation result object straight into the writer.
+     *
+     * @param operationResult
+     *            Operation result object
+     * @param writer
+     *            the writer to write into.
+     */
+    public static void writeJson(final OperationResult operationResult, final Writer writer) {
+        JsonWriter.writeTo(getJsonObject(operationResult), writer);
+    }
+
     private static Object getJsonObject(final OperationResult operationResult) {
         if (operationResult.isSuccess()) {
             return getJsonSuccess(operationResult);
@@ -0,0 +1,63 @@
+package com.storehouse.app.common.json;
+
+import com.storehouse.app.common.model.OperationResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes the operation results returned by the resources as json straight into the response
+ * stream, so a large result is not turned into one json string in memory first.
+ *
+ * @author ejiafzh
+ *
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class OperationResultMessageBodyWriter implements MessageBodyWriter<OperationResult> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+            final MediaType mediaType) {
+        return OperationResult.class.isAssignableFrom(type);
+    }
+
+    /**
+     * The size is not known before the json is written.
+     */
+    @Override
+    public long getSize(final OperationResult operationResult, final Class<?> type, final Type genericType,
+            final Annotation[] annotations, final MediaType mediaType) {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo(final OperationResult operationResult, final Class<?> type, final Type genericType,
+            final Annotation[] annotations, final MediaType mediaType,
+            final MultivaluedMap<String, Object> httpHeaders, final OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        // the entity stream belongs to the container, flush the writer but do not close it
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8));
+        OperationResultJsonWriter.writeJson(operationResult, writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,123 @@
+package com.storehouse.app.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in microseconds, in the way of HdrHistogram.
+ *
+ * The values below 32 have a bucket each, the others are split in 16 buckets per power of two, so a
+ * bucket is at most 1/16 of its values wide, i.e. any percentile is within about 6% of the real
+ * value, for any latency, in a fixed array of counters. Recording a value is a few bit operations
+ * and an atomic increment, the requests are never blocked by each other nor by a reader.
+ *
+ * @author ejiafzh
+ *
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // the shift of the values from 32 to Long.MAX_VALUE goes from 1 to 58
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param micros
+     *            the latency in microseconds, a negative one is recorded as 0.
+     */
+    public void record(final long micros) {
+        final long value = Math.max(micros, 0);
+        counts.incrementAndGet(getBucket(value));
+        totalCount.increment();
+        totalMicros.add(value);
+        if (value > maxMicros.get()) {
+            maxMicros.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Get the number of the recorded latencies.
+     *
+     * @return the number of the recorded latencies.
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Get the sum of the recorded latencies.
+     *
+     * @return the sum in microseconds.
+     */
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    /**
+     * Get the highest recorded latency.
+     *
+     * @return the highest latency in microseconds, 0 if there is none.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Get the latency at a percentile, i.e. the highest value of the bucket in which the percentile
+     * falls, so it is never below the real value.
+     *
+     * The counters are read one by one while they may be incremented, so the result is the one of a
+     * moment during the call, which is what a scrape needs.
+     *
+     * @param percentile
+     *            the percentile, e.g. 99.9.
+     * @return the latency in microseconds, 0 if there is none.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(getHighestValue(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    static int getBucket(final long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // the value shifted right is between 16 and 31
+        final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long getHighestValue(final int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        final long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,184 @@
+package com.storehouse.app.common.metrics;
+
+import com.storehouse.app.common.metrics.RequestMetrics.RouteMetrics;
+import com.storehouse.app.common.repository.CacheStatistics;
+import com.storehouse.app.common.repository.CacheStatistics.RegionStatistics;
+import com.storehouse.app.order.services.BatchPackingMetrics;
+import com.storehouse.app.user.services.impl.PrincipalCache;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.security.RolesAllowed;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * REST endpoint for the metrics of the requests, in the Prometheus text format so it can be scraped
+ * as it is: the number of responses by route and status code, the p50, p99 and p999 latencies, and
+ * the throughput of every route since the deployment. The hits, misses, puts and entries of the
+ * regions of the second-level cache follow, then the hits, misses and hit ratio of the principal
+ * cache, then the batches, their average size and their load fill ratio by packing strategy.
+ *
+ * @author ejiafzh
+ *
+ */
+@Path("/metrics")
+public class MetricsResource {
+    static final String TEXT_FORMAT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+    private static final String REQUESTS = "storehouse_http_requests_total";
+    private static final String DURATION = "storehouse_http_request_duration_seconds";
+    private static final String DURATION_MAX = "storehouse_http_request_duration_seconds_max";
+    private static final String THROUGHPUT = "storehouse_http_requests_per_second";
+    private static final String CACHE_HITS = "storehouse_cache_hits_total";
+    private static final String CACHE_MISSES = "storehouse_cache_misses_total";
+    private static final String CACHE_PUTS = "storehouse_cache_puts_total";
+    private static final String CACHE_ENTRIES = "storehouse_cache_entries";
+    private static final String PRINCIPAL_CACHE_HITS = "storehouse_principal_cache_hits_total";
+    private static final String PRINCIPAL_CACHE_MISSES = "storehouse_principal_cache_misses_total";
+    private static final String PRINCIPAL_CACHE_HIT_RATIO = "storehouse_principal_cache_hit_ratio";
+    private static final String PRINCIPAL_CACHE_ENTRIES = "storehouse_principal_cache_entries";
+    private static final String BATCHES = "storehouse_batches_total";
+    private static final String BATCH_SIZE = "storehouse_batch_size";
+    private static final String BATCH_FILL = "storehouse_batch_fill_ratio";
+
+    @Inject
+    RequestMetrics requestMetrics;
+
+    @Inject
+    CacheStatistics cacheStatistics;
+
+    @Inject
+    PrincipalCache principalCache;
+
+    @Inject
+    BatchPackingMetrics batchPackingMetrics;
+
+    /**
+     * Get the metrics of the requests.
+     *
+     * @return the metrics in the Prometheus text format.
+     */
+    @GET
+    @RolesAllowed({ "EMPLOYEE", "ADMIN" })
+    @Produces(TEXT_FORMAT)
+    // http://localhost:8080/storehouse/api/metrics
+    public Response getMetrics() {
+        final Map<String, RouteMetrics> metricsByRoute = requestMetrics.getMetricsByRoute();
+        final double uptimeSeconds = requestMetrics.getUptimeSeconds();
+        final StringBuilder text = new StringBuilder();
+
+        // the lines of a metric are together, so one pass over the routes per metric
+        appendHeader(text, REQUESTS, "counter", "The number of responses by route and status code.");
+        metricsByRoute.forEach((route, metrics) -> metrics.getStatusCounts().forEach(
+                (status, count) -> text.append(REQUESTS).append("{route=\"").append(escape(route))
+                        .append("\",status=\"").append(status).append("\"} ").append(count).append('\n')));
+
+        appendHeader(text, DURATION, "summary", "The latency of the requests by route.");
+        metricsByRoute.forEach((route, metrics) -> {
+            final LatencyHistogram latencies = metrics.getLatencies();
+            for (final double quantile : QUANTILES) {
+                text.append(DURATION).append("{route=\"").append(escape(route)).append("\",quantile=\"")
+                        .append(quantile).append("\"} ")
+                        .append(toSeconds(latencies.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            appendSample(text, DURATION + "_sum", route, toSeconds(latencies.getTotalMicros()));
+            appendSample(text, DURATION + "_count", route, String.valueOf(latencies.getCount()));
+        });
+
+        appendHeader(text, DURATION_MAX, "gauge", "The highest latency of the requests by route.");
+        metricsByRoute.forEach((route, metrics) -> appendSample(text, DURATION_MAX, route,
+                toSeconds(metrics.getLatencies().getMaxMicros())));
+
+        appendHeader(text, THROUGHPUT, "gauge", "The average number of requests per second by route.");
+        metricsByRoute.forEach((route, metrics) -> appendSample(text, THROUGHPUT, route,
+                String.format(Locale.ROOT, "%.3f", metrics.getLatencies().getCount() / uptimeSeconds)));
+
+        appendCacheMetrics(text, cacheStatistics.getRegionStatistics());
+        appendPrincipalCacheMetrics(text, principalCache);
+        appendBatchMetrics(text, batchPackingMetrics);
+
+        return Response.ok(text.toString()).build();
+    }
+
+    private static void appendCacheMetrics(final StringBuilder text, final List<RegionStatistics> regions) {
+        appendHeader(text, CACHE_HITS, "counter", "The lookups found in the second-level cache by region.");
+        regions.forEach(region -> appendRegionSample(text, CACHE_HITS, region, region.getHitCount()));
+
+        appendHeader(text, CACHE_MISSES, "counter", "The lookups not found in the second-level cache by region.");
+        regions.forEach(region -> appendRegionSample(text, CACHE_MISSES, region, region.getMissCount()));
+
+        appendHeader(text, CACHE_PUTS, "counter", "The entries put in the second-level cache by region.");
+        regions.forEach(region -> appendRegionSample(text, CACHE_PUTS, region, region.getPutCount()));
+
+        appendHeader(text, CACHE_ENTRIES, "gauge", "The entries of the second-level cache on this node by region.");
+        regions.forEach(region -> appendRegionSample(text, CACHE_ENTRIES, region, region.getEntryCount()));
+    }
+
+    private static void appendPrincipalCacheMetrics(final StringBuilder text, final PrincipalCache cache) {
+        appendHeader(text, PRINCIPAL_CACHE_HITS, "counter", "The users found in the principal cache by email.");
+        text.append(PRINCIPAL_CACHE_HITS).append(' ').append(cache.getHitCount()).append('\n');
+
+        appendHeader(text, PRINCIPAL_CACHE_MISSES, "counter", "The users by email loaded from the database.");
+        text.append(PRINCIPAL_CACHE_MISSES).append(' ').append(cache.getMissCount()).append('\n');
+
+        appendHeader(text, PRINCIPAL_CACHE_HIT_RATIO, "gauge", "The ratio of the lookups found in the principal cache.");
+        text.append(PRINCIPAL_CACHE_HIT_RATIO).append(' ')
+                .append(String.format(Locale.ROOT, "%.3f", cache.getHitRate())).append('\n');
+
+        appendHeader(text, PRINCIPAL_CACHE_ENTRIES, "gauge", "The users in the principal cache on this node.");
+        text.append(PRINCIPAL_CACHE_ENTRIES).append(' ').append(cache.size()).append('\n');
+    }
+
+    private static void appendBatchMetrics(final StringBuilder text, final BatchPackingMetrics metrics) {
+        final List<String> strategyNames = metrics.getStrategyNames();
+        appendHeader(text, BATCHES, "counter", "The delivery batches by packing strategy.");
+        strategyNames.forEach(strategy -> appendStrategySample(text, BATCHES, strategy,
+                String.valueOf(metrics.getBatchCount(strategy))));
+
+        appendHeader(text, BATCH_SIZE, "gauge", "The average number of orders per delivery batch by packing strategy.");
+        strategyNames.forEach(strategy -> appendStrategySample(text, BATCH_SIZE, strategy,
+                String.format(Locale.ROOT, "%.3f", metrics.getAverageBatchSize(strategy))));
+
+        appendHeader(text, BATCH_FILL, "gauge", "The load of the delivery batches over their capacity by packing strategy.");
+        strategyNames.forEach(strategy -> appendStrategySample(text, BATCH_FILL, strategy,
+                String.format(Locale.ROOT, "%.3f", metrics.getFillRatio(strategy))));
+    }
+
+    private static void appendHeader(final StringBuilder text, final String name, final String type,
+            final String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(final StringBuilder text, final String name, final String route,
+            final String value) {
+        text.append(name).append("{route=\"").append(escape(route)).append("\"} ").append(value).append('\n');
+    }
+
+    private static void appendRegionSample(final StringBuilder text, final String name,
+            final RegionStatistics region, final long value) {
+        text.append(name).append("{region=\"").append(escape(region.getName())).append("\"} ").append(value)
+                .append('\n');
+    }
+
+    private static void appendStrategySample(final StringBuilder text, final String name, final String strategy,
+            final String value) {
+        text.append(name).append("{strategy=\"").append(escape(strategy)).append("\"} ").append(value).append('\n');
+    }
+
+    private static String toSeconds(final long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1000000.0);
+    }
+
+    // the escaping of a label value
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,82 @@
+package com.storehouse.app.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * The latencies and the status codes of the requests by route, e.g. "GET orders/{id}", since the
+ * application has been deployed.
+ *
+ * The latencies go into a lock-free histogram per route and the status codes into LongAdders,
+ * which are striped per thread under contention, so recording a request never waits for another.
+ *
+ * @author ejiafzh
+ *
+ */
+@ApplicationScoped
+public class RequestMetrics {
+    private final Map<String, RouteMetrics> metricsByRoute = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Record a request.
+     *
+     * @param route
+     *            the route of the request, i.e. its method and its path template.
+     * @param status
+     *            the status code of the response.
+     * @param latencyNanos
+     *            the time spent on the request.
+     */
+    public void record(final String route, final int status, final long latencyNanos) {
+        final RouteMetrics metrics = metricsByRoute.computeIfAbsent(route, k -> new RouteMetrics());
+        metrics.latencies.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        metrics.statusCounts.computeIfAbsent(status, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Get the metrics of all the routes which have been requested.
+     *
+     * @return the metrics by route, sorted by route.
+     */
+    public Map<String, RouteMetrics> getMetricsByRoute() {
+        return new TreeMap<>(metricsByRoute);
+    }
+
+    /**
+     * Get the time since the metrics are recorded, to get the throughput of the routes.
+     *
+     * @return the uptime in seconds.
+     */
+    public double getUptimeSeconds() {
+        return (double) (System.nanoTime() - startNanos) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * The metrics of a route.
+     */
+    public static class RouteMetrics {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Get the number of responses by status code.
+         *
+         * @return the number of responses by status code, sorted by status code.
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            final Map<Integer, Long> counts = new TreeMap<>();
+            statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.storehouse.app.common.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Records the latency and the status code of every request into the RequestMetrics, by route, i.e.
+ * the method and the path template of the resource method, e.g. "GET orders/{id}", so the metrics
+ * do not grow with the ids.
+ *
+ * The request filter comes before the authentication one so the rejected requests are timed too.
+ * A response with an entity is recorded once the entity has been written, the streamed exports are
+ * timed to their last byte, the others when the response filters are done.
+ *
+ * @author ejiafzh
+ *
+ */
+@Provider
+@Priority(RequestMetricsFilter.PRIORITY)
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    static final int PRIORITY = 100; // before Priorities.AUTHENTICATION
+    static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+    static final String STATUS_PROPERTY = RequestMetricsFilter.class.getName() + ".status";
+    static final String ROUTE_PROPERTY = RequestMetricsFilter.class.getName() + ".route";
+    static final String UNMATCHED_ROUTE = "unmatched";
+
+    private static final Map<Method, String> PATHS = new ConcurrentHashMap<>();
+
+    @Inject
+    RequestMetrics requestMetrics;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+        final Object start = requestContext.getProperty(START_PROPERTY);
+        if (start == null) {
+            // not matched, the request filters have not run
+            requestMetrics.record(UNMATCHED_ROUTE, responseContext.getStatus(), 0);
+            return;
+        }
+        final String route = getRoute(requestContext.getMethod());
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(ROUTE_PROPERTY, route);
+            requestContext.setProperty(STATUS_PROPERTY, responseContext.getStatus());
+        } else {
+            requestMetrics.record(route, responseContext.getStatus(), System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            final Object start = context.getProperty(START_PROPERTY);
+            final Object route = context.getProperty(ROUTE_PROPERTY);
+            if (start != null && route != null) {
+                requestMetrics.record((String) route, (Integer) context.getProperty(STATUS_PROPERTY),
+                        System.nanoTime() - (Long) start);
+            }
+        }
+    }
+
+    private String getRoute(final String httpMethod) {
+        final Method method = resourceInfo == null ? null : resourceInfo.getResourceMethod();
+        if (method == null) {
+            return httpMethod + " " + UNMATCHED_ROUTE;
+        }
+        final Class<?> resourceClass = resourceInfo.getResourceClass();
+        return httpMethod + " " + PATHS.computeIfAbsent(method, k -> getPathTemplate(resourceClass, method));
+    }
+
+    // e.g. "/orders" and "/{id}/status" give "orders/{id}/status"
+    static String getPathTemplate(final Class<?> resourceClass, final Method method) {
+        final StringBuilder template = new StringBuilder();
+        appendPath(template, resourceClass.getAnnotation(Path.class));
+        appendPath(template, method.getAnnotation(Path.class));
+        return template.toString();
+    }
+
+    private static void appendPath(final StringBuilder template, final Path path) {
+        if (path == null) {
+            return;
+        }
+        String value = path.value();
+        while (value.startsWith("/")) {
+            value = value.substring(1);
+        }
+        while (value.endsWith("/")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        if (value.isEmpty()) {
+            return;
+        }
+        if (template.length() > 0) {
+            template.append('/');
+        }
+        template.append(value);
+    }
+}
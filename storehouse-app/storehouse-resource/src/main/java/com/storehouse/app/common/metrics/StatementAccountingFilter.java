@@ -0,0 +1,90 @@
+package com.storehouse.app.common.metrics;
+
+import com.storehouse.app.common.repository.StatementStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Priority;
+import javax.servlet.ServletContext;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the JDBC statements of every request and the time spent executing them, and logs the
+ * requests which execute the same statement again and again, i.e. which load an association or a
+ * collection row by row, so their number of statements grows with the size of their result.
+ *
+ * With the storehouse.debug.statements context-param set to true the counts are also sent back in
+ * the X-Statement-Count, X-Statement-Time-Ms and X-Statement-Max-Repeat headers, which the
+ * integration tests use to check the statement budget of the endpoints. The statements executed
+ * while a streamed entity is written come after the headers and are not counted.
+ *
+ * @author ejiafzh
+ *
+ */
+@Provider
+@Priority(StatementAccountingFilter.PRIORITY)
+public class StatementAccountingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    public static final String DEBUG_PARAM = "storehouse.debug.statements";
+    public static final String REPEAT_THRESHOLD_PROPERTY = "storehouse.statements.repeat.threshold";
+    public static final String STATEMENT_COUNT_HEADER = "X-Statement-Count";
+    public static final String STATEMENT_TIME_HEADER = "X-Statement-Time-Ms";
+    public static final String STATEMENT_MAX_REPEAT_HEADER = "X-Statement-Max-Repeat";
+
+    static final int PRIORITY = 200; // after RequestMetricsFilter, before Priorities.AUTHENTICATION
+    static final int DEFAULT_REPEAT_THRESHOLD = 5;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Context
+    ServletContext servletContext;
+
+    private volatile Boolean debug;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        StatementStatistics.begin();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+        final StatementStatistics statistics = StatementStatistics.end();
+        if (statistics == null) {
+            return;
+        }
+
+        if (statistics.isNPlusOneSuspected(Integer.getInteger(REPEAT_THRESHOLD_PROPERTY, DEFAULT_REPEAT_THRESHOLD))) {
+            logger.warn("Possible N+1 selects for {} {}: {} statements, executed {} times: {}",
+                    requestContext.getMethod(), requestContext.getUriInfo().getPath(),
+                    statistics.getStatementCount(), statistics.getMostRepeatedCount(),
+                    statistics.getMostRepeatedStatement());
+        }
+
+        if (isDebug()) {
+            responseContext.getHeaders().add(STATEMENT_COUNT_HEADER, statistics.getStatementCount());
+            responseContext.getHeaders().add(STATEMENT_TIME_HEADER,
+                    TimeUnit.NANOSECONDS.toMillis(statistics.getExecutionNanos()));
+            responseContext.getHeaders().add(STATEMENT_MAX_REPEAT_HEADER, statistics.getMostRepeatedCount());
+        }
+    }
+
+    private boolean isDebug() {
+        if (debug == null) {
+            debug = servletContext != null && Boolean.parseBoolean(servletContext.getInitParameter(DEBUG_PARAM));
+        }
+        return debug;
+    }
+}
@@ -1,6 +1,7 @@
 package com.storehouse.app.common.resource;
 
 import com.storehouse.app.common.model.filter.GenericFilter;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 import com.storehouse.app.common.model.filter.PaginationData;
 import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
 
@@ -54,12 +55,14 @@ public abstract class AbstractFilterExtractorFromUrl {
 
     /**
      * Extract the pagination data from the uri info.
+     * If a cursor is given (empty for the first page), the keyset pagination is used and the page is ignored.
      *
      * @return the parsed PaginationData
      */
     protected PaginationData extractPaginationData() {
         final int perPage = getPerPage();
-        final int firstResult = getPage() * perPage;
+        final String cursor = getCursor();
+        final int firstResult = cursor == null ? getPage() * perPage : 0;
 
         String orderField;
         OrderMode orderMode;
@@ -75,7 +78,24 @@ public abstract class AbstractFilterExtractorFromUrl {
             orderField = sortField;
             orderMode = OrderMode.ASCENDING;
         }
-        return new PaginationData(firstResult, perPage, orderField, orderMode);
+        return new PaginationData(firstResult, perPage, orderField, orderMode, cursor);
+    }
+
+    /**
+     * Extract how the total number of rows is counted from the uri info:
+     * withCount=false (not counted), exact or estimated, exact if there is none.
+     *
+     * @return the parsed CountMode
+     */
+    protected CountMode extractCountMode() {
+        final String withCount = uriInfo.getQueryParameters().getFirst("withCount");
+        if ("false".equalsIgnoreCase(withCount)) {
+            return CountMode.NONE;
+        }
+        if ("estimated".equalsIgnoreCase(withCount)) {
+            return CountMode.ESTIMATED;
+        }
+        return CountMode.EXACT;
     }
 
     // we have the current page, per page, name and sort
@@ -102,6 +122,16 @@ public abstract class AbstractFilterExtractorFromUrl {
         return perPage == null ? DEFAULT_PER_PAGE : Integer.parseInt(perPage);
     }
 
+    /**
+     * the keyset pagination cursor, the nextCursor of the previous page.
+     * if there is no cursor in uri, the offset pagination is used
+     *
+     * @return the cursor from the uri info, null if none.
+     */
+    protected String getCursor() {
+        return uriInfo.getQueryParameters().getFirst("cursor");
+    }
+
     /**
      * we have the current page, per page, name and sort
      * if there is no pagination in uri, use default sortField
@@ -0,0 +1,122 @@
+package com.storehouse.app.common.security;
+
+import com.storehouse.app.common.exception.UserNotAuthorizedException;
+import com.storehouse.app.common.model.HttpCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.ext.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Authenticates the requests with a token, i.e. "Authorization: Bearer {token}", without the
+ * database. The requests with BASIC credentials are still authenticated by the security domain.
+ *
+ * The web.xml does not require a role on the API any more, so a token can get through, the filter
+ * rejects the requests authenticated by neither a token nor the security domain, except the public
+ * ones given by the storehouse.public.paths context-param, e.g. "POST users, * DB" for the POST
+ * requests of users/* and all the requests of DB/*.
+ *
+ * @author ejiafzh
+ *
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class TokenAuthenticationFilter implements ContainerRequestFilter {
+    public static final String PUBLIC_PATHS_PARAM = "storehouse.public.paths";
+
+    private static final String BEARER_PREFIX = TokenSecurityContext.AUTHENTICATION_SCHEME + " ";
+    private static final String ANY_METHOD = "*";
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Inject
+    AuthenticationTokenServices tokenServices;
+
+    @Inject
+    TokenCaller tokenCaller;
+
+    @Context
+    ServletContext servletContext;
+
+    private volatile List<String[]> publicPaths;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(final ContainerRequestContext requestContext) {
+        final String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            final AuthenticationToken token;
+            try {
+                token = tokenServices.validateToken(authorization.substring(BEARER_PREFIX.length()).trim());
+            } catch (final UserNotAuthorizedException ex) {
+                logger.info("Invalid or expired token for {}", requestContext.getUriInfo().getPath());
+                requestContext.abortWith(unauthorized(TokenSecurityContext.AUTHENTICATION_SCHEME));
+                return;
+            }
+            tokenCaller.authenticate(token);
+            final SecurityContext securityContext = requestContext.getSecurityContext();
+            requestContext.setSecurityContext(
+                    new TokenSecurityContext(token, securityContext != null && securityContext.isSecure()));
+            return;
+        }
+
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        if ((securityContext == null || securityContext.getUserPrincipal() == null) && !isPublic(requestContext)) {
+            requestContext.abortWith(unauthorized("Basic realm=\"storehouse\""));
+        }
+    }
+
+    private Response unauthorized(final String challenge) {
+        return Response.status(HttpCode.UNAUTHORIZED.getCode()).header(HttpHeaders.WWW_AUTHENTICATE, challenge)
+                .build();
+    }
+
+    private boolean isPublic(final ContainerRequestContext requestContext) {
+        String path = requestContext.getUriInfo().getPath();
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        for (final String[] publicPath : getPublicPaths()) {
+            final boolean methodMatches = ANY_METHOD.equals(publicPath[0])
+                    || publicPath[0].equalsIgnoreCase(requestContext.getMethod());
+            if (methodMatches && (path.equals(publicPath[1]) || path.startsWith(publicPath[1] + "/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // {method, path} pairs
+    private List<String[]> getPublicPaths() {
+        if (publicPaths == null) {
+            final List<String[]> paths = new ArrayList<>();
+            final String param = servletContext == null ? null : servletContext.getInitParameter(PUBLIC_PATHS_PARAM);
+            if (param != null) {
+                for (final String entry : param.split(",")) {
+                    final String[] methodAndPath = entry.trim().split("\\s+");
+                    if (methodAndPath.length == 2) {
+                        paths.add(methodAndPath);
+                    }
+                }
+            }
+            publicPaths = paths;
+        }
+        return publicPaths;
+    }
+}
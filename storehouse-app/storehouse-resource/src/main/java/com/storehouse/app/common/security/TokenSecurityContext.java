@@ -0,0 +1,64 @@
+package com.storehouse.app.common.security;
+
+import java.security.Principal;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * The security context of a request authenticated by a token, the resources and the
+ * @RolesAllowed checks see the caller of the token.
+ *
+ * @author ejiafzh
+ *
+ */
+public class TokenSecurityContext implements SecurityContext {
+    static final String AUTHENTICATION_SCHEME = "Bearer";
+
+    private final AuthenticationToken token;
+    private final boolean secure;
+
+    /**
+     * Constructs the security context of a validated token.
+     *
+     * @param token
+     *            the claims of the validated token.
+     * @param secure
+     *            whether or not the request was made over a secure channel.
+     */
+    public TokenSecurityContext(final AuthenticationToken token, final boolean secure) {
+        this.token = token;
+        this.secure = secure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Principal getUserPrincipal() {
+        return token::getEmail;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isUserInRole(final String role) {
+        return token.hasRole(role);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAuthenticationScheme() {
+        return AUTHENTICATION_SCHEME;
+    }
+}
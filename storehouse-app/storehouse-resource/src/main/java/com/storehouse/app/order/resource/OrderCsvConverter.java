@@ -0,0 +1,46 @@
+package com.storehouse.app.order.resource;
+
+import com.storehouse.app.common.export.CsvWriter;
+import com.storehouse.app.common.export.EntityCsvConverter;
+import com.storehouse.app.common.utils.DateUtils;
+import com.storehouse.app.order.model.Order;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Order csv converter, the columns are the fields of the orders listing.
+ *
+ * @author ejiafzh
+ *
+ */
+@ApplicationScoped
+public class OrderCsvConverter implements EntityCsvConverter<Order> {
+    private static final List<String> HEADER = Collections.unmodifiableList(
+            Arrays.asList("id", "createdAt", "customerId", "customerName", "total", "currentStatus"));
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getCsvHeader() {
+        return HEADER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeCsvRow(final Order order, final CsvWriter writer) throws IOException {
+        writer.value(order.getId())
+                .value(DateUtils.formatDateTime(order.getCreatedAt()))
+                .value(order.getCustomer().getId())
+                .value(order.getCustomer().getName())
+                .value(order.getTotalPrice())
+                .value(order.getCurrentStatus().name());
+    }
+}
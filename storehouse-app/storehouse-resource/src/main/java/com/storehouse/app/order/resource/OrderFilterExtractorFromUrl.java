@@ -3,6 +3,7 @@ package com.storehouse.app.order.resource;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.common.resource.AbstractFilterExtractorFromUrl;
 import com.storehouse.app.common.utils.DateUtils;
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
 
 import javax.ws.rs.core.UriInfo;
@@ -33,6 +34,7 @@ public class OrderFilterExtractorFromUrl extends AbstractFilterExtractorFromUrl
     public OrderFilter getFilter() {
         final OrderFilter orderFilter = new OrderFilter();
         orderFilter.setPaginationData(extractPaginationData());
+        orderFilter.setCountMode(extractCountMode());
 
         final String startDateStr = getUriInfo().getQueryParameters().getFirst("startDate");
         if (startDateStr != null) {
@@ -53,6 +55,19 @@ public class OrderFilterExtractorFromUrl extends AbstractFilterExtractorFromUrl
         if (custumerIdStr != null) {
             orderFilter.setCustomerId(Long.valueOf(custumerIdStr));
         }
+
+        orderFilter.setFetchPlan(extractFetchPlan());
         return orderFilter;
     }
+
+    // fetch=detail lists the orders with their items and history, the summary by default
+    private FetchPlan extractFetchPlan() {
+        final String fetch = getUriInfo().getQueryParameters().getFirst("fetch");
+        for (final FetchPlan fetchPlan : FetchPlan.values()) {
+            if (fetchPlan.name().equalsIgnoreCase(fetch)) {
+                return fetchPlan;
+            }
+        }
+        return FetchPlan.SUMMARY;
+    }
 }
@@ -3,14 +3,22 @@ package com.storehouse.app.order.resource;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import com.storehouse.app.common.exception.FieldNotValidException;
+import com.storehouse.app.common.exception.InvalidJsonException;
 import com.storehouse.app.common.json.EntityJsonConverter;
 import com.storehouse.app.common.json.JsonReader;
 import com.storehouse.app.common.utils.DateUtils;
 import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.Order.FetchPlan;
+import com.storehouse.app.order.model.Order.OrderStatus;
 import com.storehouse.app.order.model.OrderHistoryEntry;
 import com.storehouse.app.order.model.OrderItem;
+import com.storehouse.app.order.model.OrderStatusChange;
 import com.storehouse.app.user.model.Customer;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -47,6 +55,70 @@ public class OrderJsonConverter implements EntityJsonConverter<Order> {
         return order;
     }
 
+    /**
+     * Convert the body of a bulk status change, a json array of {"id": 1, "status": "DELIVERED"}.
+     *
+     * @param json
+     *            the json array of the changes.
+     * @return the status changes, in the order of the array.
+     * @throws FieldNotValidException
+     *             if the body is not an array, or a change has no ID or no valid status.
+     */
+    public List<OrderStatusChange> convertStatusChangesFrom(final String json) {
+        JsonElement jsonElement;
+        try {
+            jsonElement = JsonReader.readJsonAs(json, JsonElement.class);
+        } catch (final InvalidJsonException ex) {
+            jsonElement = null;
+        }
+        if (jsonElement == null || !jsonElement.isJsonArray()) {
+            throw new FieldNotValidException("changes", json, "The status changes must be a json array");
+        }
+        final JsonArray jsonArray = jsonElement.getAsJsonArray();
+        final List<OrderStatusChange> changes = new ArrayList<>(jsonArray.size());
+        for (final JsonElement element : jsonArray) {
+            if (!element.isJsonObject()) {
+                throw new FieldNotValidException("changes", element, "A status change must be a json object");
+            }
+            final JsonObject jsonObject = element.getAsJsonObject();
+            final Long id = JsonReader.getLongOrNull(jsonObject, "id");
+            if (id == null) {
+                throw new FieldNotValidException("id", jsonObject, "A status change must have an order id");
+            }
+            changes.add(new OrderStatusChange(id, getStatus(JsonReader.getStringOrNull(jsonObject, "status"))));
+        }
+        return changes;
+    }
+
+    private OrderStatus getStatus(final String status) {
+        for (final OrderStatus orderStatus : OrderStatus.values()) {
+            if (orderStatus.name().equals(status)) {
+                return orderStatus;
+            }
+        }
+        throw new FieldNotValidException("status", status, "The status is not valid");
+    }
+
+    /**
+     * Convert the results of a bulk status change, e.g. {"id": 1, "status": "DELIVERED",
+     * "result": "UPDATED"} for every change.
+     *
+     * @param changes
+     *            the status changes with their result.
+     * @return the json array of the results.
+     */
+    public JsonArray convertStatusChangesToJsonElement(final List<OrderStatusChange> changes) {
+        final JsonArray jsonArray = new JsonArray();
+        for (final OrderStatusChange change : changes) {
+            final JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("id", change.getOrderId());
+            jsonObject.addProperty("status", change.getNewStatus().name());
+            jsonObject.addProperty("result", change.getResult().name());
+            jsonArray.add(jsonObject);
+        }
+        return jsonArray;
+    }
+
     private JsonElement getHistoryEntriesAsJsonElement(final OrderHistoryEntry historyEntry) {
         final JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("createdAt", DateUtils.formatDateTime(historyEntry.getCreatedAt()));
@@ -124,6 +196,89 @@ public class OrderJsonConverter implements EntityJsonConverter<Order> {
         return jsonArray;
     }
 
+    private void writeOrder(final Order order, final boolean addItemsAndHistory, final JsonWriter writer)
+            throws IOException {
+        writer.beginObject();
+        writer.name("id").value(order.getId());
+        writer.name("createdAt").value(DateUtils.formatDateTime(order.getCreatedAt()));
+
+        final Customer customer = order.getCustomer();
+        writer.name("customer").beginObject();
+        writer.name("id").value(customer.getId());
+        writer.name("name").value(customer.getName());
+        writer.endObject();
+
+        if (addItemsAndHistory) {
+            writer.name("items").beginArray();
+            for (final OrderItem item : order.getItems()) {
+                writer.beginObject();
+                writer.name("quantity").value(item.getQuantity());
+                writer.name("price").value(item.getPrice());
+                writer.endObject();
+            }
+            writer.endArray();
+
+            writer.name("historyEntries").beginArray();
+            for (final OrderHistoryEntry historyEntry : order.getHistoryEntries()) {
+                writer.beginObject();
+                writer.name("createdAt").value(DateUtils.formatDateTime(historyEntry.getCreatedAt()));
+                writer.name("status").value(historyEntry.getStatus().name());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        writer.name("total").value(order.getTotalPrice());
+        writer.name("currentStatus").value(order.getCurrentStatus().name());
+        writer.endObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final Order order, final JsonWriter writer) throws IOException {
+        writeOrder(order, true, writer);
+    }
+
+    /**
+     * As convertToJsonElement, the orders of a list are written without their items and history.
+     */
+    @Override
+    public void writeListEntry(final Order order, final JsonWriter writer) throws IOException {
+        writeOrder(order, false, writer);
+    }
+
+    /**
+     * Get the converter of a list of orders loaded with a fetch plan, the orders of the DETAIL
+     * plan are written with their items and history, the others as list entries.
+     *
+     * @param fetchPlan
+     *            the fetch plan of the orders.
+     * @return the converter of the list.
+     */
+    public EntityJsonConverter<Order> getListConverter(final FetchPlan fetchPlan) {
+        if (fetchPlan != FetchPlan.DETAIL) {
+            return this;
+        }
+        final OrderJsonConverter converter = this;
+        return new EntityJsonConverter<Order>() {
+            @Override
+            public Order convertFrom(final String json) {
+                return converter.convertFrom(json);
+            }
+
+            @Override
+            public JsonElement convertToJsonElement(final Order order) {
+                return converter.convertToJsonElement(order);
+            }
+
+            @Override
+            public void write(final Order order, final JsonWriter writer) throws IOException {
+                converter.write(order, writer);
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
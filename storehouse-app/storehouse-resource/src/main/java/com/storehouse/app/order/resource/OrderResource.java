@@ -12,9 +12,11 @@ import com.storehouse.app.common.exception.OrderNotFoundException;
 import com.storehouse.app.common.exception.OrderStatusCannotBeChangedException;
 import com.storehouse.app.common.exception.UserNotAuthorizedException;
 import com.storehouse.app.common.exception.UserNotFoundException;
+import com.storehouse.app.common.export.EntityExportOutput;
+import com.storehouse.app.common.export.ExportFormat;
 import com.storehouse.app.common.json.JsonReader;
+import com.storehouse.app.common.json.JsonStreamable;
 import com.storehouse.app.common.json.JsonUtils;
-import com.storehouse.app.common.json.OperationResultJsonWriter;
 import com.storehouse.app.common.model.HttpCode;
 import com.storehouse.app.common.model.OperationResult;
 import com.storehouse.app.common.model.PaginatedData;
@@ -22,12 +24,19 @@ import com.storehouse.app.common.model.ResourceMessage;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.order.model.Order;
 import com.storehouse.app.order.model.Order.OrderStatus;
+import com.storehouse.app.order.model.OrderQueueStats;
+import com.storehouse.app.order.model.OrderStatusChange;
+import com.storehouse.app.order.model.OrderStatusChange.Result;
 import com.storehouse.app.order.services.OrderServices;
-import com.storehouse.app.order.services.impl.OrderEventReceiver;
+import com.storehouse.app.order.services.impl.DeliveryBatchPlanner;
 import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.services.UserServices;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
@@ -63,6 +72,9 @@ public class OrderResource {
 
     private static final ResourceMessage RM = new ResourceMessage("order");
 
+    // the changes of a bulk status change are applied in one transaction
+    static final int MAX_STATUS_CHANGES = 500;
+
     @Inject
     OrderServices orderServices;
 
@@ -72,6 +84,9 @@ public class OrderResource {
     @Inject
     OrderJsonConverter converter;
 
+    @Inject
+    OrderCsvConverter csvConverter;
+
     // we need to extract a few parameters from the URL to create the user filter
     // object in order for pagination
     @Context
@@ -81,7 +96,7 @@ public class OrderResource {
     SecurityContext securityContext;
 
     @Inject
-    OrderEventReceiver orderEventReceiver;
+    DeliveryBatchPlanner deliveryBatchPlanner;
 
     /**
      * REST endpoint to add an order into the system.
@@ -125,8 +140,8 @@ public class OrderResource {
 
         logger.info("Returning the operation result after adding order: {}", result);
 
-        // convert the OperationResult object to Json
-        return Response.status(httpCode.getCode()).entity(OperationResultJsonWriter.toJson(result)).build();
+        // the OperationResult object is written as Json by OperationResultMessageBodyWriter
+        return Response.status(httpCode.getCode()).entity(result).build();
     }
 
     private OrderStatus getStatusFromJson(final String body) {
@@ -194,6 +209,45 @@ public class OrderResource {
         return Response.status(HttpCode.OK.getCode()).build();
     }
 
+    /**
+     * Update the status of several orders at once, e.g. a whole delivery batch marked DELIVERED.
+     * The body is a json array of {"id": 1, "status": "DELIVERED"}, the changes are validated
+     * together and applied in one transaction, the result of every change is returned (UPDATED,
+     * NOT_FOUND, NOT_ALLOWED or FORBIDDEN) and the changes which are not valid are left out.
+     *
+     * @param body
+     *            the status changes.
+     * @return the result of every change.
+     */
+    @POST
+    @Path("/status")
+    @PermitAll
+    // http://localhost:8080/storehouse/api/orders/status
+    public Response addStatuses(final String body) {
+        logger.info("Adding new statuses {}", body);
+
+        final List<OrderStatusChange> changes;
+        try {
+            changes = converter.convertStatusChangesFrom(body);
+            if (changes.size() > MAX_STATUS_CHANGES) {
+                throw new FieldNotValidException("changes", changes.size(),
+                        "At most " + MAX_STATUS_CHANGES + " status changes at once");
+            }
+        } catch (final FieldNotValidException ex) {
+            logger.error("Status change is not valid", ex);
+            return Response.status(HttpCode.VALIDATION_ERROR.getCode())
+                    .entity(getOperationResultInvalidField(RM, ex)).build();
+        }
+
+        final List<OrderStatusChange> results = orderServices.updateStatuses(changes);
+        logger.info("Status changes applied: {}", results);
+
+        final JsonElement jsonWithEntries = JsonUtils.getJsonElementWithJsonArray(
+                converter.convertStatusChangesToJsonElement(results));
+        return Response.status(HttpCode.OK.getCode())
+                .entity(OperationResult.success(jsonWithEntries)).build();
+    }
+
     /**
      * To find an existing order by ID.
      *
@@ -211,12 +265,12 @@ public class OrderResource {
         try {
             final Order order = orderServices.findById(id);
             final OperationResult result = OperationResult.success(converter.convertToJsonElement(order));
-            rb = Response.status(HttpCode.OK.getCode()).entity(OperationResultJsonWriter.toJson(result));
+            rb = Response.status(HttpCode.OK.getCode()).entity(result);
             logger.info("Order found: {}", order);
         } catch (final OrderNotFoundException ex) {
             logger.info("No Order found for id: {}", id);
             rb = Response.status(HttpCode.NOT_FOUND.getCode())
-                    .entity(OperationResultJsonWriter.toJson(getOperationResultNotFound(RM)));
+                    .entity(getOperationResultNotFound(RM));
         }
         return rb.build();
     }
@@ -236,10 +290,10 @@ public class OrderResource {
 
         logger.info("Found all orders: {}", orders);
 
-        final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(
+        final JsonStreamable jsonWithPagingAndEntries = JsonUtils.getJsonWithPagingAndEntries(
                 new PaginatedData<>(orders.size(), orders), converter);
         return Response.status(HttpCode.OK.getCode())
-                .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries))).build();
+                .entity(OperationResult.success(jsonWithPagingAndEntries)).build();
     }
 
     /**
@@ -249,19 +303,59 @@ public class OrderResource {
      */
     @GET
     @RolesAllowed("EMPLOYEE")
-    // http://localhost:8080/storehouse/api/orders?page=0&per_page=2&sort=-startDate
+    // http://localhost:8080/storehouse/api/orders?page=0&per_page=2&sort=-createdAt
+    // http://localhost:8080/storehouse/api/orders?cursor=&per_page=2 (then cursor={paging.nextCursor})
+    // http://localhost:8080/storehouse/api/orders?status=RESERVED&fetch=detail (with items and history)
     public Response findByFilter() {
         final OrderFilter orderFilter = new OrderFilterExtractorFromUrl(uriInfo).getFilter();
         logger.info("Finding orders using filter: {}", orderFilter);
 
-        final PaginatedData<Order> data = orderServices.findByFilter(orderFilter);
+        final PaginatedData<Order> data;
+        try {
+            data = orderServices.findByFilter(orderFilter);
+        } catch (final FieldNotValidException ex) {
+            logger.error("Pagination field is not valid", ex);
+            return Response.status(HttpCode.VALIDATION_ERROR.getCode())
+                    .entity(getOperationResultInvalidField(RM, ex)).build();
+        }
 
         logger.info("Finding the paginated orders: {}", data);
 
-        final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(
-                data, converter);
+        final JsonStreamable jsonWithPagingAndEntries = JsonUtils.getJsonWithPagingAndEntries(
+                data, converter.getListConverter(orderFilter.getFetchPlan()));
         return Response.status(HttpCode.OK.getCode())
-                .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries))).build();
+                .entity(OperationResult.success(jsonWithPagingAndEntries)).build();
+    }
+
+    /**
+     * Export all the orders of the filter, streamed as NDJSON (one json order per line, the
+     * default) or as CSV. The filter and the sort are the ones of the orders listing, the
+     * pagination parameters are ignored.
+     * An example:
+     * http://localhost:8080/storehouse/api/orders/export?format=csv&status=RESERVED&sort=-createdAt
+     *
+     * @return a streamed response of the orders.
+     */
+    @GET
+    @Path("/export")
+    @RolesAllowed("EMPLOYEE")
+    @Produces({ "application/x-ndjson", "text/csv" })
+    public Response export() {
+        final OrderFilter orderFilter = new OrderFilterExtractorFromUrl(uriInfo).getFilter();
+        logger.info("Exporting orders using filter: {}", orderFilter);
+
+        final ExportFormat format;
+        final EntityExportOutput<Order> output;
+        try {
+            format = ExportFormat.fromParameter(uriInfo.getQueryParameters().getFirst("format"));
+            output = new EntityExportOutput<>(format, converter, csvConverter,
+                    cursor -> orderServices.findByFilter(EntityExportOutput.getBatchFilter(orderFilter, cursor)));
+        } catch (final FieldNotValidException ex) {
+            logger.error("Export field is not valid", ex);
+            return Response.status(HttpCode.VALIDATION_ERROR.getCode()).type(MediaType.APPLICATION_JSON)
+                    .entity(getOperationResultInvalidField(RM, ex)).build();
+        }
+        return Response.status(HttpCode.OK.getCode()).type(format.getMediaType()).entity(output).build();
     }
 
     /**
@@ -288,7 +382,7 @@ public class OrderResource {
             logger.error("Customer cannot be found for clientId", ex);
             final HttpCode httpCode = HttpCode.VALIDATION_ERROR;
             final OperationResult result = getOperationResultDependencyNotFound(RM, "customer");
-            return Response.status(httpCode.getCode()).entity(OperationResultJsonWriter.toJson(result)).build();
+            return Response.status(httpCode.getCode()).entity(result).build();
         }
 
         ResponseBuilder rb;
@@ -303,8 +397,7 @@ public class OrderResource {
         final OperationResult result = OperationResult
                 .success(converter.convertQueueStatsToJsonElement(customerId, customer.getName(),
                         position, waitTime));
-        final String tmp = OperationResultJsonWriter.toJson(result);
-        rb = Response.status(HttpCode.OK.getCode()).entity(tmp);
+        rb = Response.status(HttpCode.OK.getCode()).entity(result);
         logger.info("Queue position: {}, wait time: {}, for customerId {}", position, waitTime, customerId);
         return rb.build();
     }
@@ -323,24 +416,14 @@ public class OrderResource {
 
         try {
             final JsonArray jsonArray = new JsonArray();
-            // jiafanz: document this
-            // jiafanz: this can be greatly improved by performance...
-            for (final Order order : orderServices.findAllReservedOrders()) {
-                final Long customerId = order.getCustomer().getId();
-                final Integer position = orderServices.checkOrderPositionInQueueByCustomerId(customerId);
-                final Integer waitTime = orderServices.checkOrderWaitTimeInQueueByCustomerId(customerId);
-
-                if (position == -1 || waitTime == -1) {
-                    logger.error("Customer {} does not have an order yet", customerId);
-                    return Response.status(HttpCode.NOT_FOUND.getCode()).build();
-                }
-
-                jsonArray.add(converter.convertQueueStatsToJsonElement(customerId,
-                        order.getCustomer().getName(), position, waitTime));
+            // the stats of the whole queue are computed in one query, in the queue order
+            for (final OrderQueueStats queueStats : orderServices.findAllReservedOrdersQueueStats()) {
+                jsonArray.add(converter.convertQueueStatsToJsonElement(queueStats.getCustomerId(),
+                        queueStats.getCustomerName(), queueStats.getPosition(), queueStats.getWaitTime()));
             }
             final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithJsonArray(jsonArray);
             return Response.status(HttpCode.OK.getCode())
-                    .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries)))
+                    .entity(OperationResult.success(jsonWithPagingAndEntries))
                     .build();
         } catch (final UserNotAuthorizedException ex) {
             return Response.status(HttpCode.FORBIDDEN.getCode()).build();
@@ -363,46 +446,58 @@ public class OrderResource {
         final JsonArray jsonArray = new JsonArray();
         List<Order> orders;
         try {
-            orders = orderEventReceiver.receiveOrder();
+            // the batch has been planned in the background, we plan the next one once it is taken,
+            // the consumption of its messages is committed by then
+            orders = deliveryBatchPlanner.takeStagedBatch();
+            deliveryBatchPlanner.planNextBatchAsync();
             logger.info("Consume orders: {}", orders);
+            final List<Long> orderIds = new ArrayList<>(orders.size());
             for (final Order order : orders) {
-                // check the database if this order is not RESERVED
-                try {
-                    final OrderStatus currentStatus = orderServices.findById(order.getId()).getCurrentStatus();
-                    if (currentStatus == OrderStatus.RESERVED) {
-                        logger.info("Order {} is RESERVED, we will deliver it now", order);
-
-                        // delivery
-
-                        // make this order as PENDING state
-                        try {
-                            orderServices.updateStatus(order.getId(), OrderStatus.PENDING);
-                            logger.info("order id {} status changed to Pending", order.getId());
-                        } catch (final Exception ex) {
-                            logger.error("Failed to change the orderId {} to Pending state", order.getId());
-                            throw ex;
-                        }
-
-                        final Long customerId = order.getCustomer().getId();
-                        final String customerName = order.getCustomer().getName();
-                        final String customerEmail = order.getCustomer().getEmail();
-                        final Integer quantity = order.calculateTotalQuantity();
-                        jsonArray.add(converter.convertDeliveryToJsonElement(customerId,
-                                customerName, customerEmail, quantity));
+                orderIds.add(order.getId());
+            }
+            // check the database which orders are still RESERVED, the others could be cancelled or delivered
+            final Map<Long, OrderStatus> currentStatuses = orderServices.findStatusesByIds(orderIds);
+            final List<OrderStatusChange> changes = new ArrayList<>(orders.size());
+            for (final Order order : orders) {
+                final OrderStatus currentStatus = currentStatuses.get(order.getId());
+                if (currentStatus == null) {
+                    logger.info("No Order found for id: {}, ignore", order.getId());
+                } else if (currentStatus == OrderStatus.RESERVED) {
+                    changes.add(new OrderStatusChange(order.getId(), OrderStatus.PENDING));
+                } else {
+                    logger.info("This order id {} could be cancelled or delivered, ignore", order.getId());
+                }
+            }
+
+            // make the RESERVED orders PENDING in one bulk change, an order changed in the meantime is not
+            // delivered
+            final Set<Long> pendingIds = new HashSet<>();
+            if (!changes.isEmpty()) {
+                for (final OrderStatusChange change : orderServices.updateStatuses(changes)) {
+                    if (change.getResult() == Result.UPDATED) {
+                        pendingIds.add(change.getOrderId());
                     } else {
-                        logger.info("This order id {} could be cancelled or delivered, ignore", order.getId());
+                        logger.info("Failed to change the orderId {} to Pending state: {}", change.getOrderId(),
+                                change.getResult());
                     }
-                } catch (final OrderNotFoundException ex) {
-                    logger.info("No Order found for id: {}", order.getId());
-                    return Response.status(HttpCode.NOT_FOUND.getCode())
-                            .entity(OperationResultJsonWriter.toJson(getOperationResultNotFound(RM))).build();
                 }
+            }
 
+            // delivery
+            for (final Order order : orders) {
+                if (pendingIds.contains(order.getId())) {
+                    final Long customerId = order.getCustomer().getId();
+                    final String customerName = order.getCustomer().getName();
+                    final String customerEmail = order.getCustomer().getEmail();
+                    final Integer quantity = order.calculateTotalQuantity();
+                    jsonArray.add(converter.convertDeliveryToJsonElement(customerId,
+                            customerName, customerEmail, quantity));
+                }
             }
             // construct the JSON response
             final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithJsonArray(jsonArray);
             return Response.status(HttpCode.OK.getCode())
-                    .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries)))
+                    .entity(OperationResult.success(jsonWithPagingAndEntries))
                     .build();
         } catch (final JMSException ex) {
             ex.printStackTrace();
@@ -0,0 +1,54 @@
+package com.storehouse.app.user.resource;
+
+import com.storehouse.app.common.export.CsvWriter;
+import com.storehouse.app.common.export.EntityCsvConverter;
+import com.storehouse.app.common.utils.DateUtils;
+import com.storehouse.app.user.model.User;
+import com.storehouse.app.user.model.User.Roles;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * User csv converter, the roles are written in one column separated by a space.
+ *
+ * @author ejiafzh
+ *
+ */
+@ApplicationScoped
+public class UserCsvConverter implements EntityCsvConverter<User> {
+    private static final List<String> HEADER = Collections.unmodifiableList(
+            Arrays.asList("id", "name", "email", "type", "roles", "createdAt"));
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getCsvHeader() {
+        return HEADER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeCsvRow(final User user, final CsvWriter writer) throws IOException {
+        final StringBuilder roles = new StringBuilder();
+        for (final Roles role : user.getRoles()) {
+            if (roles.length() > 0) {
+                roles.append(' ');
+            }
+            roles.append(role);
+        }
+        writer.value(user.getId())
+                .value(user.getName())
+                .value(user.getEmail())
+                .value(user.getUserType())
+                .value(roles)
+                .value(DateUtils.formatDateTime(user.getCreatedAt()));
+    }
+}
@@ -33,6 +33,7 @@ public class UserFilterExtractorFromUrl extends AbstractFilterExtractorFromUrl {
     public UserFilter getFilter() {
         final UserFilter userFilter = new UserFilter();
         userFilter.setPaginationData(extractPaginationData());
+        userFilter.setCountMode(extractCountMode());
         userFilter.setName(getUriInfo().getQueryParameters().getFirst("name"));
         final String userType = getUriInfo().getQueryParameters().getFirst("type");
         if (userType != null) {
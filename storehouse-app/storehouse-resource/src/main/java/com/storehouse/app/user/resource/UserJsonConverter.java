@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 import com.storehouse.app.common.json.EntityJsonConverter;
 import com.storehouse.app.common.json.JsonReader;
 import com.storehouse.app.common.utils.DateUtils;
@@ -13,6 +14,8 @@ import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.model.User.Roles;
 import com.storehouse.app.user.model.User.UserType;
 
+import java.io.IOException;
+
 import javax.enterprise.context.ApplicationScoped;
 
 /**
@@ -61,6 +64,26 @@ public class UserJsonConverter implements EntityJsonConverter<User> {
         return jsonObject;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final User user, final JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(user.getId());
+        writer.name("name").value(user.getName());
+        writer.name("email").value(user.getEmail());
+        writer.name("type").value(user.getUserType().toString());
+
+        writer.name("roles").beginArray();
+        for (final Roles role : user.getRoles()) {
+            writer.value(role.toString());
+        }
+        writer.endArray();
+        writer.name("createdAt").value(DateUtils.formatDateTime(user.getCreatedAt()));
+        writer.endObject();
+    }
+
     private User getUserInstance(final JsonObject userJson) {
         final UserType userType = UserType.valueOf(JsonReader.getStringOrNull(userJson, "type"));
         return UserType.CUSTOMER.equals(userType) ? new Customer() : new Employee();
@@ -7,14 +7,17 @@ import com.google.gson.JsonObject;
 import com.storehouse.app.common.exception.FieldNotValidException;
 import com.storehouse.app.common.exception.UserAlreadyExistingException;
 import com.storehouse.app.common.exception.UserNotFoundException;
+import com.storehouse.app.common.export.EntityExportOutput;
+import com.storehouse.app.common.export.ExportFormat;
 import com.storehouse.app.common.json.JsonReader;
+import com.storehouse.app.common.json.JsonStreamable;
 import com.storehouse.app.common.json.JsonUtils;
-import com.storehouse.app.common.json.OperationResultJsonWriter;
 import com.storehouse.app.common.model.HttpCode;
 import com.storehouse.app.common.model.OperationResult;
 import com.storehouse.app.common.model.PaginatedData;
 import com.storehouse.app.common.model.ResourceMessage;
 import com.storehouse.app.common.model.filter.UserFilter;
+import com.storehouse.app.common.security.AuthenticationTokenServices;
 import com.storehouse.app.user.model.Customer;
 import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.model.User.Roles;
@@ -62,6 +65,12 @@ public class UserResource {
     @Inject
     UserJsonConverter converter;
 
+    @Inject
+    UserCsvConverter csvConverter;
+
+    @Inject
+    AuthenticationTokenServices tokenServices;
+
     // we need to extract a few parameters from the URL to create the user filter
     // object in order for pagination
     @Context
@@ -107,8 +116,8 @@ public class UserResource {
 
         logger.info("Returning the operation result after adding user: {}", result);
 
-        // convert the OperationResult object to Json
-        return Response.status(httpCode.getCode()).entity(OperationResultJsonWriter.toJson(result)).build();
+        // the OperationResult object is written as Json by OperationResultMessageBodyWriter
+        return Response.status(httpCode.getCode()).entity(result).build();
     }
 
     /**
@@ -160,7 +169,7 @@ public class UserResource {
         }
 
         logger.info("Returning the operation result after updating user: {}", result);
-        return Response.status(httpCode.getCode()).entity(OperationResultJsonWriter.toJson(result)).build();
+        return Response.status(httpCode.getCode()).entity(result).build();
     }
 
     private boolean isLoggedUser(final Long id) {
@@ -217,7 +226,7 @@ public class UserResource {
         }
 
         logger.info("Returning the operation result after updating user password: {}", result);
-        return Response.status(httpCode.getCode()).entity(OperationResultJsonWriter.toJson(result)).build();
+        return Response.status(httpCode.getCode()).entity(result).build();
     }
 
     /**
@@ -237,12 +246,12 @@ public class UserResource {
         try {
             final User user = userServices.findById(id);
             final OperationResult result = OperationResult.success(converter.convertToJsonElement(user));
-            rb = Response.status(HttpCode.OK.getCode()).entity(OperationResultJsonWriter.toJson(result));
+            rb = Response.status(HttpCode.OK.getCode()).entity(result);
             logger.info("User found: {}", user);
         } catch (final UserNotFoundException ex) {
             logger.info("No User found for id: {}", id);
             rb = Response.status(HttpCode.NOT_FOUND.getCode())
-                    .entity(OperationResultJsonWriter.toJson(getOperationResultNotFound(RM)));
+                    .entity(getOperationResultNotFound(RM));
         }
         return rb.build();
     }
@@ -257,11 +266,12 @@ public class UserResource {
 
     /**
      * Find the user by its email and password.
-     * This REST endpoint is essentially used to authenticate a user.
+     * This REST endpoint is essentially used to authenticate a user, the found user comes with a
+     * token to be sent by the next requests instead of the password, i.e. "Authorization: Bearer {token}".
      *
      * @param body
      *            includes email and password
-     * @return found user otherwise User not found or user not valid.
+     * @return found user and its token otherwise User not found or user not valid.
      */
     @POST
     @Path("/authenticate")
@@ -274,13 +284,15 @@ public class UserResource {
             final User userWithEmailAndPassword = getUserWithEmailAndPasswordFromJson(body);
             final User user = userServices.findByEmailAndPassword(
                     userWithEmailAndPassword.getEmail(), userWithEmailAndPassword.getPassword());
-            final OperationResult result = OperationResult.success(converter.convertToJsonElement(user));
-            rb = Response.status(HttpCode.OK.getCode()).entity(OperationResultJsonWriter.toJson(result));
+            final JsonObject jsonUser = converter.convertToJsonElement(user).getAsJsonObject();
+            jsonUser.addProperty("token", tokenServices.issueToken(user));
+            final OperationResult result = OperationResult.success(jsonUser);
+            rb = Response.status(HttpCode.OK.getCode()).entity(result);
             logger.info("User found by Email/Password: {}", user);
         } catch (final UserNotFoundException ex) {
             logger.info("No User found for Email/Password: {}", ex);
             rb = Response.status(HttpCode.NOT_FOUND.getCode())
-                    .entity(OperationResultJsonWriter.toJson(getOperationResultNotFound(RM)));
+                    .entity(getOperationResultNotFound(RM));
         }
         return rb.build();
     }
@@ -302,12 +314,12 @@ public class UserResource {
         try {
             final User user = userServices.findByEmail(email);
             final OperationResult result = OperationResult.success(converter.convertToJsonElement(user));
-            rb = Response.status(HttpCode.OK.getCode()).entity(OperationResultJsonWriter.toJson(result));
+            rb = Response.status(HttpCode.OK.getCode()).entity(result);
             logger.info("User found: {}", user);
         } catch (final UserNotFoundException ex) {
             logger.info("No User found for email: {}", email);
             rb = Response.status(HttpCode.NOT_FOUND.getCode())
-                    .entity(OperationResultJsonWriter.toJson(getOperationResultNotFound(RM)));
+                    .entity(getOperationResultNotFound(RM));
         }
         return rb.build();
     }
@@ -329,16 +341,19 @@ public class UserResource {
 
         logger.info("Found all users: {}", users);
 
-        final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(
+        final JsonStreamable jsonWithPagingAndEntries = JsonUtils.getJsonWithPagingAndEntries(
                 new PaginatedData<>(users.size(), users), converter);
         return Response.status(HttpCode.OK.getCode())
-                .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries))).build();
+                .entity(OperationResult.success(jsonWithPagingAndEntries)).build();
     }
 
     /**
      * Find all users based on the filter.
      * An example:
      * http://localhost:8080/storehouse/api/users?page=0&per_page=2&sort=-name
+     * With the keyset pagination, the first page is requested with an empty cursor and the next ones
+     * with the nextCursor of the previous page:
+     * http://localhost:8080/storehouse/api/users?cursor=&per_page=2&sort=-name
      *
      * @return a Json response
      */
@@ -348,14 +363,52 @@ public class UserResource {
         final UserFilter userFilter = new UserFilterExtractorFromUrl(uriInfo).getFilter();
         logger.info("Finding users using filter: {}", userFilter);
 
-        final PaginatedData<User> data = userServices.findByFilter(userFilter);
+        final PaginatedData<User> data;
+        try {
+            data = userServices.findByFilter(userFilter);
+        } catch (final FieldNotValidException ex) {
+            logger.error("Pagination field is not valid", ex);
+            return Response.status(HttpCode.VALIDATION_ERROR.getCode())
+                    .entity(getOperationResultInvalidField(RM, ex)).build();
+        }
 
         logger.info("Finding the paginated users: {}", data);
 
-        final JsonElement jsonWithPagingAndEntries = JsonUtils.getJsonElementWithPagingAndEntries(
+        final JsonStreamable jsonWithPagingAndEntries = JsonUtils.getJsonWithPagingAndEntries(
                 data, converter);
         return Response.status(HttpCode.OK.getCode())
-                .entity(OperationResultJsonWriter.toJson(OperationResult.success(jsonWithPagingAndEntries))).build();
+                .entity(OperationResult.success(jsonWithPagingAndEntries)).build();
+    }
+
+    /**
+     * Export all the users of the filter, streamed as NDJSON (one json user per line, the
+     * default) or as CSV. The filter and the sort are the ones of the users listing, the
+     * pagination parameters are ignored.
+     * An example:
+     * http://localhost:8080/storehouse/api/users/export?format=ndjson&sort=name
+     *
+     * @return a streamed response of the users.
+     */
+    @GET
+    @Path("/export")
+    @RolesAllowed("ADMIN")
+    @Produces({ "application/x-ndjson", "text/csv" })
+    public Response export() {
+        final UserFilter userFilter = new UserFilterExtractorFromUrl(uriInfo).getFilter();
+        logger.info("Exporting users using filter: {}", userFilter);
+
+        final ExportFormat format;
+        final EntityExportOutput<User> output;
+        try {
+            format = ExportFormat.fromParameter(uriInfo.getQueryParameters().getFirst("format"));
+            output = new EntityExportOutput<>(format, converter, csvConverter,
+                    cursor -> userServices.findByFilter(EntityExportOutput.getBatchFilter(userFilter, cursor)));
+        } catch (final FieldNotValidException ex) {
+            logger.error("Export field is not valid", ex);
+            return Response.status(HttpCode.VALIDATION_ERROR.getCode()).type(MediaType.APPLICATION_JSON)
+                    .entity(getOperationResultInvalidField(RM, ex)).build();
+        }
+        return Response.status(HttpCode.OK.getCode()).type(format.getMediaType()).entity(output).build();
     }
 
 }
@@ -0,0 +1,58 @@
+package com.storehouse.app.common.export;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CsvWriterUTest {
+    private StringWriter output;
+    private CsvWriter csvWriter;
+
+    @Before
+    public void initTestCase() {
+        output = new StringWriter();
+        csvWriter = new CsvWriter(output);
+    }
+
+    private String writeRow(final Object... values) throws IOException {
+        for (final Object value : values) {
+            csvWriter.value(value);
+        }
+        csvWriter.endRow();
+        return output.toString();
+    }
+
+    @Test
+    public void plainValues() throws IOException {
+        assertThat(writeRow(1L, "Mary Simpson", null, "CUSTOMER"), is(equalTo("1,Mary Simpson,,CUSTOMER\r\n")));
+    }
+
+    @Test
+    public void valuesWithSeparatorQuoteOrLineBreakAreQuoted() throws IOException {
+        assertThat(writeRow("Simpson, Mary", "Mary \"M\" Simpson", "Mary\nSimpson"),
+                is(equalTo("\"Simpson, Mary\",\"Mary \"\"M\"\" Simpson\",\"Mary\nSimpson\"\r\n")));
+    }
+
+    @Test
+    public void textStartingLikeAFormulaIsNeutralised() throws IOException {
+        assertThat(writeRow("=HYPERLINK(\"http://evil\")", "+1", "-1", "@SUM(A1)", "\tname"),
+                is(equalTo("\"'=HYPERLINK(\"\"http://evil\"\")\",'+1,'-1,'@SUM(A1),'\tname\r\n")));
+    }
+
+    @Test
+    public void negativeNumbersAreWrittenAsTheyAre() throws IOException {
+        assertThat(writeRow(-1L, new BigDecimal("-2.50")), is(equalTo("-1,-2.50\r\n")));
+    }
+
+    @Test
+    public void rowsAreSeparatedByLineBreaks() throws IOException {
+        writeRow("a", "b");
+        assertThat(writeRow("c"), is(equalTo("a,b\r\nc\r\n")));
+    }
+}
@@ -0,0 +1,80 @@
+package com.storehouse.app.common.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramUTest {
+    private LatencyHistogram histogram;
+
+    @Before
+    public void initTestCase() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void emptyHistogram() {
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getValueAtPercentile(99), is(equalTo(0L)));
+        assertThat(histogram.getMaxMicros(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void everyValueIsInABucketNotWiderThanASixteenthOfIt() {
+        for (long value = 0; value < 100000; value++) {
+            final long highest = LatencyHistogram.getHighestValue(LatencyHistogram.getBucket(value));
+            assertThat(highest >= value, is(equalTo(true)));
+            assertThat(highest - value <= value / 16, is(equalTo(true)));
+        }
+        assertThat(LatencyHistogram.getHighestValue(LatencyHistogram.getBucket(Long.MAX_VALUE)),
+                is(equalTo(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentiles() {
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertThat(histogram.getCount(), is(equalTo(1000L)));
+        assertThat(histogram.getTotalMicros(), is(equalTo(500500L)));
+        assertThat(histogram.getMaxMicros(), is(equalTo(1000L)));
+        assertWithinABucket(histogram.getValueAtPercentile(50), 500);
+        assertWithinABucket(histogram.getValueAtPercentile(99), 990);
+        // never above the highest recorded value
+        assertThat(histogram.getValueAtPercentile(99.9), is(equalTo(1000L)));
+        assertThat(histogram.getValueAtPercentile(100), is(equalTo(1000L)));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int micros = 0; micros < 10000; micros++) {
+                    histogram.record(micros);
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(histogram.getCount(), is(equalTo(40000L)));
+        assertThat(histogram.getMaxMicros(), is(equalTo(9999L)));
+    }
+
+    private void assertWithinABucket(final long actual, final long expected) {
+        assertThat(actual >= expected && actual <= expected + expected / 16, is(equalTo(true)));
+    }
+}
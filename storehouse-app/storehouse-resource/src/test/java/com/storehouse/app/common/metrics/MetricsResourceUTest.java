@@ -0,0 +1,127 @@
+package com.storehouse.app.common.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.model.HttpCode;
+import com.storehouse.app.common.repository.CacheStatistics;
+import com.storehouse.app.common.repository.CacheStatistics.RegionStatistics;
+import com.storehouse.app.order.services.BatchPackingMetrics;
+import com.storehouse.app.user.services.impl.PrincipalCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsResourceUTest {
+    private MetricsResource metricsResource;
+    private RequestMetrics requestMetrics;
+    private CacheStatistics cacheStatistics;
+    private BatchPackingMetrics batchPackingMetrics;
+    private PrincipalCache principalCache;
+
+    @Before
+    public void initTestCase() {
+        requestMetrics = new RequestMetrics();
+        cacheStatistics = mock(CacheStatistics.class);
+        when(cacheStatistics.getRegionStatistics()).thenReturn(new ArrayList<>());
+        metricsResource = new MetricsResource();
+        metricsResource.requestMetrics = requestMetrics;
+        metricsResource.cacheStatistics = cacheStatistics;
+        batchPackingMetrics = new BatchPackingMetrics();
+        metricsResource.batchPackingMetrics = batchPackingMetrics;
+        principalCache = mock(PrincipalCache.class);
+        metricsResource.principalCache = principalCache;
+    }
+
+    @Test
+    public void noRequestYet() {
+        final String text = getMetrics();
+
+        assertThat(text, containsString("# TYPE storehouse_http_requests_total counter\n"));
+        assertThat(text, not(containsString("route=")));
+        assertThat(text, containsString("# TYPE storehouse_cache_hits_total counter\n"));
+        assertThat(text, not(containsString("region=")));
+        assertThat(text, containsString("# TYPE storehouse_batches_total counter\n"));
+        assertThat(text, not(containsString("strategy=")));
+        assertThat(text, containsString("storehouse_principal_cache_hit_ratio 0.000\n"));
+    }
+
+    @Test
+    public void principalCacheMetrics() {
+        when(principalCache.getHitCount()).thenReturn(3L);
+        when(principalCache.getMissCount()).thenReturn(1L);
+        when(principalCache.getHitRate()).thenReturn(0.75);
+        when(principalCache.size()).thenReturn(1);
+
+        final String text = getMetrics();
+
+        assertThat(text, containsString("# TYPE storehouse_principal_cache_hits_total counter\n"));
+        assertThat(text, containsString("storehouse_principal_cache_hits_total 3\n"));
+        assertThat(text, containsString("storehouse_principal_cache_misses_total 1\n"));
+        assertThat(text, containsString("storehouse_principal_cache_hit_ratio 0.750\n"));
+        assertThat(text, containsString("storehouse_principal_cache_entries 1\n"));
+    }
+
+    @Test
+    public void metricsByRouteInTextFormat() {
+        requestMetrics.record("GET orders/{id}", 200, TimeUnit.MILLISECONDS.toNanos(2));
+        requestMetrics.record("GET orders/{id}", 200, TimeUnit.MILLISECONDS.toNanos(2));
+        requestMetrics.record("GET orders/{id}", 404, TimeUnit.MILLISECONDS.toNanos(2));
+
+        final String text = getMetrics();
+
+        assertThat(text, containsString("storehouse_http_requests_total{route=\"GET orders/{id}\",status=\"200\"} 2\n"));
+        assertThat(text, containsString("storehouse_http_requests_total{route=\"GET orders/{id}\",status=\"404\"} 1\n"));
+        assertThat(text, containsString(
+                "storehouse_http_request_duration_seconds{route=\"GET orders/{id}\",quantile=\"0.5\"} 0.002000\n"));
+        assertThat(text, containsString(
+                "storehouse_http_request_duration_seconds{route=\"GET orders/{id}\",quantile=\"0.999\"} 0.002000\n"));
+        assertThat(text, containsString("storehouse_http_request_duration_seconds_sum{route=\"GET orders/{id}\"} 0.006000\n"));
+        assertThat(text, containsString("storehouse_http_request_duration_seconds_count{route=\"GET orders/{id}\"} 3\n"));
+        assertThat(text, containsString("storehouse_http_request_duration_seconds_max{route=\"GET orders/{id}\"} 0.002000\n"));
+        assertThat(text, containsString("storehouse_http_requests_per_second{route=\"GET orders/{id}\"} "));
+    }
+
+    @Test
+    public void cacheMetricsByRegion() {
+        when(cacheStatistics.getRegionStatistics()).thenReturn(Arrays.asList(
+                new RegionStatistics("storehouse.order", 3, 1, 4, 2),
+                new RegionStatistics("storehouse.user", 10, 2, 2, 2)));
+
+        final String text = getMetrics();
+
+        assertThat(text, containsString("storehouse_cache_hits_total{region=\"storehouse.order\"} 3\n"));
+        assertThat(text, containsString("storehouse_cache_hits_total{region=\"storehouse.user\"} 10\n"));
+        assertThat(text, containsString("storehouse_cache_misses_total{region=\"storehouse.user\"} 2\n"));
+        assertThat(text, containsString("storehouse_cache_puts_total{region=\"storehouse.order\"} 4\n"));
+        assertThat(text, containsString("storehouse_cache_entries{region=\"storehouse.order\"} 2\n"));
+    }
+
+    @Test
+    public void batchMetricsByStrategy() {
+        batchPackingMetrics.recordBatch("greedy", 3, 40, 50);
+        batchPackingMetrics.recordBatch("greedy", 2, 30, 50);
+        batchPackingMetrics.recordBatch("knapsack", 4, 50, 50);
+
+        final String text = getMetrics();
+
+        assertThat(text, containsString("storehouse_batches_total{strategy=\"greedy\"} 2\n"));
+        assertThat(text, containsString("storehouse_batches_total{strategy=\"knapsack\"} 1\n"));
+        assertThat(text, containsString("storehouse_batch_size{strategy=\"greedy\"} 2.500\n"));
+        assertThat(text, containsString("storehouse_batch_fill_ratio{strategy=\"greedy\"} 0.700\n"));
+        assertThat(text, containsString("storehouse_batch_fill_ratio{strategy=\"knapsack\"} 1.000\n"));
+    }
+
+    private String getMetrics() {
+        final Response response = metricsResource.getMetrics();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        return (String) response.getEntity();
+    }
+}
@@ -0,0 +1,110 @@
+package com.storehouse.app.common.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.metrics.RequestMetrics.RouteMetrics;
+import com.storehouse.app.order.resource.OrderResource;
+
+import java.util.Map;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class RequestMetricsFilterUTest {
+    private RequestMetricsFilter filter;
+    private RequestMetrics requestMetrics;
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private ContainerResponseContext responseContext;
+
+    @Mock
+    private WriterInterceptorContext writerContext;
+
+    @Mock
+    private ResourceInfo resourceInfo;
+
+    @Before
+    public void initTestCase() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        requestMetrics = new RequestMetrics();
+        filter = new RequestMetricsFilter();
+        filter.requestMetrics = requestMetrics;
+        filter.resourceInfo = resourceInfo;
+
+        doReturn(OrderResource.class).when(resourceInfo).getResourceClass();
+        when(resourceInfo.getResourceMethod())
+                .thenReturn(OrderResource.class.getMethod("addStatus", Long.class, String.class));
+        when(requestContext.getMethod()).thenReturn("POST");
+        when(requestContext.getProperty(RequestMetricsFilter.START_PROPERTY)).thenReturn(System.nanoTime());
+    }
+
+    @Test
+    public void pathTemplateOfTheResourceMethod() throws Exception {
+        assertThat(RequestMetricsFilter.getPathTemplate(OrderResource.class,
+                OrderResource.class.getMethod("addStatus", Long.class, String.class)),
+                is(equalTo("orders/{id}/status")));
+        assertThat(RequestMetricsFilter.getPathTemplate(OrderResource.class,
+                OrderResource.class.getMethod("add", String.class)), is(equalTo("orders")));
+    }
+
+    @Test
+    public void responseWithoutEntityIsRecordedByTheFilter() {
+        when(responseContext.getStatus()).thenReturn(404);
+        when(responseContext.hasEntity()).thenReturn(false);
+
+        filter.filter(requestContext, responseContext);
+
+        assertRecorded("POST orders/{id}/status", 404);
+    }
+
+    @Test
+    public void responseWithEntityIsRecordedOnceWritten() throws Exception {
+        when(responseContext.getStatus()).thenReturn(200);
+        when(responseContext.hasEntity()).thenReturn(true);
+
+        filter.filter(requestContext, responseContext);
+
+        verify(requestContext).setProperty(RequestMetricsFilter.ROUTE_PROPERTY, "POST orders/{id}/status");
+        verify(requestContext).setProperty(RequestMetricsFilter.STATUS_PROPERTY, 200);
+        assertThat(requestMetrics.getMetricsByRoute().isEmpty(), is(equalTo(true)));
+
+        when(writerContext.getProperty(RequestMetricsFilter.START_PROPERTY)).thenReturn(System.nanoTime());
+        when(writerContext.getProperty(RequestMetricsFilter.ROUTE_PROPERTY)).thenReturn("POST orders/{id}/status");
+        when(writerContext.getProperty(RequestMetricsFilter.STATUS_PROPERTY)).thenReturn(200);
+        filter.aroundWriteTo(writerContext);
+
+        verify(writerContext).proceed();
+        assertRecorded("POST orders/{id}/status", 200);
+    }
+
+    @Test
+    public void requestNotMatched() {
+        when(requestContext.getProperty(RequestMetricsFilter.START_PROPERTY)).thenReturn(null);
+        when(responseContext.getStatus()).thenReturn(404);
+
+        filter.filter(requestContext, responseContext);
+
+        assertRecorded(RequestMetricsFilter.UNMATCHED_ROUTE, 404);
+    }
+
+    private void assertRecorded(final String route, final int status) {
+        final Map<String, RouteMetrics> metricsByRoute = requestMetrics.getMetricsByRoute();
+        assertThat(metricsByRoute.size(), is(equalTo(1)));
+        final RouteMetrics metrics = metricsByRoute.get(route);
+        assertThat(metrics.getLatencies().getCount(), is(equalTo(1L)));
+        assertThat(metrics.getStatusCounts().get(status), is(equalTo(1L)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.storehouse.app.common.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.repository.StatementStatistics;
+
+import javax.annotation.Priority;
+import javax.servlet.ServletContext;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class StatementAccountingFilterUTest {
+    private StatementAccountingFilter filter;
+    private MultivaluedMap<String, Object> headers;
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private ContainerResponseContext responseContext;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private ServletContext servletContext;
+
+    @Before
+    public void initTestCase() {
+        MockitoAnnotations.initMocks(this);
+
+        filter = new StatementAccountingFilter();
+        filter.servletContext = servletContext;
+
+        headers = new MultivaluedHashMap<>();
+        when(responseContext.getHeaders()).thenReturn(headers);
+        when(requestContext.getMethod()).thenReturn("GET");
+        when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPath()).thenReturn("/orders");
+    }
+
+    @After
+    public void endUnitOfWork() {
+        StatementStatistics.end();
+    }
+
+    private void executeRequestWithStatements() {
+        filter.filter(requestContext);
+        StatementStatistics.recordStatement("select * from orders");
+        for (int i = 0; i < StatementAccountingFilter.DEFAULT_REPEAT_THRESHOLD; i++) {
+            StatementStatistics.recordStatement("select * from order_items where order_id=?");
+        }
+        filter.filter(requestContext, responseContext);
+    }
+
+    @Test
+    public void statementCountsInTheHeadersInDebugMode() {
+        when(servletContext.getInitParameter(StatementAccountingFilter.DEBUG_PARAM)).thenReturn("true");
+
+        executeRequestWithStatements();
+
+        assertThat(headers.getFirst(StatementAccountingFilter.STATEMENT_COUNT_HEADER),
+                is(equalTo((Object) (StatementAccountingFilter.DEFAULT_REPEAT_THRESHOLD + 1))));
+        assertThat(headers.getFirst(StatementAccountingFilter.STATEMENT_MAX_REPEAT_HEADER),
+                is(equalTo((Object) StatementAccountingFilter.DEFAULT_REPEAT_THRESHOLD)));
+        assertThat(headers.containsKey(StatementAccountingFilter.STATEMENT_TIME_HEADER), is(equalTo(true)));
+        // the unit of work is over
+        assertThat(StatementStatistics.end(), is(nullValue()));
+    }
+
+    @Test
+    public void noHeadersOutsideDebugMode() {
+        executeRequestWithStatements();
+
+        assertThat(headers.isEmpty(), is(equalTo(true)));
+        assertThat(StatementStatistics.end(), is(nullValue()));
+    }
+
+    @Test
+    public void runsBetweenTheRequestMetricsAndTheAuthentication() {
+        final int priority = StatementAccountingFilter.class.getAnnotation(Priority.class).value();
+        assertThat(priority > RequestMetricsFilter.class.getAnnotation(Priority.class).value(), is(equalTo(true)));
+        assertThat(priority < Priorities.AUTHENTICATION, is(equalTo(true)));
+    }
+}
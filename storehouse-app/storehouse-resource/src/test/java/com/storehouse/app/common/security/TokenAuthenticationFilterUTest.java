@@ -0,0 +1,147 @@
+package com.storehouse.app.common.security;
+
+import static com.storehouse.app.commontests.user.UserForTestsRepository.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.storehouse.app.common.model.HttpCode;
+import com.storehouse.app.user.model.User.Roles;
+import com.storehouse.app.user.services.UserServices;
+
+import java.security.Principal;
+
+import javax.servlet.ServletContext;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TokenAuthenticationFilterUTest {
+    private TokenAuthenticationFilter filter;
+    private AuthenticationTokenServices tokenServices;
+    private TokenCaller tokenCaller;
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private ServletContext servletContext;
+
+    @Mock
+    private SecurityContext containerSecurityContext;
+
+    @Mock
+    private UserServices userServices;
+
+    @Before
+    public void initTestCase() {
+        MockitoAnnotations.initMocks(this);
+
+        tokenServices = new AuthenticationTokenServices();
+        tokenServices.init();
+        tokenServices.userServices = userServices;
+        when(userServices.findByEmail(johnDoe().getEmail())).thenReturn(johnDoe());
+        tokenCaller = new TokenCaller();
+
+        filter = new TokenAuthenticationFilter();
+        filter.tokenServices = tokenServices;
+        filter.tokenCaller = tokenCaller;
+        filter.servletContext = servletContext;
+
+        when(servletContext.getInitParameter(TokenAuthenticationFilter.PUBLIC_PATHS_PARAM))
+                .thenReturn("POST users, * DB");
+        when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        when(requestContext.getSecurityContext()).thenReturn(containerSecurityContext);
+    }
+
+    private void setUpRequest(final String method, final String path, final String authorization) {
+        when(requestContext.getMethod()).thenReturn(method);
+        when(uriInfo.getPath()).thenReturn(path);
+        when(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION)).thenReturn(authorization);
+    }
+
+    private void assertAborted(final String challenge) {
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(requestContext).abortWith(response.capture());
+        assertThat(response.getValue().getStatus(), is(equalTo(HttpCode.UNAUTHORIZED.getCode())));
+        assertThat(response.getValue().getHeaderString(HttpHeaders.WWW_AUTHENTICATE).startsWith(challenge),
+                is(equalTo(true)));
+    }
+
+    @Test
+    public void validTokenAuthenticatesTheCaller() {
+        setUpRequest("GET", "/orders/stats/1", "Bearer " + tokenServices.issueToken(johnDoe()));
+
+        filter.filter(requestContext);
+
+        final ArgumentCaptor<SecurityContext> securityContext = ArgumentCaptor.forClass(SecurityContext.class);
+        verify(requestContext).setSecurityContext(securityContext.capture());
+        verify(requestContext, never()).abortWith((Response) anyObject());
+        assertThat(securityContext.getValue().getUserPrincipal().getName(), is(equalTo(johnDoe().getEmail())));
+        assertThat(securityContext.getValue().isUserInRole(Roles.CUSTOMER.name()), is(equalTo(true)));
+        assertThat(securityContext.getValue().isUserInRole(Roles.EMPLOYEE.name()), is(equalTo(false)));
+        assertThat(tokenCaller.getName(), is(equalTo(johnDoe().getEmail())));
+    }
+
+    @Test
+    public void invalidTokenIsRejected() {
+        setUpRequest("GET", "/orders/stats/1", "Bearer invalid.token");
+
+        filter.filter(requestContext);
+
+        assertAborted("Bearer");
+        assertThat(tokenCaller.isAuthenticated(), is(equalTo(false)));
+    }
+
+    @Test
+    public void callerAuthenticatedByTheSecurityDomainIsAccepted() {
+        setUpRequest("GET", "/orders", "Basic YWRtaW46YWRtaW4=");
+        final Principal principal = mock(Principal.class);
+        when(containerSecurityContext.getUserPrincipal()).thenReturn(principal);
+
+        filter.filter(requestContext);
+
+        verify(requestContext, never()).abortWith((Response) anyObject());
+        verify(requestContext, never()).setSecurityContext((SecurityContext) anyObject());
+    }
+
+    @Test
+    public void anonymousCallerIsRejected() {
+        setUpRequest("GET", "/orders", null);
+
+        filter.filter(requestContext);
+
+        assertAborted("Basic");
+    }
+
+    @Test
+    public void anonymousCallerOfPublicPathIsAccepted() {
+        setUpRequest("POST", "/users/authenticate", null);
+        filter.filter(requestContext);
+
+        setUpRequest("DELETE", "DB", null);
+        filter.filter(requestContext);
+
+        verify(requestContext, never()).abortWith((Response) anyObject());
+    }
+
+    @Test
+    public void anonymousCallerOfPublicPathWithAnotherMethodIsRejected() {
+        setUpRequest("GET", "/users", null);
+
+        filter.filter(requestContext);
+
+        assertAborted("Basic");
+    }
+}
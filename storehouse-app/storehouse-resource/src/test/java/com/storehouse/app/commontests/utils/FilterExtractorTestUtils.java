@@ -26,6 +26,7 @@ public class FilterExtractorTestUtils {
         assertThat(actual.getMaxResults(), is(equalTo(expected.getMaxResults())));
         assertThat(actual.getOrderField(), is(equalTo(expected.getOrderField())));
         assertThat(actual.getOrderMode(), is(equalTo(expected.getOrderMode())));
+        assertThat(actual.getCursor(), is(equalTo(expected.getCursor())));
     }
 
     @SuppressWarnings({ "unchecked" })
@@ -2,11 +2,20 @@ package com.storehouse.app.commontests.utils;
 
 import com.google.gson.JsonObject;
 import com.storehouse.app.common.json.JsonReader;
+import com.storehouse.app.common.json.OperationResultMessageBodyWriter;
+import com.storehouse.app.common.model.OperationResult;
 import com.storehouse.app.order.model.Order.OrderStatus;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.json.JSONException;
 import org.junit.Ignore;
 import org.skyscreamer.jsonassert.JSONAssert;
@@ -40,6 +49,28 @@ public class JsonTestUtils {
         }
     }
 
+    public static String getJsonFromResponse(final Response response) {
+        // the operation result is written the same way as the container does
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new OperationResultMessageBodyWriter().writeTo((OperationResult) response.getEntity(),
+                    OperationResult.class, OperationResult.class, null, MediaType.APPLICATION_JSON_TYPE, null, out);
+        } catch (final IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public static String getStreamedEntity(final Response response) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(out);
+        } catch (final IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     public static Long getIdFromJson(final String json) {
         final JsonObject jsonObject = JsonReader.readAsJsonObject(json);
         return JsonReader.getLongOrNull(jsonObject, "id");
@@ -4,10 +4,12 @@ import static com.storehouse.app.commontests.utils.FilterExtractorTestUtils.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.common.model.filter.PaginationData;
 import com.storehouse.app.common.model.filter.PaginationData.OrderMode;
 import com.storehouse.app.common.utils.DateUtils;
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
 
 import java.util.Date;
@@ -78,4 +80,53 @@ public class OrderFilterExtractorFromUrlUTest {
                 DateUtils.getAsDateTime("2017-10-07T10:00:00Z"), 10L, OrderStatus.CANCELLED);
     }
 
+    @Test
+    public void withCursorIgnoresPage() {
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("page", "3");
+        parameters.put("per_page", "5");
+        parameters.put("cursor", "Y3JlYXRlZEF0");
+        setUpUriInfoWithMap(uriInfo, parameters);
+
+        final OrderFilterExtractorFromUrl extractor = new OrderFilterExtractorFromUrl(uriInfo);
+        final OrderFilter orderFilter = extractor.getFilter();
+
+        assertActualPaginationDataWithExpected(orderFilter.getPaginationData(),
+                new PaginationData(0, 5, "createdAt", OrderMode.DESCENDING, "Y3JlYXRlZEF0"));
+        assertThat(orderFilter.getPaginationData().isKeysetPagination(), is(equalTo(true)));
+    }
+
+    @Test
+    public void withCountMode() {
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("withCount", "estimated");
+        setUpUriInfoWithMap(uriInfo, parameters);
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getCountMode(),
+                is(equalTo(CountMode.ESTIMATED)));
+
+        parameters.put("withCount", "false");
+        setUpUriInfoWithMap(uriInfo, parameters);
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getCountMode(), is(equalTo(CountMode.NONE)));
+
+        setUpUriInfoWithMap(uriInfo, new LinkedHashMap<>());
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getCountMode(), is(equalTo(CountMode.EXACT)));
+    }
+
+    @Test
+    public void withFetchPlan() {
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("fetch", "detail");
+        setUpUriInfoWithMap(uriInfo, parameters);
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getFetchPlan(), is(equalTo(FetchPlan.DETAIL)));
+
+        parameters.put("fetch", "unknown");
+        setUpUriInfoWithMap(uriInfo, parameters);
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getFetchPlan(),
+                is(equalTo(FetchPlan.SUMMARY)));
+
+        setUpUriInfoWithMap(uriInfo, new LinkedHashMap<>());
+        assertThat(new OrderFilterExtractorFromUrl(uriInfo).getFilter().getFetchPlan(),
+                is(equalTo(FetchPlan.SUMMARY)));
+    }
+
 }
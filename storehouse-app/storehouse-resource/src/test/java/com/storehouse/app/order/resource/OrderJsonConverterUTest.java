@@ -0,0 +1,44 @@
+package com.storehouse.app.order.resource;
+
+import static com.storehouse.app.commontests.order.OrderForTestsRepository.*;
+import static com.storehouse.app.commontests.utils.JsonTestUtils.*;
+
+import com.storehouse.app.common.json.JsonStreamable;
+import com.storehouse.app.common.json.JsonWriter;
+import com.storehouse.app.order.model.Order;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderJsonConverterUTest {
+    private OrderJsonConverter converter;
+
+    @Before
+    public void initTestCase() {
+        converter = new OrderJsonConverter();
+    }
+
+    @Test
+    public void writeOrderAsTheJsonElement() {
+        final Order order = orderWithId(orderDelivered(), 1L);
+
+        final String json = JsonWriter.writeToString((JsonStreamable) writer -> converter.write(order, writer));
+
+        assertJsonMatchesExpectedJson(json,
+                JsonWriter.writeToString(converter.convertToJsonElement(order)));
+    }
+
+    @Test
+    public void writeOrdersAsTheJsonElement() {
+        final List<Order> orders = Arrays.asList(orderWithId(orderDelivered(), 1L),
+                orderWithId(orderReservedJohnDoe(), 2L));
+
+        final String json = JsonWriter.writeToString((JsonStreamable) writer -> converter.write(orders, writer));
+
+        assertJsonMatchesExpectedJson(json,
+                JsonWriter.writeToString(converter.convertToJsonElement(orders)));
+    }
+}
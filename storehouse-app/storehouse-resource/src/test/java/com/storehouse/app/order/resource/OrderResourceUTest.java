@@ -10,26 +10,36 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import com.google.gson.JsonObject;
 import com.storehouse.app.common.exception.FieldNotValidException;
 import com.storehouse.app.common.exception.OrderNotFoundException;
 import com.storehouse.app.common.exception.OrderStatusCannotBeChangedException;
 import com.storehouse.app.common.exception.UserNotFoundException;
+import com.storehouse.app.common.json.JsonReader;
 import com.storehouse.app.common.model.HttpCode;
 import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 import com.storehouse.app.common.model.filter.OrderFilter;
 import com.storehouse.app.common.utils.DateUtils;
 import com.storehouse.app.commontests.utils.ResourceDefinitions;
 import com.storehouse.app.order.model.Order;
+import com.storehouse.app.order.model.Order.FetchPlan;
 import com.storehouse.app.order.model.Order.OrderStatus;
 import com.storehouse.app.order.model.OrderHistoryEntry;
+import com.storehouse.app.order.model.OrderQueueStats;
+import com.storehouse.app.order.model.OrderStatusChange;
+import com.storehouse.app.order.model.OrderStatusChange.Result;
 import com.storehouse.app.order.services.OrderServices;
+import com.storehouse.app.order.services.impl.DeliveryBatchPlanner;
 import com.storehouse.app.user.model.Customer;
 import com.storehouse.app.user.services.UserServices;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -40,6 +50,8 @@ import javax.ws.rs.core.UriInfo;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -57,6 +69,9 @@ public class OrderResourceUTest {
     @Mock
     private UriInfo uriInfo;
 
+    @Mock
+    private DeliveryBatchPlanner deliveryBatchPlanner;
+
     private OrderJsonConverter converter;
 
     @Mock
@@ -71,12 +86,14 @@ public class OrderResourceUTest {
         orderResource.orderServices = orderServices;
         orderResource.userServices = userServices;
         orderResource.converter = converter;
+        orderResource.csvConverter = new OrderCsvConverter();
         orderResource.uriInfo = uriInfo;
+        orderResource.deliveryBatchPlanner = deliveryBatchPlanner;
         orderResource.securityContext = securityContext;
     }
 
     private void assertJsonResponseWithFile(final Response response, final String fileName) {
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, fileName));
+        assertJsonMatchesFileContent(getJsonFromResponse(response), getPathFileResponse(PATH_RESOURCE, fileName));
     }
 
     @Test
@@ -89,7 +106,7 @@ public class OrderResourceUTest {
         final Response response = orderResource
                 .add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "orderForRubberDuck.json")));
         assertThat(response.getStatus(), is(equalTo(HttpCode.CREATED.getCode())));
-        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"id\": 1}");
+        assertJsonMatchesExpectedJson(getJsonFromResponse(response), "{\"id\": 1}");
     }
 
     private void addOrderWithValidationError(final Exception exception,
@@ -175,6 +192,44 @@ public class OrderResourceUTest {
         assertJsonResponseWithFile(response, "orderDeliveredFound.json");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addStatusesReturnsTheResultOfEveryChange() {
+        when(orderServices.updateStatuses(anyList())).thenAnswer(invocation -> {
+            final List<OrderStatusChange> changes = (List<OrderStatusChange>) invocation.getArguments()[0];
+            changes.get(0).setResult(Result.UPDATED);
+            changes.get(1).setResult(Result.NOT_FOUND);
+            return changes;
+        });
+
+        final Response response = orderResource.addStatuses(
+                "[{\"id\": 1, \"status\": \"DELIVERED\"}, {\"id\": 2, \"status\": \"CANCELLED\"}]");
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertJsonMatchesExpectedJson(getJsonFromResponse(response), "{\"paging\": {\"totalRecords\": 2},"
+                + " \"entries\": [{\"id\": 1, \"status\": \"DELIVERED\", \"result\": \"UPDATED\"},"
+                + " {\"id\": 2, \"status\": \"CANCELLED\", \"result\": \"NOT_FOUND\"}]}");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addStatusesWithInvalidChanges() {
+        assertThat(orderResource.addStatuses("{\"id\": 1, \"status\": \"DELIVERED\"}").getStatus(),
+                is(equalTo(HttpCode.VALIDATION_ERROR.getCode())));
+        assertThat(orderResource.addStatuses("[{\"id\": 1, \"status\": \"SHIPPED\"}]").getStatus(),
+                is(equalTo(HttpCode.VALIDATION_ERROR.getCode())));
+        assertThat(orderResource.addStatuses("[{\"status\": \"DELIVERED\"}]").getStatus(),
+                is(equalTo(HttpCode.VALIDATION_ERROR.getCode())));
+
+        final StringBuilder tooManyChanges = new StringBuilder("[");
+        for (int i = 0; i <= OrderResource.MAX_STATUS_CHANGES; i++) {
+            tooManyChanges.append(i == 0 ? "" : ",").append("{\"id\": ").append(i)
+                    .append(", \"status\": \"DELIVERED\"}");
+        }
+        assertThat(orderResource.addStatuses(tooManyChanges.append("]").toString()).getStatus(),
+                is(equalTo(HttpCode.VALIDATION_ERROR.getCode())));
+        verify(orderServices, never()).updateStatuses(anyList());
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void findOrderByFilter() {
@@ -197,6 +252,95 @@ public class OrderResourceUTest {
         assertJsonResponseWithFile(response, "ordersAllInOnePage.json");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findOrderByFilterWithDetailFetchPlan() {
+        final Order order = orderWithId(orderDelivered(), 1L);
+        order.getCustomer().setId(1L);
+        prepareOrderForJsonComparison(order);
+
+        final MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
+        when(multiMap.getFirst("fetch")).thenReturn("detail");
+        when(uriInfo.getQueryParameters()).thenReturn(multiMap);
+        when(orderServices.findByFilter((OrderFilter) anyObject())).thenReturn(
+                new PaginatedData<>(1, Arrays.asList(order)));
+
+        final Response response = orderResource.findByFilter();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        final JsonObject entry = JsonReader.readAsJsonObject(getJsonFromResponse(response))
+                .getAsJsonArray("entries").get(0).getAsJsonObject();
+        assertThat(entry.getAsJsonArray("items").size(), is(equalTo(order.getItems().size())));
+        assertThat(entry.getAsJsonArray("historyEntries").size(), is(equalTo(order.getHistoryEntries().size())));
+        verify(orderServices).findByFilter(argThat(new ArgumentMatcher<OrderFilter>() {
+            @Override
+            public boolean matches(final Object argument) {
+                return ((OrderFilter) argument).getFetchPlan() == FetchPlan.DETAIL;
+            }
+        }));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportOrdersAsNdjsonInBatches() {
+        final Order order1 = orderWithId(orderDelivered(), 1L);
+        order1.getCustomer().setId(1L);
+        final Order order2 = orderWithId(orderReservedJohnDoe(), 2L);
+        order2.getCustomer().setId(2L);
+
+        final MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
+        when(uriInfo.getQueryParameters()).thenReturn(multiMap);
+        when(orderServices.findByFilter((OrderFilter) anyObject())).thenReturn(
+                new PaginatedData<>(PaginatedData.UNKNOWN_NUMBER_OF_ROWS, CountMode.NONE, Arrays.asList(order1),
+                        "next"),
+                new PaginatedData<>(PaginatedData.UNKNOWN_NUMBER_OF_ROWS, CountMode.NONE, Arrays.asList(order2),
+                        null));
+
+        final Response response = orderResource.export();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertThat(response.getMediaType().toString(), is(equalTo("application/x-ndjson")));
+
+        final String[] lines = getStreamedEntity(response).split("\n");
+        assertThat(lines.length, is(equalTo(2)));
+        assertThat(getIdFromJson(lines[0]), is(equalTo(1L)));
+        assertThat(getIdFromJson(lines[1]), is(equalTo(2L)));
+        verify(orderServices, times(2)).findByFilter((OrderFilter) anyObject());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportOrdersAsCsv() {
+        final Order order = orderWithId(orderReservedJohnDoe(), 1L);
+        order.getCustomer().setId(2L);
+        order.setCreatedAt(DateUtils.getAsDateTime("2017-10-10T10:00:00Z"));
+
+        final MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
+        when(multiMap.getFirst("format")).thenReturn("csv");
+        when(uriInfo.getQueryParameters()).thenReturn(multiMap);
+        when(orderServices.findByFilter((OrderFilter) anyObject())).thenReturn(
+                new PaginatedData<>(PaginatedData.UNKNOWN_NUMBER_OF_ROWS, CountMode.NONE, Arrays.asList(order),
+                        null));
+
+        final Response response = orderResource.export();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertThat(response.getMediaType().toString(), is(equalTo("text/csv")));
+        assertThat(getStreamedEntity(response), is(equalTo(
+                "id,createdAt,customerId,customerName,total,currentStatus\r\n"
+                        + "1,2017-10-10T10:00:00Z,2,John Doe,"
+                        + order.getTotalPrice() + ",RESERVED\r\n")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportOrdersWithInvalidFormat() {
+        final MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
+        when(multiMap.getFirst("format")).thenReturn("xml");
+        when(uriInfo.getQueryParameters()).thenReturn(multiMap);
+
+        final Response response = orderResource.export();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.VALIDATION_ERROR.getCode())));
+        verify(orderServices, never()).findByFilter((OrderFilter) anyObject());
+    }
+
     @Test
     public void getOrderStatsInQueue() {
         when(userServices.findById(1L)).thenReturn(johnDoe());
@@ -209,25 +353,78 @@ public class OrderResourceUTest {
 
     @Test
     public void getAllOrdersStatsInQueue() {
-        final List<Order> orders = Arrays.asList(orderReservedJohnDoe(), orderReservedEndaKenny(),
-                orderReservedDonaldTrump());
-        long index = 1L;
-        for (final Order order : orders) {
-            order.getCustomer().setId(index++);
-        }
-        when(orderServices.findAllReservedOrders()).thenReturn(orders);
-        when(orderServices.checkOrderPositionInQueueByCustomerId(1L)).thenReturn(1);
-        when(orderServices.checkOrderWaitTimeInQueueByCustomerId(1L)).thenReturn(2);
-        when(orderServices.checkOrderPositionInQueueByCustomerId(2L)).thenReturn(2);
-        when(orderServices.checkOrderWaitTimeInQueueByCustomerId(2L)).thenReturn(4);
-        when(orderServices.checkOrderPositionInQueueByCustomerId(3L)).thenReturn(2);
-        when(orderServices.checkOrderWaitTimeInQueueByCustomerId(3L)).thenReturn(10);
+        final List<OrderQueueStats> queueStats = Arrays.asList(new OrderQueueStats(1L, "John Doe", 1, 2),
+                new OrderQueueStats(2L, "Enda Kenny", 2, 4), new OrderQueueStats(3L, "Donald Trump", 2, 10));
+        when(orderServices.findAllReservedOrdersQueueStats()).thenReturn(queueStats);
 
         final Response response = orderResource.getAllOrdersStats();
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
         assertJsonResponseWithFile(response, "allOrdersStatsResult.json");
     }
 
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void consumeOrderChecksTheStatusesAtOnce() throws Exception {
+        final Order order1 = orderWithId(orderReservedJohnDoe(), 1L);
+        order1.getCustomer().setId(1L);
+        final Order order2 = orderWithId(orderReservedEndaKenny(), 2L);
+        order2.getCustomer().setId(2L);
+        when(deliveryBatchPlanner.takeStagedBatch()).thenReturn(Arrays.asList(order1, order2));
+
+        final Map<Long, OrderStatus> statuses = new HashMap<>();
+        statuses.put(1L, OrderStatus.RESERVED);
+        statuses.put(2L, OrderStatus.CANCELLED);
+        when(orderServices.findStatusesByIds(Arrays.asList(1L, 2L))).thenReturn(statuses);
+
+        when(orderServices.updateStatuses(anyList())).thenAnswer(invocation -> {
+            final List<OrderStatusChange> changes = (List<OrderStatusChange>) invocation.getArguments()[0];
+            changes.forEach(change -> change.setResult(Result.UPDATED));
+            return changes;
+        });
+
+        final Response response = orderResource.consumeOrder();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertJsonResponseWithFile(response, "consumeOrderResult.json");
+        final ArgumentCaptor<List> changes = ArgumentCaptor.forClass(List.class);
+        verify(orderServices).updateStatuses(changes.capture());
+        assertThat(changes.getValue().size(), is(equalTo(1)));
+        final OrderStatusChange change = (OrderStatusChange) changes.getValue().get(0);
+        assertThat(change.getOrderId(), is(equalTo(1L)));
+        assertThat(change.getNewStatus(), is(equalTo(OrderStatus.PENDING)));
+        verify(orderServices, never()).updateStatus(anyLong(), (OrderStatus) anyObject());
+        verify(orderServices, never()).findById(anyLong());
+        verify(deliveryBatchPlanner).planNextBatchAsync();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void consumeOrderDeliversTheRestOfTheBatchWhenAnOrderIsMissingOrChanged() throws Exception {
+        final Order order1 = orderWithId(orderReservedJohnDoe(), 1L);
+        order1.getCustomer().setId(1L);
+        final Order order2 = orderWithId(orderReservedEndaKenny(), 2L);
+        order2.getCustomer().setId(2L);
+        final Order order3 = orderWithId(orderReservedDonaldTrump(), 3L);
+        order3.getCustomer().setId(3L);
+        when(deliveryBatchPlanner.takeStagedBatch()).thenReturn(Arrays.asList(order3, order2, order1));
+
+        // order 3 no longer exists, order 2 is cancelled while the batch is consumed
+        final Map<Long, OrderStatus> statuses = new HashMap<>();
+        statuses.put(1L, OrderStatus.RESERVED);
+        statuses.put(2L, OrderStatus.RESERVED);
+        when(orderServices.findStatusesByIds(Arrays.asList(3L, 2L, 1L))).thenReturn(statuses);
+        when(orderServices.updateStatuses(anyList())).thenAnswer(invocation -> {
+            final List<OrderStatusChange> changes = (List<OrderStatusChange>) invocation.getArguments()[0];
+            changes.forEach(change -> change.setResult(change.getOrderId() == 2L ? Result.NOT_ALLOWED
+                    : Result.UPDATED));
+            return changes;
+        });
+
+        final Response response = orderResource.consumeOrder();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertJsonResponseWithFile(response, "consumeOrderResult.json");
+        verify(orderServices, times(1)).updateStatuses(anyList());
+    }
+
     @Test
     public void cancelOrder() {
         final Order order1 = orderWithId(orderReservedJohnDoe(), 1L);
@@ -14,7 +14,10 @@ import com.storehouse.app.common.exception.UserAlreadyExistingException;
 import com.storehouse.app.common.exception.UserNotFoundException;
 import com.storehouse.app.common.model.HttpCode;
 import com.storehouse.app.common.model.PaginatedData;
+import com.storehouse.app.common.model.filter.GenericFilter.CountMode;
 import com.storehouse.app.common.model.filter.UserFilter;
+import com.storehouse.app.common.security.AuthenticationTokenServices;
+import com.storehouse.app.common.utils.DateUtils;
 import com.storehouse.app.commontests.utils.ResourceDefinitions;
 import com.storehouse.app.user.model.User;
 import com.storehouse.app.user.model.User.Roles;
@@ -53,6 +56,9 @@ public class UserResourceUTest {
     @Mock
     private SecurityContext securityContext; // this can get the login user who makes the call
 
+    @Mock
+    private AuthenticationTokenServices tokenServices;
+
     @Before
     public void initTestCase() {
         MockitoAnnotations.initMocks(this);
@@ -61,8 +67,10 @@ public class UserResourceUTest {
 
         userResource.userServices = userServices;
         userResource.converter = converter;
+        userResource.csvConverter = new UserCsvConverter();
         userResource.uriInfo = uriInfo;
         userResource.securityContext = securityContext;
+        userResource.tokenServices = tokenServices;
     }
 
     // everyone can create a customer
@@ -73,7 +81,7 @@ public class UserResourceUTest {
         final Response response = userResource
                 .add(readJsonFile(getPathFileRequest(PATH_RESOURCE, "customerMarySimpson.json")));
         assertThat(response.getStatus(), is(equalTo(HttpCode.CREATED.getCode())));
-        assertJsonMatchesExpectedJson(response.getEntity().toString(), "{\"id\": 1}");
+        assertJsonMatchesExpectedJson(getJsonFromResponse(response), "{\"id\": 1}");
     }
 
     // no one can add employee admin, (it is done in the db only)
@@ -85,7 +93,7 @@ public class UserResourceUTest {
     }
 
     private void assertJsonResponseWithFile(final Response response, final String fileName) {
-        assertJsonMatchesFileContent(response.getEntity().toString(), getPathFileResponse(PATH_RESOURCE, fileName));
+        assertJsonMatchesFileContent(getJsonFromResponse(response), getPathFileResponse(PATH_RESOURCE, fileName));
     }
 
     @Test
@@ -118,7 +126,7 @@ public class UserResourceUTest {
         final Response response = userResource.update(1L,
                 readJsonFile(getPathFileRequest(PATH_RESOURCE, "updateCustomerMarySimpson.json")));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertThat(response.getEntity().toString(), is(equalTo("")));
+        assertThat(getJsonFromResponse(response), is(equalTo("")));
 
         final User expectedUser = userWithIdAndDate(marySimpson(), 1L);
         verify(userServices).update(userEqual(expectedUser));
@@ -141,7 +149,7 @@ public class UserResourceUTest {
         final Response response = userResource.update(1L,
                 readJsonFile(getPathFileRequest(PATH_RESOURCE, "updateCustomerMarySimpson.json")));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertThat(response.getEntity().toString(), is(equalTo("")));
+        assertThat(getJsonFromResponse(response), is(equalTo("")));
 
         final User expectedUser = userWithIdAndDate(marySimpson(), 1L);
         verify(userServices).update(userEqual(expectedUser));
@@ -167,7 +175,7 @@ public class UserResourceUTest {
         final Response response = userResource.update(1L,
                 readJsonFile(getPathFileRequest(PATH_RESOURCE, "updateEmployeeAdmin.json")));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertThat(response.getEntity().toString(), is(equalTo("")));
+        assertThat(getJsonFromResponse(response), is(equalTo("")));
 
         final User expectedUser = userWithIdAndDate(admin(), 1L);
         expectedUser.setPassword(null);
@@ -207,7 +215,7 @@ public class UserResourceUTest {
 
         final Response response = userResource.updatePassword(1L, getJsonWithPassword("new_pass"));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertThat(response.getEntity().toString(), is(equalTo("")));
+        assertThat(getJsonFromResponse(response), is(equalTo("")));
 
         verify(userServices).updatePassword(1L, "new_pass");
     }
@@ -219,7 +227,7 @@ public class UserResourceUTest {
 
         final Response response = userResource.updatePassword(1L, getJsonWithPassword("new_pass"));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertThat(response.getEntity().toString(), is(equalTo("")));
+        assertThat(getJsonFromResponse(response), is(equalTo("")));
 
         verify(userServices).updatePassword(1L, "new_pass");
     }
@@ -255,22 +263,24 @@ public class UserResourceUTest {
     public void findCustomerByEmailAndPassword() {
         when(userServices.findByEmailAndPassword(marySimpson().getEmail(), marySimpson().getPassword()))
                 .thenReturn(userWithIdAndDate(marySimpson(), 1L));
+        when(tokenServices.issueToken(userWithIdAndDate(marySimpson(), 1L))).thenReturn("maryToken");
 
         final Response response = userResource.findByEmailAndPassword(
                 getJsonWithEmailAndPassword(marySimpson().getEmail(), marySimpson().getPassword()));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertJsonResponseWithFile(response, "customerMarySimposonFound.json");
+        assertJsonResponseWithFile(response, "customerMarySimposonAuthenticated.json");
     }
 
     @Test
     public void findEmployeeByEmailAndPassword() {
         when(userServices.findByEmailAndPassword(admin().getEmail(), admin().getPassword()))
                 .thenReturn(userWithIdAndDate(admin(), 1L));
+        when(tokenServices.issueToken(userWithIdAndDate(admin(), 1L))).thenReturn("adminToken");
 
         final Response response = userResource.findByEmailAndPassword(
                 getJsonWithEmailAndPassword(admin().getEmail(), admin().getPassword()));
         assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
-        assertJsonResponseWithFile(response, "employeeAdminFound.json");
+        assertJsonResponseWithFile(response, "employeeAdminAuthenticated.json");
     }
 
     @Test
@@ -320,6 +330,25 @@ public class UserResourceUTest {
         assertJsonResponseWithFile(response, "twoUsers.json");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void exportUsersAsCsv() {
+        final User user = userWithIdAndDate(admin(), 1L);
+        user.setName("Admin, Storehouse");
+        user.setCreatedAt(DateUtils.getAsDateTime("2017-10-10T10:00:00Z"));
+
+        final MultivaluedMap<String, String> multiMap = mock(MultivaluedMap.class);
+        when(multiMap.getFirst("format")).thenReturn("CSV");
+        when(uriInfo.getQueryParameters()).thenReturn(multiMap);
+        when(userServices.findByFilter((UserFilter) anyObject())).thenReturn(
+                new PaginatedData<>(PaginatedData.UNKNOWN_NUMBER_OF_ROWS, CountMode.NONE, Arrays.asList(user), null));
+
+        final Response response = userResource.export();
+        assertThat(response.getStatus(), is(equalTo(HttpCode.OK.getCode())));
+        assertThat(getStreamedEntity(response), is(equalTo("id,name,email,type,roles,createdAt\r\n"
+                + "1,\"Admin, Storehouse\",admin@domain.com,EMPLOYEE,EMPLOYEE ADMIN,2017-10-10T10:00:00Z\r\n")));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void findByFilterNoFilter() {